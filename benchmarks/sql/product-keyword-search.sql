@@ -0,0 +1,82 @@
+-- Product keyword search inside a category: ungrouped JPQL predicate (before) against the grouped
+-- specification predicate (after), without secondary indexes and with the indexes of changelog 1.2.
+-- Runs in its own schema on 1 000 000 generated products, e.g.
+--   psql -d goodsAndShops -f benchmarks/sql/product-keyword-search.sql
+-- Rows scanned / returned and execution time are taken from the EXPLAIN (ANALYZE, BUFFERS) output.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+DROP SCHEMA IF EXISTS product_search_benchmark CASCADE;
+CREATE SCHEMA product_search_benchmark;
+SET search_path = product_search_benchmark, public;
+
+CREATE TABLE category (id bigint PRIMARY KEY, name varchar(255) NOT NULL UNIQUE);
+CREATE TABLE subcategory (id bigint PRIMARY KEY, name varchar(255) NOT NULL UNIQUE,
+                          category_id bigint NOT NULL REFERENCES category (id));
+CREATE TABLE product (id bigint PRIMARY KEY, brand varchar(255) NOT NULL, manufacturer varchar(255) NOT NULL,
+                      name varchar(255) NOT NULL, quantity integer NOT NULL, unit varchar(255) NOT NULL,
+                      subcategory_id bigint NOT NULL REFERENCES subcategory (id));
+
+-- 20 categories, 10 subcategories each
+INSERT INTO category SELECT c, 'Category ' || c FROM generate_series(1, 20) c;
+INSERT INTO subcategory SELECT s, 'Subcategory ' || s, (s - 1) / 10 + 1 FROM generate_series(1, 200) s;
+
+-- about 2% of names, 1% of brands and 1% of manufacturers contain "milk", spread over all subcategories
+INSERT INTO product
+SELECT p,
+       CASE WHEN p % 101 = 7 THEN 'Milky Way' ELSE 'Brand ' || (p % 997) END,
+       CASE WHEN p % 103 = 13 THEN 'Milk Union' ELSE 'Manufacturer ' || (p % 331) END,
+       CASE WHEN p % 47 = 0 THEN 'Milk ' || p ELSE 'Product ' || md5(p::text) END,
+       (p % 1000) + 1,
+       'PIECE',
+       (p % 200) + 1
+FROM generate_series(1, 1000000) p;
+ANALYZE;
+
+\echo '=== before: category AND name LIKE OR brand LIKE OR manufacturer LIKE, no secondary indexes'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM product p
+INNER JOIN subcategory sc ON p.subcategory_id = sc.id
+INNER JOIN category c ON sc.category_id = c.id
+WHERE upper(c.name) = upper('Category 3')
+AND upper(p.name) LIKE '%' || upper('milk') || '%'
+OR upper(p.brand) LIKE '%' || upper('milk') || '%'
+OR upper(p.manufacturer) LIKE '%' || upper('milk') || '%'
+ORDER BY p.name;
+
+\echo '=== after: category AND (name LIKE OR brand LIKE OR manufacturer LIKE), no secondary indexes'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM product p
+INNER JOIN subcategory sc ON p.subcategory_id = sc.id
+INNER JOIN category c ON sc.category_id = c.id
+WHERE upper(c.name) = 'CATEGORY 3'
+AND (upper(p.name) LIKE '%MILK%' OR upper(p.brand) LIKE '%MILK%' OR upper(p.manufacturer) LIKE '%MILK%')
+ORDER BY p.name;
+
+CREATE INDEX product_subcategory_id_idx ON product (subcategory_id);
+CREATE INDEX subcategory_category_id_idx ON subcategory (category_id);
+CREATE INDEX product_name_trgm_idx ON product USING gin (upper(name) gin_trgm_ops);
+CREATE INDEX product_brand_trgm_idx ON product USING gin (upper(brand) gin_trgm_ops);
+CREATE INDEX product_manufacturer_trgm_idx ON product USING gin (upper(manufacturer) gin_trgm_ops);
+ANALYZE;
+
+\echo '=== before: ungrouped predicate, changelog 1.2 indexes'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM product p
+INNER JOIN subcategory sc ON p.subcategory_id = sc.id
+INNER JOIN category c ON sc.category_id = c.id
+WHERE upper(c.name) = upper('Category 3')
+AND upper(p.name) LIKE '%' || upper('milk') || '%'
+OR upper(p.brand) LIKE '%' || upper('milk') || '%'
+OR upper(p.manufacturer) LIKE '%' || upper('milk') || '%'
+ORDER BY p.name;
+
+\echo '=== after: grouped predicate, changelog 1.2 indexes'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT p.* FROM product p
+INNER JOIN subcategory sc ON p.subcategory_id = sc.id
+INNER JOIN category c ON sc.category_id = c.id
+WHERE upper(c.name) = 'CATEGORY 3'
+AND (upper(p.name) LIKE '%MILK%' OR upper(p.brand) LIKE '%MILK%' OR upper(p.manufacturer) LIKE '%MILK%')
+ORDER BY p.name;
+
+DROP SCHEMA product_search_benchmark CASCADE;
@@ -0,0 +1,87 @@
+package com.example.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH json result with the stored baseline and fails when an average time benchmark
+ * got slower than baseline * (1 + threshold). Benchmarks without a baseline are only reported.
+ * Arguments: baseline json, result json, threshold (0.25 by default).
+ */
+public final class BaselineComparator {
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Error! Usage: BaselineComparator <baseline.json> <result.json> [threshold]");
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+        Map<String, Double> baseline = readScores(new File(args[0]));
+        Map<String, Double> result = readScores(new File(args[1]));
+
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : result.entrySet()) {
+            Double baselineScore = baseline.get(entry.getKey());
+            if (baselineScore == null) {
+                System.out.printf("%-90s %12.3f ms/op (no baseline)%n", entry.getKey(), entry.getValue());
+                continue;
+            }
+            double change = entry.getValue() / baselineScore - 1;
+            System.out.printf("%-90s %12.3f ms/op, baseline %12.3f ms/op, %+7.1f%%%n",
+                    entry.getKey(), entry.getValue(), baselineScore, change * 100);
+            if (change > threshold) {
+                regressions.add(entry.getKey());
+            }
+        }
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException("Error! Benchmarks slower than the baseline by more than "
+                    + Math.round(threshold * 100) + "%: " + regressions);
+        }
+    }
+
+    /**
+     * Scores in ms/op keyed by benchmark name and parameters, e.g. ProductServiceBenchmark.listConverterToDTO{size=10000}.
+     */
+    static Map<String, Double> readScores(File file) throws IOException {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (JsonNode benchmark : new ObjectMapper().readTree(file)) {
+            if (!"avgt".equals(benchmark.path("mode").asText())) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(benchmark.path("benchmark").asText()
+                    .replace("com.example.benchmarks.", ""));
+            JsonNode params = benchmark.path("params");
+            if (params.size() > 0) {
+                key.append('{');
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    key.append(field.getKey()).append('=').append(field.getValue().asText());
+                    key.append(fields.hasNext() ? "," : "}");
+                }
+            }
+            JsonNode metric = benchmark.path("primaryMetric");
+            scores.put(key.toString(), toMillis(metric.path("score").asDouble(), metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+
+    private static double toMillis(double score, String unit) {
+        return switch (unit) {
+            case "s/op" -> score * 1000;
+            case "us/op" -> score / 1000;
+            case "ns/op" -> score / 1_000_000;
+            default -> score;
+        };
+    }
+}
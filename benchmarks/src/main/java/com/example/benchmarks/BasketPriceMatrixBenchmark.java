@@ -0,0 +1,51 @@
+package com.example.benchmarks;
+
+import com.example.service.BasketPriceMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Basket of 100 products in 500 stores, from the rows of the price matrix query to the chosen stores.
+ * BasketService has to answer in under 50 ms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BasketPriceMatrixBenchmark {
+    private static final int PRODUCTS = 100;
+    private static final int STORES = 500;
+
+    @Param({"1", "2", "3"})
+    private int maxStores;
+
+    private List<Long> productsId;
+    private List<Object[]> rows;
+
+    @Setup
+    public void setUp() {
+        productsId = LongStream.rangeClosed(1, PRODUCTS).boxed().collect(Collectors.toList());
+        rows = SyntheticData.priceMatrixRows(PRODUCTS, STORES);
+    }
+
+    @Benchmark
+    public int[] cheapestStores() {
+        return BasketPriceMatrix.of(productsId, rows).cheapestStores(maxStores);
+    }
+}
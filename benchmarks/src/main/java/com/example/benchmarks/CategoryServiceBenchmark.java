@@ -0,0 +1,49 @@
+package com.example.benchmarks;
+
+import com.example.entity.Category;
+import com.example.entity.dto.CategoryDTO;
+import com.example.service.CategoryService;
+import com.example.service.SubcategoryService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of a category tree, size is the number of products under the category.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CategoryServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private CategoryService categoryService;
+    private Category category;
+
+    @Setup
+    public void setUp() {
+        categoryService = new CategoryService(null, null);
+        categoryService.setSubcategoryService(new SubcategoryService(null, null, categoryService, null));
+        category = SyntheticData.categoryTree(size);
+    }
+
+    @Benchmark
+    public CategoryDTO convertToDTO() {
+        return categoryService.convertToDTO(category);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.benchmarks;
+
+import com.example.service.PriceListService;
+import com.example.service.PriceService;
+import com.example.service.ProductService;
+import com.example.service.StoreService;
+import com.example.service.SubcategoryService;
+import com.example.utils.ExcelUtils;
+import com.example.utils.XlsxStreamReader;
+import com.example.utils.pojo.ImportReport;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+/**
+ * Import of products and prices files: reading of the sheet, the row parsers and the chunking.
+ * The services are stubs that accept every id and row, so the database is not measured.
+ * 1 000 000 rows can be measured with -p size=1000000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExcelUtilsBenchmark {
+
+    @Param({"10000", "100000"})
+    private int size;
+
+    private ExcelUtils excelUtils;
+    private MockMultipartFile productsFile;
+    private MockMultipartFile pricesFile;
+
+    @Setup
+    public void setUp() {
+        SubcategoryService subcategoryService = Mockito.mock(SubcategoryService.class);
+        ProductService productService = Mockito.mock(ProductService.class);
+        PriceListService priceListService = Mockito.mock(PriceListService.class);
+        PriceService priceService = Mockito.mock(PriceService.class);
+        when(subcategoryService.findExistingIds(anyCollection()))
+                .thenAnswer(invocation -> new HashSet<>(invocation.<Collection<Long>>getArgument(0)));
+        when(priceListService.findExistingIds(anyCollection()))
+                .thenAnswer(invocation -> new HashSet<>(invocation.<Collection<Long>>getArgument(0)));
+        when(productService.importAll(anyList())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+        when(priceService.importAll(anyList())).thenAnswer(invocation -> invocation.<List<?>>getArgument(0).size());
+
+        excelUtils = new ExcelUtils(subcategoryService, productService, priceListService, priceService,
+                Mockito.mock(StoreService.class), new XlsxStreamReader(), 1000, 1);
+        productsFile = xlsx("products.xlsx", SyntheticData.productsXlsx(size));
+        pricesFile = xlsx("prices.xlsx", SyntheticData.pricesXlsx(size));
+    }
+
+    @Benchmark
+    public ImportReport createProducts() {
+        return excelUtils.createProducts(productsFile);
+    }
+
+    @Benchmark
+    public ImportReport createPrices() {
+        return excelUtils.createPrices(pricesFile);
+    }
+
+    private static MockMultipartFile xlsx(String name, byte[] content) {
+        return new MockMultipartFile("file", name,
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", content);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.benchmarks;
+
+import com.example.entity.Price;
+import com.example.entity.PriceList;
+import com.example.entity.dto.PriceListDTO;
+import com.example.service.PriceListService;
+import com.example.service.PriceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of one price list with its price history and the search of its last price.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PriceListServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int size;
+
+    private PriceListService priceListService;
+    private PriceList priceList;
+    private List<Price> prices;
+
+    @Setup
+    public void setUp() {
+        priceListService = new PriceListService(null, null, null, null, null, null, null);
+        priceListService.setPriceService(new PriceService(null, priceListService, null, null, null));
+        priceList = SyntheticData.priceList(size);
+        prices = priceList.getPriceHistoryList();
+    }
+
+    @Benchmark
+    public PriceListDTO convertToDTO() {
+        return priceListService.convertToDTO(priceList);
+    }
+
+    @Benchmark
+    public BigDecimal findLastPrice() {
+        return priceListService.findLastPrice(prices);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.benchmarks;
+
+import com.example.entity.Category;
+import com.example.entity.Price;
+import com.example.entity.PriceList;
+import com.example.entity.Product;
+import com.example.entity.Store;
+import com.example.entity.Subcategory;
+import com.example.enums.Unit;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Generators of entity graphs and import files for the benchmarks.
+ * A fixed seed makes every run work on the same data.
+ */
+public final class SyntheticData {
+    private static final long SEED = 42L;
+    private static final LocalDate FIRST_DATE = LocalDate.of(2020, 1, 1);
+    private static final String[] BRANDS = {"Бежин Луг", "Простоквашино", "Домик в деревне", "Агуша", "Савушкин"};
+    private static final Unit[] UNITS = Unit.values();
+
+    private SyntheticData() {
+    }
+
+    static List<Product> products(int count) {
+        Random random = new Random(SEED);
+        Subcategory subcategory = subcategory(1L, category(1L));
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Product product = product(i, subcategory, random);
+            for (int j = 0; j < 3; j++) {
+                PriceList priceList = new PriceList();
+                priceList.setId((long) i * 3 + j);
+                product.getPriceList().add(priceList);
+            }
+            products.add(product);
+        }
+        return products;
+    }
+
+    /**
+     * One price list with count prices in random date order, so findLastPrice has to look at every price.
+     */
+    static PriceList priceList(int count) {
+        Random random = new Random(SEED);
+        Store store = new Store();
+        store.setId(1L);
+        store.setName("Евроопт");
+        PriceList priceList = new PriceList();
+        priceList.setId(1L);
+        priceList.setStore(store);
+        priceList.setProduct(product(1, subcategory(1L, category(1L)), random));
+        for (int i = 1; i <= count; i++) {
+            Price price = new Price();
+            price.setId((long) i);
+            price.setPrice(randomPrice(random));
+            price.setDate(FIRST_DATE.plusDays(random.nextInt(3650)));
+            price.setPriceList(priceList);
+            priceList.getPriceHistoryList().add(price);
+        }
+        priceList.setCurrentPrice(priceList.getPriceHistoryList().get(0).getPrice());
+        return priceList;
+    }
+
+    /**
+     * Category with productCount products spread over subcategories of 100 products.
+     */
+    static Category categoryTree(int productCount) {
+        Random random = new Random(SEED);
+        Category category = category(1L);
+        Subcategory subcategory = null;
+        for (int i = 1; i <= productCount; i++) {
+            if (subcategory == null || subcategory.getProductList().size() == 100) {
+                subcategory = subcategory(category.getSubcategoryList().size() + 1L, category);
+                category.getSubcategoryList().add(subcategory);
+            }
+            subcategory.getProductList().add(product(i, subcategory, random));
+        }
+        return category;
+    }
+
+    /**
+     * Rows of IPriceListRepository.findPriceMatrixByProductsId for products 1..productCount in stores 1..storeCount,
+     * every store sells about 80% of the products.
+     */
+    static List<Object[]> priceMatrixRows(int productCount, int storeCount) {
+        Random random = new Random(SEED);
+        List<Object[]> rows = new ArrayList<>();
+        for (long store = 1; store <= storeCount; store++) {
+            for (long product = 1; product <= productCount; product++) {
+                if (random.nextInt(5) > 0) {
+                    rows.add(new Object[]{product, store, (store - 1) * productCount + product, randomPrice(random)});
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Products import file with a header row and rowCount rows of the ExcelUtils.createProducts layout.
+     */
+    static byte[] productsXlsx(int rowCount) {
+        Random random = new Random(SEED);
+        return xlsx(workbook -> {
+            Sheet sheet = workbook.createSheet("products");
+            header(sheet, "subcategory_id", "name", "brand", "quantity", "unit", "manufacturer");
+            for (int i = 1; i <= rowCount; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(1 + random.nextInt(200));
+                row.createCell(1).setCellValue("Молоко " + i);
+                row.createCell(2).setCellValue(BRANDS[random.nextInt(BRANDS.length)]);
+                row.createCell(3).setCellValue(1 + random.nextInt(1000));
+                row.createCell(4).setCellValue(UNITS[random.nextInt(UNITS.length)].name());
+                row.createCell(5).setCellValue("Manufacturer " + random.nextInt(500));
+            }
+        });
+    }
+
+    /**
+     * Prices import file with a header row and rowCount rows of the ExcelUtils.createPrices layout.
+     */
+    static byte[] pricesXlsx(int rowCount) {
+        return pricesXlsx(rowCount, 1L, 10_000, SEED);
+    }
+
+    /**
+     * Prices import file for the price lists firstPriceListId .. firstPriceListId + priceListCount - 1.
+     */
+    public static byte[] pricesXlsx(int rowCount, long firstPriceListId, int priceListCount, long seed) {
+        Random random = new Random(seed);
+        return xlsx(workbook -> {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd.mm.yyyy"));
+            Sheet sheet = workbook.createSheet("prices");
+            header(sheet, "price_list_id", "price", "date");
+            for (int i = 1; i <= rowCount; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(firstPriceListId + random.nextInt(priceListCount));
+                row.createCell(1).setCellValue(randomPrice(random).doubleValue());
+                row.createCell(2).setCellValue(FIRST_DATE.plusDays(random.nextInt(3650)));
+                row.getCell(2).setCellStyle(dateStyle);
+            }
+        });
+    }
+
+    private static Category category(long id) {
+        Category category = new Category();
+        category.setId(id);
+        category.setName("Молочные продукты");
+        return category;
+    }
+
+    private static Subcategory subcategory(long id, Category category) {
+        Subcategory subcategory = new Subcategory();
+        subcategory.setId(id);
+        subcategory.setName("Молоко " + id);
+        subcategory.setCategory(category);
+        return subcategory;
+    }
+
+    private static Product product(long id, Subcategory subcategory, Random random) {
+        Product product = new Product();
+        product.setId(id);
+        product.setSubcategory(subcategory);
+        product.setName("Молоко " + id);
+        product.setBrand(BRANDS[random.nextInt(BRANDS.length)]);
+        product.setQuantity(1 + random.nextInt(1000));
+        product.setUnit(UNITS[random.nextInt(UNITS.length)]);
+        product.setManufacturer("Manufacturer " + random.nextInt(500));
+        return product;
+    }
+
+    private static BigDecimal randomPrice(Random random) {
+        return BigDecimal.valueOf(50 + random.nextInt(100_000), 2);
+    }
+
+    private static void header(Sheet sheet, String... names) {
+        Row row = sheet.createRow(0);
+        for (int i = 0; i < names.length; i++) {
+            row.createCell(i).setCellValue(names[i]);
+        }
+    }
+
+    /**
+     * Streaming workbook, only the last 100 rows are kept in memory while the sheet is written.
+     */
+    private static byte[] xlsx(Consumer<SXSSFWorkbook> sheetWriter) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try (workbook) {
+            sheetWriter.accept(workbook);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            workbook.write(outputStream);
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            workbook.dispose();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.benchmarks.load;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Fills the schema created by the Liquibase changelogs with generated categories, stores, products,
+ * price lists and prices. Ids continue after the rows inserted by the changelogs, the sequences are
+ * moved past the generated ids, so the application can create rows afterwards.
+ */
+@Slf4j
+class BulkDataGenerator {
+    static final int CATEGORIES = 20;
+    static final int SUBCATEGORIES_PER_CATEGORY = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    BulkDataGenerator(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    void generate(LoadTestSettings settings) {
+        long start = System.currentTimeMillis();
+        long category0 = maxId("category");
+        jdbcTemplate.update("INSERT INTO example.category (id, name) " +
+                "SELECT ? + g, 'Load category ' || g FROM generate_series(1, ?) g", category0, CATEGORIES);
+
+        long subcategory0 = maxId("subcategory");
+        int subcategories = CATEGORIES * SUBCATEGORIES_PER_CATEGORY;
+        jdbcTemplate.update("INSERT INTO example.subcategory (id, name, category_id) " +
+                "SELECT ? + g, 'Load subcategory ' || g, ? + 1 + (g - 1) / ? FROM generate_series(1, ?) g",
+                subcategory0, category0, SUBCATEGORIES_PER_CATEGORY, subcategories);
+
+        long store0 = maxId("store");
+        jdbcTemplate.update("INSERT INTO example.store (id, name, city, address, working_hours, website) " +
+                "SELECT ? + g, 'Load store ' || g, 'Tula', 'ul. Lenina ' || g, '08:00-22:00', 'https://store' || g || '.example.com' " +
+                "FROM generate_series(1, ?) g", store0, settings.getStores());
+
+        long product0 = maxId("product");
+        jdbcTemplate.update("INSERT INTO example.product (id, subcategory_id, name, brand, quantity, unit, manufacturer) " +
+                "SELECT ? + g, ? + 1 + g % ?, 'Load product ' || g, 'Brand ' || g % 100, 1 + g % 1000, " +
+                "(ARRAY['MILLILITER', 'LITRE', 'GRAM', 'KILOGRAM', 'PIECE'])[1 + g % 5], 'Manufacturer ' || g % 500 " +
+                "FROM generate_series(1, ?) g", product0, subcategory0, subcategories, settings.getProducts());
+
+        // price list g belongs to product (g - 1) / storesPerProduct and to one of the stores after it,
+        // its prices are one per day, the current price is the price of the last day
+        long priceList0 = maxId("store_has_pricelist");
+        int storesPerProduct = settings.getStoresPerProduct();
+        int pricesPerPriceList = settings.getPricesPerPriceList();
+        jdbcTemplate.update("INSERT INTO example.store_has_pricelist (id, store_id, product_id, current_price) " +
+                "SELECT ? + g, ? + 1 + ((g - 1) / ? + (g - 1) % ?) % ?, ? + 1 + (g - 1) / ?, " +
+                "TRUNC(50 + (g * 7919 + ?) % 100000 / 100.0, 2) FROM generate_series(1, ?) g",
+                priceList0, store0, storesPerProduct, storesPerProduct, settings.getStores(), product0, storesPerProduct,
+                pricesPerPriceList, settings.getPriceLists());
+
+        // the generated price lists bypass PriceListService, so their best prices are filled here
+        jdbcTemplate.update("INSERT INTO example.product_best_price (product_id, price_list_id, store_id, current_price) " +
+                "SELECT DISTINCT ON (pl.product_id) pl.product_id, pl.id, pl.store_id, pl.current_price " +
+                "FROM example.store_has_pricelist pl WHERE pl.id > ? " +
+                "ORDER BY pl.product_id, pl.current_price, pl.id", priceList0);
+
+        long price0 = maxId("price");
+        jdbcTemplate.update("INSERT INTO example.price (id, price, date, price_list_id) " +
+                "SELECT ? + (l - 1) * ? + d, TRUNC(50 + (l * 7919 + d) % 100000 / 100.0, 2), DATE '2022-01-01' + d, ? + l " +
+                "FROM generate_series(1, ?) l CROSS JOIN generate_series(1, ?) d",
+                price0, pricesPerPriceList, priceList0, settings.getPriceLists(), pricesPerPriceList);
+
+        for (String[] table : new String[][]{{"category", "sequencecategory"}, {"subcategory", "sequencesubcategory"},
+                {"store", "sequencestore"}, {"product", "sequenceproduct"},
+                {"store_has_pricelist", "sequencestorehaspricelist"}, {"price", "sequenceprice"}}) {
+            jdbcTemplate.execute("SELECT setval('example." + table[1] + "', (SELECT max(id) FROM example." + table[0] + "))");
+        }
+        jdbcTemplate.execute("ANALYZE");
+        log.warn("Generated " + settings.getProducts() + " products, " + settings.getPriceLists() + " price lists and "
+                + (long) settings.getPriceLists() * pricesPerPriceList + " prices in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * First generated product id, the products of the changelogs come before it.
+     */
+    long firstProductId(LoadTestSettings settings) {
+        return maxId("product") - settings.getProducts() + 1;
+    }
+
+    long firstPriceListId(LoadTestSettings settings) {
+        return maxId("store_has_pricelist") - settings.getPriceLists() + 1;
+    }
+
+    private long maxId(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM example." + table, Long.class);
+        return maxId == null ? 0L : maxId;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.benchmarks.load;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Closed loop load of one endpoint: each of the concurrency workers sends the next request
+ * as soon as the previous response is read. Requests of the warmup are not recorded.
+ */
+@Slf4j
+class EndpointLoad {
+    private final String name;
+    private final HttpClient httpClient;
+    private final Function<ThreadLocalRandom, HttpRequest> requestFactory;
+
+    EndpointLoad(String name, HttpClient httpClient, Function<ThreadLocalRandom, HttpRequest> requestFactory) {
+        this.name = name;
+        this.httpClient = httpClient;
+        this.requestFactory = requestFactory;
+    }
+
+    EndpointResult run(int concurrency, int warmupSeconds, int durationSeconds) throws Exception {
+        log.warn("Endpoint " + name + ": warmup " + warmupSeconds + " s, measurement " + durationSeconds
+                + " s, concurrency " + concurrency);
+        load(concurrency, warmupSeconds, new AtomicLong());
+
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long[] latencies = load(concurrency, durationSeconds, errors);
+        return new EndpointResult(name, concurrency, latencies, errors.get(), System.nanoTime() - start);
+    }
+
+    private long[] load(int concurrency, int seconds, AtomicLong errors) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(() -> worker(deadline, errors)));
+            }
+            List<long[]> results = new ArrayList<>();
+            int size = 0;
+            for (Future<long[]> worker : workers) {
+                long[] result = worker.get();
+                results.add(result);
+                size += result.length;
+            }
+            long[] latencies = new long[size];
+            int position = 0;
+            for (long[] result : results) {
+                System.arraycopy(result, 0, latencies, position, result.length);
+                position += result.length;
+            }
+            return latencies;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long[] worker(long deadline, AtomicLong errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[1024];
+        int count = 0;
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = requestFactory.apply(random);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400 && errors.getAndIncrement() == 0) {
+                    log.error("Endpoint " + name + " answered " + response.statusCode() + " to " + request.uri());
+                }
+            } catch (Exception e) {
+                if (errors.getAndIncrement() == 0) {
+                    log.error("Endpoint " + name + " failed: " + e.getMessage());
+                }
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+}
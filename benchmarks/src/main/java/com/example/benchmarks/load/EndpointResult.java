@@ -0,0 +1,65 @@
+package com.example.benchmarks.load;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Latencies and errors of one endpoint measured during one load phase.
+ */
+@Getter
+class EndpointResult {
+    private final String endpoint;
+    private final int concurrency;
+    private final long requests;
+    private final long errors;
+    private final double throughput;
+    private final double p50Ms;
+    private final double p99Ms;
+    private final double maxMs;
+
+    EndpointResult(String endpoint, int concurrency, long[] latenciesNanos, long errors, long elapsedNanos) {
+        long[] sorted = latenciesNanos.clone();
+        Arrays.sort(sorted);
+        this.endpoint = endpoint;
+        this.concurrency = concurrency;
+        this.requests = sorted.length;
+        this.errors = errors;
+        this.throughput = sorted.length / (elapsedNanos / 1e9);
+        this.p50Ms = percentile(sorted, 0.50);
+        this.p99Ms = percentile(sorted, 0.99);
+        this.maxMs = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6;
+    }
+
+    static String header() {
+        return String.format("%-30s %11s %9s %7s %10s %9s %9s %9s",
+                "endpoint", "concurrency", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+    }
+
+    static String csvHeader() {
+        return "endpoint,concurrency,requests,errors,throughput,p50_ms,p99_ms,max_ms";
+    }
+
+    String toCsv() {
+        return String.format(Locale.ROOT, "%s,%d,%d,%d,%.1f,%.2f,%.2f,%.2f",
+                endpoint, concurrency, requests, errors, throughput, p50Ms, p99Ms, maxMs);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-30s %11d %9d %7d %10.1f %9.2f %9.2f %9.2f",
+                endpoint, concurrency, requests, errors, throughput, p50Ms, p99Ms, maxMs);
+    }
+
+    /**
+     * Nearest rank percentile.
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1e6;
+    }
+}
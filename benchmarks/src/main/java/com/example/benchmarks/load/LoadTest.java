@@ -0,0 +1,228 @@
+package com.example.benchmarks.load;
+
+import com.example.ApplicationStart;
+import com.example.benchmarks.SyntheticData;
+import com.example.service.PriceHistoryStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Load test of the REST api. Starts an embedded PostgreSQL, boots ApplicationStart against it
+ * (the schema and the reference data come from the Liquibase changelogs), adds generated data,
+ * signs up an admin and drives the endpoints with the jwt of the admin. Prints p50/p99 latency and throughput
+ * per endpoint and writes them to load.report as csv. Settings are described in LoadTestSettings.
+ */
+@Slf4j
+public final class LoadTest {
+    private static final String CONTEXT_PATH = "/goods_and_shops";
+    private static final String USERNAME = "loadTestAdmin";
+    private static final String PASSWORD = "loadTestPassword";
+    private static final int UPLOAD_FILES = 8;
+    private static final int BASKET_SIZE = 50;
+
+    private final LoadTestSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private LoadTest(LoadTestSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(new LoadTestSettings()).run();
+    }
+
+    private void run() throws Exception {
+        log.warn("Load test settings: " + settings);
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder()
+                .setServerConfig("max_connections", "200")
+                .start()) {
+            new JdbcTemplate(postgres.getPostgresDatabase()).execute("CREATE SCHEMA example");
+            ConfigurableApplicationContext context = startApplication(postgres);
+            try {
+                BulkDataGenerator generator = new BulkDataGenerator(postgres.getPostgresDatabase());
+                generator.generate(settings);
+                // the generated prices bypass PriceService, the price history store reads them again
+                context.getBean(PriceHistoryStore.class).load();
+                int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+                String baseUrl = "http://localhost:" + port + CONTEXT_PATH;
+                String token = signUpAndSignIn(baseUrl);
+
+                List<EndpointResult> results = new ArrayList<>();
+                Set<String> endpoints = Set.of(settings.getEndpoints().split(","));
+                for (Map.Entry<String, EndpointLoad> endpoint : endpointLoads(baseUrl, token, generator).entrySet()) {
+                    if (endpoints.contains(endpoint.getKey())) {
+                        int concurrency = endpoint.getKey().endsWith("upload")
+                                ? settings.getUploadConcurrency()
+                                : settings.getConcurrency();
+                        results.add(endpoint.getValue().run(concurrency, settings.getWarmupSeconds(), settings.getDurationSeconds()));
+                    }
+                }
+                report(results);
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication(EmbeddedPostgres postgres) {
+        // command line arguments, they override application.properties
+        return new SpringApplicationBuilder(ApplicationStart.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:postgresql://localhost:" + postgres.getPort()
+                        + "/postgres?reWriteBatchedInserts=true",
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.datasource.hikari.maximum-pool-size=" + Math.max(10, settings.getConcurrency()),
+                "--spring.jpa.show-sql=false");
+    }
+
+    /**
+     * Endpoints by the name used in load.endpoints, in the order they are loaded.
+     */
+    private Map<String, EndpointLoad> endpointLoads(String baseUrl, String token, BulkDataGenerator generator) {
+        long firstProductId = generator.firstProductId(settings);
+        long firstPriceListId = generator.firstPriceListId(settings);
+        int categories = BulkDataGenerator.CATEGORIES;
+
+        EndpointLoad products = new EndpointLoad("GET /products", httpClient, random -> get(baseUrl
+                + "/products?sorting_direction=asc&size=50&categoryName=Load%20category%20" + (1 + random.nextInt(categories)), token));
+
+        EndpointLoad priceLists = new EndpointLoad("GET /price_lists", httpClient, random -> {
+            long productId = firstProductId + random.nextInt(settings.getProducts() - 2);
+            return get(baseUrl + "/price_lists?productsId=" + productId + "," + (productId + 1) + "," + (productId + 2), token);
+        });
+
+        EndpointLoad priceDynamics = new EndpointLoad("GET /price_lists dynamics", httpClient, random -> {
+            long productId = firstProductId + random.nextInt(settings.getProducts() - 2);
+            return get(baseUrl + "/price_lists?productsId=" + productId + "," + (productId + 1) + "," + (productId + 2)
+                    + "&start_date=2022-01-02&end_date=2022-01-04", token);
+        });
+
+        EndpointLoad bestPrices = new EndpointLoad("GET /price_lists/best_prices", httpClient, random -> {
+            long productId = firstProductId + random.nextInt(settings.getProducts() - 2);
+            return get(baseUrl + "/price_lists/best_prices?productsId=" + productId + "," + (productId + 1) + "," + (productId + 2), token);
+        });
+
+        EndpointLoad allPrices = new EndpointLoad("GET /prices streamed", httpClient, random -> get(baseUrl + "/prices", token));
+
+        EndpointLoad priceStatistics = new EndpointLoad("GET /prices/statistics", httpClient, random -> {
+            long productId = firstProductId + random.nextInt(settings.getProducts() - 2);
+            return get(baseUrl + "/prices/statistics?productsId=" + productId + "," + (productId + 1) + "," + (productId + 2)
+                    + "&start_date=2022-01-01&end_date=2022-12-31&bucket=month&group_by=store", token);
+        });
+
+        EndpointLoad basket = new EndpointLoad("GET /price_lists/basket", httpClient, random -> {
+            StringJoiner productsId = new StringJoiner(",");
+            for (int i = 0; i < BASKET_SIZE; i++) {
+                productsId.add(String.valueOf(firstProductId + random.nextInt(settings.getProducts())));
+            }
+            return get(baseUrl + "/price_lists/basket?max_stores=2&productsId=" + productsId, token);
+        });
+
+        List<byte[]> uploadBodies = new ArrayList<>();
+        String boundary = "loadTestBoundary" + System.nanoTime();
+        for (int i = 0; i < UPLOAD_FILES; i++) {
+            byte[] file = SyntheticData.pricesXlsx(settings.getUploadRows(), firstPriceListId, settings.getPriceLists(), i);
+            uploadBodies.add(multipartBody(boundary, "importPrices", "prices.xlsx", file));
+        }
+        EndpointLoad pricesUpload = new EndpointLoad("POST /prices/upload", httpClient, random -> HttpRequest
+                .newBuilder(URI.create(baseUrl + "/prices/upload"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .timeout(Duration.ofMinutes(5))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(uploadBodies.get(random.nextInt(UPLOAD_FILES))))
+                .build());
+
+        Map<String, EndpointLoad> endpointLoads = new LinkedHashMap<>();
+        endpointLoads.put("products", products);
+        endpointLoads.put("price_lists", priceLists);
+        endpointLoads.put("price_dynamics", priceDynamics);
+        endpointLoads.put("best_prices", bestPrices);
+        endpointLoads.put("price_statistics", priceStatistics);
+        endpointLoads.put("all_prices", allPrices);
+        endpointLoads.put("basket", basket);
+        endpointLoads.put("prices_upload", pricesUpload);
+        return endpointLoads;
+    }
+
+    private String signUpAndSignIn(String baseUrl) throws IOException, InterruptedException {
+        post(baseUrl + "/auth/signup", Map.of(
+                "name", "Load", "surname", "Test", "address", "Tula", "email", "load-test@example.com",
+                "username", USERNAME, "password", PASSWORD, "roles", Set.of("admin")));
+        String response = post(baseUrl + "/auth/signin", Map.of("username", USERNAME, "password", PASSWORD));
+        return objectMapper.readTree(response).path("token").asText();
+    }
+
+    private String post(String url, Map<String, ?> body) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Error! " + url + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static HttpRequest get(String url, String token) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+    }
+
+    private static byte[] multipartBody(String boundary, String name, String fileName, byte[] content) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: application/vnd.openxmlformats-officedocument.spreadsheetml.sheet\r\n\r\n")
+                .getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private void report(List<EndpointResult> results) throws IOException {
+        StringBuilder table = new StringBuilder(System.lineSeparator()).append(EndpointResult.header());
+        results.forEach(result -> table.append(System.lineSeparator()).append(result));
+        log.warn(table.toString());
+
+        Path report = Path.of(settings.getReport());
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report, StandardCharsets.UTF_8))) {
+            writer.println(EndpointResult.csvHeader());
+            results.forEach(result -> writer.println(result.toCsv()));
+        }
+        log.warn("Load test report is written to " + report.toAbsolutePath());
+    }
+}
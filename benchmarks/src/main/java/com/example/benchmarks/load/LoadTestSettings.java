@@ -0,0 +1,33 @@
+package com.example.benchmarks.load;
+
+import lombok.Getter;
+
+/**
+ * Settings of a load test run, read from system properties, e.g. mvn ... -Dload.concurrency=32.
+ */
+@Getter
+class LoadTestSettings {
+    private final int products = Integer.getInteger("load.products", 100_000);
+    private final int stores = Integer.getInteger("load.stores", 20);
+    private final int storesPerProduct = Integer.getInteger("load.storesPerProduct", 3);
+    private final int pricesPerPriceList = Integer.getInteger("load.pricesPerPriceList", 5);
+    private final int concurrency = Integer.getInteger("load.concurrency", 16);
+    private final int uploadConcurrency = Integer.getInteger("load.uploadConcurrency", 4);
+    private final int uploadRows = Integer.getInteger("load.uploadRows", 500);
+    private final int warmupSeconds = Integer.getInteger("load.warmupSeconds", 10);
+    private final int durationSeconds = Integer.getInteger("load.durationSeconds", 30);
+    private final String endpoints = System.getProperty("load.endpoints", "products,price_lists,price_dynamics,best_prices,price_statistics,basket,prices_upload");
+    private final String report = System.getProperty("load.report", "target/load-test-report.csv");
+
+    int getPriceLists() {
+        return products * storesPerProduct;
+    }
+
+    @Override
+    public String toString() {
+        return "products=" + products + ", stores=" + stores + ", storesPerProduct=" + storesPerProduct
+                + ", pricesPerPriceList=" + pricesPerPriceList + ", concurrency=" + concurrency
+                + ", uploadConcurrency=" + uploadConcurrency + ", uploadRows=" + uploadRows
+                + ", warmupSeconds=" + warmupSeconds + ", durationSeconds=" + durationSeconds;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regions of the hibernate second-level cache, every region is a Caffeine cache with its own size and ttl.
+ * A cached entity without a configured region fails the start. The entity regions are updated by hibernate
+ * when the entity manager writes are committed; a native modifying query has to declare the tables it changes,
+ * otherwise hibernate evicts all regions.
+ */
+@Configuration
+public class SecondLevelCacheConfiguration {
+    public static final String STORE_REGION = "store";
+    public static final String CATEGORY_REGION = "category";
+    public static final String SUBCATEGORY_REGION = "subcategory";
+    public static final String ROLE_REGION = "role";
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+            @Value("${app.storeCacheSize:10000}") long storeCacheSize,
+            @Value("${app.storeCacheTtlSeconds:3600}") long storeCacheTtlSeconds,
+            @Value("${app.categoryCacheSize:1000}") long categoryCacheSize,
+            @Value("${app.categoryCacheTtlSeconds:3600}") long categoryCacheTtlSeconds,
+            @Value("${app.subcategoryCacheSize:10000}") long subcategoryCacheSize,
+            @Value("${app.subcategoryCacheTtlSeconds:3600}") long subcategoryCacheTtlSeconds,
+            @Value("${app.roleCacheSize:10}") long roleCacheSize,
+            @Value("${app.roleCacheTtlSeconds:86400}") long roleCacheTtlSeconds,
+            @Value("${app.queryCacheSize:1000}") long queryCacheSize,
+            @Value("${app.queryCacheTtlSeconds:600}") long queryCacheTtlSeconds) {
+        return properties -> {
+            CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                    .getCacheManager();
+            cacheManager.createCache(STORE_REGION, region(storeCacheSize, storeCacheTtlSeconds));
+            cacheManager.createCache(CATEGORY_REGION, region(categoryCacheSize, categoryCacheTtlSeconds));
+            cacheManager.createCache(SUBCATEGORY_REGION, region(subcategoryCacheSize, subcategoryCacheTtlSeconds));
+            cacheManager.createCache(ROLE_REGION, region(roleCacheSize, roleCacheTtlSeconds));
+            cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                    region(queryCacheSize, queryCacheTtlSeconds));
+            // one entry per table, a cached query result is valid only while the timestamps of its tables are kept
+            cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                    new CaffeineConfiguration<>());
+            // hibernate closes the cache manager with the session factory
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private CaffeineConfiguration<Object, Object> region(long maximumSize, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        return configuration;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.entity;
+
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * Cheapest price list of a product, one row per product that has price lists.
+ * The rows are written by IProductBestPriceRepository.refresh.. queries only.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(name = "product_best_price")
+public class ProductBestPrice implements Serializable {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(name = "price_list_id", nullable = false)
+    private Long priceListId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "store_id", nullable = false)
+    private Store store;
+
+    @Column(nullable = false)
+    private BigDecimal currentPrice;
+}
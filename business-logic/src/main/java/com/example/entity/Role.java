@@ -1,10 +1,13 @@
 package com.example.entity;
 
+import com.example.config.SecondLevelCacheConfiguration;
 import com.example.enums.ERole;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -15,6 +18,8 @@ import java.io.Serializable;
 @AllArgsConstructor
 @Entity
 @Table(name = "roles")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = SecondLevelCacheConfiguration.ROLE_REGION)
 public class Role implements Serializable {
 
     @Id
@@ -1,6 +1,9 @@
 package com.example.entity;
 
+import com.example.config.SecondLevelCacheConfiguration;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.io.Serializable;
@@ -11,6 +14,8 @@ import java.io.Serializable;
 @NoArgsConstructor
 @Entity
 @Table(name = "store")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfiguration.STORE_REGION)
 public class Store implements Serializable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
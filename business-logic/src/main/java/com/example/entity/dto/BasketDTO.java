@@ -0,0 +1,21 @@
+package com.example.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BasketDTO {
+    private List<Long> storesId = new ArrayList<>();
+    private BigDecimal totalPrice;
+    private List<BestPriceDTO> items = new ArrayList<>();
+    private List<Long> unavailableProductsId = new ArrayList<>();
+}
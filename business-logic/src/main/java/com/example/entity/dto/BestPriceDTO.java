@@ -0,0 +1,20 @@
+package com.example.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BestPriceDTO {
+    private Long productId;
+    private Long priceListId;
+    private Long storeId;
+    private String storeName;
+    private BigDecimal currentPrice;
+}
@@ -0,0 +1,26 @@
+package com.example.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceStatisticsDTO {
+    private Long productId;
+    private Long storeId;
+    private LocalDate bucketStart;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private BigDecimal avgPrice;
+    private BigDecimal firstPrice;
+    private BigDecimal lastPrice;
+    private BigDecimal changePercent;
+    private Long pricesCount;
+}
@@ -0,0 +1,8 @@
+package com.example.enums;
+
+public enum ImportJobType {
+    PRODUCTS,
+    PRICE_LISTS,
+    PRICE_LISTS_DIFF,
+    PRICES
+}
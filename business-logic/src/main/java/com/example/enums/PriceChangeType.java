@@ -0,0 +1,9 @@
+package com.example.enums;
+
+public enum PriceChangeType {
+
+    PRICE_CREATED,
+    PRICE_UPDATED,
+    PRICE_DELETED,
+    CURRENT_PRICE_UPDATED
+}
@@ -0,0 +1,23 @@
+package com.example.enums;
+
+public enum StatisticsBucket {
+
+    DAY("p.date"),
+    WEEK("CAST(date_trunc('week', p.date) AS date)"),
+    MONTH("CAST(date_trunc('month', p.date) AS date)"),
+    PERIOD("CAST(NULL AS date)");
+
+
+    private final String startExpression;
+
+    StatisticsBucket(String startExpression) {
+        this.startExpression = startExpression;
+    }
+
+    /**
+     * SQL expression of the first day of the bucket of the price p, weeks start on Monday.
+     */
+    public String getStartExpression() {
+        return startExpression;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.events;
+
+import com.example.enums.PriceChangeType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Application event of a changed price or current price, published by the services and sent as it is
+ * to the subscribers of PriceChangeBus. The date and priceId are null for CURRENT_PRICE_UPDATED.
+ */
+@Getter
+@AllArgsConstructor
+public class PriceChangeEvent {
+    private final PriceChangeType type;
+    private final Long priceId;
+    private final Long priceListId;
+    private final Long productId;
+    private final Long storeId;
+    private final BigDecimal price;
+    private final LocalDate date;
+}
@@ -0,0 +1,118 @@
+package com.example.repository;
+
+import com.example.entity.Price;
+import com.example.entity.PriceList;
+import com.example.entity.Product;
+import com.example.entity.Store;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain JDBC inserts for bulk imports. Ids are taken from the Liquibase sequences in one round trip,
+ * rows are sent in JDBC batches of app.importBatchSize statements.
+ */
+@Repository
+public class BulkInsertRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public BulkInsertRepository(JdbcTemplate jdbcTemplate, @Value("${app.importBatchSize:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public List<Long> nextIds(String sequenceName, int count) {
+        return jdbcTemplate.queryForList("SELECT nextval('example." + sequenceName + "') FROM generate_series(1, ?)",
+                Long.class, count);
+    }
+
+    public void insertProducts(List<Product> products) {
+        jdbcTemplate.batchUpdate("INSERT INTO example.product (id, subcategory_id, name, brand, quantity, unit, manufacturer) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                products, batchSize, (ps, product) -> {
+                    ps.setLong(1, product.getId());
+                    ps.setLong(2, product.getSubcategory().getId());
+                    ps.setString(3, product.getName());
+                    ps.setString(4, product.getBrand());
+                    ps.setObject(5, product.getQuantity());
+                    ps.setString(6, product.getUnit() == null ? null : product.getUnit().name());
+                    ps.setString(7, product.getManufacturer());
+                });
+    }
+
+    public void insertPriceLists(List<PriceList> priceLists) {
+        jdbcTemplate.batchUpdate("INSERT INTO example.store_has_pricelist (id, store_id, product_id, current_price) " +
+                        "VALUES (?, ?, ?, ?)",
+                priceLists, batchSize, (ps, priceList) -> {
+                    ps.setLong(1, priceList.getId());
+                    ps.setLong(2, priceList.getStore().getId());
+                    ps.setLong(3, priceList.getProduct().getId());
+                    ps.setBigDecimal(4, priceList.getCurrentPrice());
+                });
+    }
+
+    /**
+     * Inserts the prices in one statement, a price of a price list and date that already exists gets the new price
+     * and a price that is not changed is skipped. A price list and date must not repeat in the prices.
+     * The returned prices have the product and store ids of their price lists.
+     */
+    public PriceUpsertResult upsertPrices(List<Price> prices) {
+        String sql = "WITH upserted AS (INSERT INTO example.price (price, date, price_list_id) " +
+                "SELECT * FROM unnest(?, ?, ?) " +
+                "ON CONFLICT (price_list_id, date) DO UPDATE SET price = EXCLUDED.price " +
+                "WHERE example.price.price IS DISTINCT FROM EXCLUDED.price " +
+                "RETURNING id, price, date, price_list_id, xmax = 0 AS inserted) " +
+                "SELECT u.id, u.price, u.date, u.price_list_id, u.inserted, pl.product_id, pl.store_id " +
+                "FROM upserted u JOIN example.store_has_pricelist pl ON pl.id = u.price_list_id";
+        PriceUpsertResult result = new PriceUpsertResult();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("numeric", prices.stream().map(Price::getPrice).toArray()));
+            statement.setArray(2, connection.createArrayOf("date", prices.stream()
+                    .map(price -> price.getDate() == null ? null : Date.valueOf(price.getDate())).toArray()));
+            statement.setArray(3, connection.createArrayOf("bigint", prices.stream()
+                    .map(price -> price.getPriceList().getId()).toArray()));
+            return statement;
+        }, (RowCallbackHandler) resultSet -> {
+            Product product = new Product();
+            product.setId(resultSet.getLong(6));
+            Store store = new Store();
+            store.setId(resultSet.getLong(7));
+            PriceList priceList = new PriceList();
+            priceList.setId(resultSet.getLong(4));
+            priceList.setProduct(product);
+            priceList.setStore(store);
+            Price price = new Price();
+            price.setId(resultSet.getLong(1));
+            price.setPrice(resultSet.getBigDecimal(2));
+            price.setDate(resultSet.getDate(3).toLocalDate());
+            price.setPriceList(priceList);
+            if (resultSet.getBoolean(5)) {
+                result.getInserted().add(price);
+            } else {
+                result.getUpdated().add(price);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Prices inserted by upsertPrices and the prices it changed.
+     */
+    @Getter
+    public static class PriceUpsertResult {
+        private final List<Price> inserted = new ArrayList<>();
+        private final List<Price> updated = new ArrayList<>();
+    }
+}
@@ -3,26 +3,99 @@ package com.example.repository;
 import com.example.entity.PriceList;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface IPriceListRepository extends JpaRepository<PriceList, Long> {
 
     @Query("SELECT pl FROM PriceList pl " +
+            "JOIN FETCH pl.store " +
+            "JOIN FETCH pl.product " +
             "WHERE pl.product.id IN :productsId")
     Optional<List<PriceList>> findAllPriceListsByProductsId(@Param("productsId") ArrayList<Long> productsId);
 
     @Query("SELECT pl FROM PriceList pl " +
+            "JOIN FETCH pl.store " +
+            "JOIN FETCH pl.product " +
             "WHERE pl.product.id IN :productsId " +
             "AND pl.store.id IN :storesId")
     Optional<List<PriceList>> findAllPriceListsByProductsIdAndStoresId(@Param("productsId") List<Long> productsId,
                                                                        @Param("storesId") List<Long> storesId);
 
+    /**
+     * Product id, store id, price list id and current price of the price lists of the products, without loading the entities.
+     */
+    @Query("SELECT pl.product.id, pl.store.id, pl.id, pl.currentPrice FROM PriceList pl " +
+            "WHERE pl.product.id IN :productsId")
+    List<Object[]> findPriceMatrixByProductsId(@Param("productsId") Collection<Long> productsId);
+
+    /**
+     * Price list id, store id, store name, product id and current price of all price lists, read by a cursor.
+     * Has to be closed and used in a transaction.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT pl.id, s.id, s.name, pl.product.id, pl.currentPrice FROM PriceList pl " +
+            "JOIN pl.store s " +
+            "ORDER BY pl.id")
+    Stream<Object[]> streamAllWithoutPrices();
+
+    /**
+     * Price list id, store id, store name, product id, current price, then price id, price and date or nulls
+     * for a price list without prices, ordered by price list and price, read by a cursor.
+     * Has to be closed and used in a transaction.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT pl.id, s.id, s.name, pl.product.id, pl.currentPrice, p.id, p.price, p.date FROM PriceList pl " +
+            "JOIN pl.store s " +
+            "LEFT JOIN pl.priceHistoryList p " +
+            "ORDER BY pl.id, p.id")
+    Stream<Object[]> streamAllWithPrices();
+
     @Override
     Optional<PriceList> findById(Long id);
+
+    @Query("SELECT pl.product.id FROM PriceList pl WHERE pl.id = :id")
+    Long findProductIdById(@Param("id") Long id);
+
+    /**
+     * Id, store id, product id, current price and the price of the last date on or before the date of the price lists
+     * of the stores and products, ordered by id. The price is null when the price list has no price until the date.
+     */
+    @Query("SELECT pl.id, pl.store.id, pl.product.id, pl.currentPrice, " +
+            "(SELECT p.price FROM Price p WHERE p.priceList.id = pl.id AND p.date = " +
+            "(SELECT MAX(dated.date) FROM Price dated WHERE dated.priceList.id = pl.id AND dated.date <= :date)) " +
+            "FROM PriceList pl " +
+            "WHERE pl.store.id IN :storesId AND pl.product.id IN :productsId " +
+            "ORDER BY pl.id")
+    List<Object[]> findCurrentPrices(@Param("storesId") Collection<Long> storesId,
+                                     @Param("productsId") Collection<Long> productsId,
+                                     @Param("date") LocalDate date);
+
+    @Query("SELECT pl.id FROM PriceList pl WHERE pl.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Sets the current price of the price lists to their last price, of two prices of the last date the newer one.
+     * Returns id, product id, store id and current price of the price lists whose current price changed.
+     * Run as a query because of RETURNING, so hibernate does not evict the second-level cache regions
+     * as it does after a native update.
+     */
+    @Query(value = "UPDATE example.store_has_pricelist pl SET current_price = last_price.price " +
+            "FROM (SELECT p.price_list_id, TRUNC(p.price, 2) AS price, " +
+            "ROW_NUMBER() OVER (PARTITION BY p.price_list_id ORDER BY p.date DESC, p.id DESC) AS position " +
+            "FROM example.price p WHERE p.price_list_id IN :priceListsId) last_price " +
+            "WHERE last_price.position = 1 AND pl.id = last_price.price_list_id " +
+            "AND pl.current_price IS DISTINCT FROM last_price.price " +
+            "RETURNING pl.id, pl.product_id, pl.store_id, pl.current_price", nativeQuery = true)
+    List<Object[]> updateCurrentPrices(@Param("priceListsId") Collection<Long> priceListsId);
 }
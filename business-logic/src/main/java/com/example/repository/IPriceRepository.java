@@ -1,14 +1,19 @@
 package com.example.repository;
 
 import com.example.entity.Price;
+import com.example.entity.dto.PriceDTO;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface IPriceRepository extends JpaRepository<Price, Long> {
@@ -21,4 +26,36 @@ public interface IPriceRepository extends JpaRepository<Price, Long> {
     Optional<List<Price>> findAllPriceBetweenDateParam(@Param("priseListId") Long priseListId,
                                                        @Param("startDate") LocalDate startDate,
                                                        @Param("endDate") LocalDate endDate);
+
+    /**
+     * All prices as DTOs read by a cursor, the entities are never created. Has to be closed and used in a transaction.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT new com.example.entity.dto.PriceDTO(p.id, p.price, p.date, p.priceList.id) FROM Price p")
+    Stream<PriceDTO> streamAll();
+
+    /**
+     * @param id price that is not counted, null for a new price
+     */
+    @Query("SELECT COUNT(p) > 0 FROM Price p " +
+            "WHERE p.priceList.id = :priceListId AND p.date = :date AND (:id IS NULL OR p.id <> :id)")
+    boolean existsOtherByPriceListIdAndDate(@Param("priceListId") Long priceListId,
+                                            @Param("date") LocalDate date,
+                                            @Param("id") Long id);
+
+    @Query("SELECT p.priceList.id FROM Price p WHERE p.id = :id")
+    Long findPriceListIdById(@Param("id") Long id);
+
+    @Query("SELECT p FROM Price p " +
+            "WHERE p.priceList.id IN :priceListsId " +
+            "ORDER BY p.id")
+    List<Price> findAllPricesByPriceListsId(@Param("priceListsId") Collection<Long> priceListsId);
+
+    @Query("SELECT p FROM Price p " +
+            "WHERE p.priceList.id IN :priceListsId " +
+            "AND p.date BETWEEN :startDate AND :endDate " +
+            "ORDER BY p.date DESC ")
+    List<Price> findAllPricesByPriceListsIdBetweenDateParam(@Param("priceListsId") Collection<Long> priceListsId,
+                                                            @Param("startDate") LocalDate startDate,
+                                                            @Param("endDate") LocalDate endDate);
 }
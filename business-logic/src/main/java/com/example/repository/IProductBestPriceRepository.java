@@ -0,0 +1,61 @@
+package com.example.repository;
+
+import com.example.entity.ProductBestPrice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IProductBestPriceRepository extends JpaRepository<ProductBestPrice, Long> {
+
+    @Query("SELECT bp FROM ProductBestPrice bp " +
+            "JOIN FETCH bp.store " +
+            "WHERE bp.productId IN :productsId")
+    List<ProductBestPrice> findAllByProductsId(@Param("productsId") Collection<Long> productsId);
+
+    /**
+     * Recomputes the rows of the given products from store_has_pricelist, rows that did not change are not rewritten.
+     * Pending changes of the price lists are flushed first, so the query sees them. The query spaces keep the other
+     * second-level cache regions, a native update without them evicts all regions.
+     */
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "example.product_best_price"))
+    @Query(value = "INSERT INTO example.product_best_price (product_id, price_list_id, store_id, current_price) " +
+            "SELECT DISTINCT ON (pl.product_id) pl.product_id, pl.id, pl.store_id, pl.current_price " +
+            "FROM example.store_has_pricelist pl WHERE pl.product_id IN :productsId " +
+            "ORDER BY pl.product_id, pl.current_price, pl.id " +
+            "ON CONFLICT (product_id) DO UPDATE SET price_list_id = EXCLUDED.price_list_id, " +
+            "store_id = EXCLUDED.store_id, current_price = EXCLUDED.current_price " +
+            "WHERE (product_best_price.price_list_id, product_best_price.current_price) " +
+            "IS DISTINCT FROM (EXCLUDED.price_list_id, EXCLUDED.current_price)", nativeQuery = true)
+    int refreshByProductsId(@Param("productsId") Collection<Long> productsId);
+
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "example.product_best_price"))
+    @Query(value = "INSERT INTO example.product_best_price (product_id, price_list_id, store_id, current_price) " +
+            "SELECT DISTINCT ON (pl.product_id) pl.product_id, pl.id, pl.store_id, pl.current_price " +
+            "FROM example.store_has_pricelist pl WHERE pl.product_id IN " +
+            "(SELECT changed.product_id FROM example.store_has_pricelist changed WHERE changed.id IN :priceListsId) " +
+            "ORDER BY pl.product_id, pl.current_price, pl.id " +
+            "ON CONFLICT (product_id) DO UPDATE SET price_list_id = EXCLUDED.price_list_id, " +
+            "store_id = EXCLUDED.store_id, current_price = EXCLUDED.current_price " +
+            "WHERE (product_best_price.price_list_id, product_best_price.current_price) " +
+            "IS DISTINCT FROM (EXCLUDED.price_list_id, EXCLUDED.current_price)", nativeQuery = true)
+    int refreshByPriceListsId(@Param("priceListsId") Collection<Long> priceListsId);
+
+    /**
+     * Removes the rows of the given products that have no price lists left, e.g. after the last one moved to another product.
+     */
+    @Modifying(flushAutomatically = true)
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "example.product_best_price"))
+    @Query(value = "DELETE FROM example.product_best_price bp WHERE bp.product_id IN :productsId " +
+            "AND NOT EXISTS (SELECT 1 FROM example.store_has_pricelist pl WHERE pl.product_id = bp.product_id)", nativeQuery = true)
+    int deleteWithoutPriceListsByProductsId(@Param("productsId") Collection<Long> productsId);
+}
@@ -0,0 +1,15 @@
+package com.example.repository;
+
+import com.example.entity.Product;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Reads the first rows of a product specification query without the count query issued by findAll(Specification, Pageable).
+ */
+public interface IProductLimitRepository {
+
+    List<Product> findAll(Specification<Product> specification, Sort sort, int limit);
+}
@@ -1,51 +1,45 @@
 package com.example.repository;
 
 import com.example.entity.Product;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface IProductRepository extends JpaRepository<Product, Long> {
-
-    @Query(value = "SELECT p FROM Product p " +
-            "WHERE upper(p.name) LIKE CONCAT('%', upper(:keyword), '%') " +
-            "OR upper(p.brand) LIKE CONCAT('%', upper(:keyword), '%') " +
-            "OR upper(p.manufacturer) LIKE CONCAT('%', upper(:keyword), '%')")
-    Optional<List<Product>> findAllProductByKeywordContains(@Param("keyword") String keyword, Sort sort);
-
-
-    @Query(value = "SELECT p FROM Product p " +
-            "INNER JOIN Subcategory sc ON p.subcategory.id = sc.id " +
-            "INNER JOIN Category c ON sc.category.id = c.id " +
-            "WHERE UPPER(c.name) = UPPER(:category)")
-    Optional<List<Product>> findAllProductByCategoryName(@Param("category") String category, Sort sort);
-
-    @Query(value = "SELECT p FROM Product p " +
-            "INNER JOIN Subcategory sc ON p.subcategory.id = sc.id " +
-            "INNER JOIN Category c ON sc.category.id = c.id " +
-            "WHERE UPPER(c.name) = UPPER(:category) " +
-            "AND upper(p.name) LIKE CONCAT('%', upper(:keyword), '%') " +
-            "OR upper(p.brand) LIKE CONCAT('%', upper(:keyword), '%') " +
-            "OR upper(p.manufacturer) LIKE CONCAT('%', upper(:keyword), '%')")
-    Optional<List<Product>> findAllProductByKeywordContainsAndByCategoryName(@Param("category") String category, @Param("keyword") String keyword, Sort sort);
-
-    @Query(value = "SELECT p FROM Product p " +
-            "INNER JOIN Subcategory sc ON p.subcategory.id = sc.id " +
-            "WHERE UPPER(sc.name) = UPPER(:subcategory)")
-    Optional<List<Product>> findAllProductBySubcategoryName(@Param("subcategory") String subcategory, Sort sort);
-
-    @Query(value = "SELECT p FROM Product p " +
-            "INNER JOIN Subcategory sc ON p.subcategory.id = sc.id " +
-            "WHERE UPPER(sc.name) = UPPER(:subcategory) " +
-            "AND upper(p.name) LIKE CONCAT('%', upper(:keyword), '%') " +
-            "OR upper(p.brand) LIKE CONCAT('%', upper(:keyword), '%') " +
-            "OR upper(p.manufacturer) LIKE CONCAT('%', upper(:keyword), '%')")
-    Optional<List<Product>> findAllProductByKeywordContainsAndBySubcategoryName(@Param("subcategory") String subcategory, @Param("keyword") String keyword, Sort sort);
-
+public interface IProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>, IProductLimitRepository {
+
+    @Query(value = "SELECT p.* FROM example.product p " +
+            "WHERE upper(p.name) LIKE '%' || upper(:keyword) || '%' " +
+            "OR upper(p.brand) LIKE '%' || upper(:keyword) || '%' " +
+            "OR upper(p.manufacturer) LIKE '%' || upper(:keyword) || '%' " +
+            "ORDER BY 2 * similarity(upper(p.name), upper(:keyword)) " +
+            "+ similarity(coalesce(upper(p.brand), ''), upper(:keyword)) " +
+            "+ similarity(coalesce(upper(p.manufacturer), ''), upper(:keyword)) DESC, p.name, p.id " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Product> searchProductsByKeyword(@Param("keyword") String keyword, @Param("limit") int limit);
+
+    /**
+     * Id, subcategory id, name, brand, quantity, unit and manufacturer of all products, read by a cursor.
+     * Has to be closed and used in a transaction.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT p.id, p.subcategory.id, p.name, p.brand, p.quantity, p.unit, p.manufacturer FROM Product p ORDER BY p.id")
+    Stream<Object[]> streamAllWithoutPriceLists();
+
+    /**
+     * Product id and price list id of every price list of the given products, the price lists are not loaded.
+     */
+    @Query("SELECT pl.product.id, pl.id FROM PriceList pl WHERE pl.product.id IN :productsId ORDER BY pl.id")
+    List<Object[]> findPriceListsIdByProductsId(@Param("productsId") Collection<Long> productsId);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -3,14 +3,17 @@ package com.example.repository;
 import com.example.entity.Role;
 import com.example.enums.ERole;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.Optional;
 
 
 @Repository
 public interface IRoleRepository extends JpaRepository<Role, Long> {
 
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<Role> findByName(ERole name);
 
 }
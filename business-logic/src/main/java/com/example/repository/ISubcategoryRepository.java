@@ -1,10 +1,31 @@
 package com.example.repository;
 
 import com.example.entity.Subcategory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ISubcategoryRepository extends JpaRepository<Subcategory, Long> {
 
+    @EntityGraph(attributePaths = "category")
+    List<Subcategory> findAll(Sort sort);
+
+    @EntityGraph(attributePaths = "category")
+    List<Subcategory> findAllByCategoryIdIn(Collection<Long> categoriesId, Sort sort);
+
+    /**
+     * Subcategory id and product id of every product of the given subcategories, the products are not loaded.
+     */
+    @Query("SELECT p.subcategory.id, p.id FROM Product p WHERE p.subcategory.id IN :subcategoriesId ORDER BY p.id")
+    List<Object[]> findProductsIdBySubcategoriesId(@Param("subcategoriesId") Collection<Long> subcategoriesId);
+
+    @Query("SELECT s.id FROM Subcategory s WHERE s.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
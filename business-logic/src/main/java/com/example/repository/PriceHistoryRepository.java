@@ -0,0 +1,61 @@
+package com.example.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+
+/**
+ * Plain JDBC reads of the price history for PriceHistoryStore. The date and the price come from the database
+ * as epoch day and as the unscaled value and scale of the stored number, so no LocalDate or BigDecimal is created
+ * per row and the price keeps every digit the database has. The rows are streamed
+ * in the order of price list, date and id with a cursor of FETCH_SIZE rows, which needs a transaction.
+ */
+@Repository
+public class PriceHistoryRepository {
+    private static final int FETCH_SIZE = 10_000;
+    private static final String SELECT_PRICES = "SELECT price_list_id, id, date - DATE '1970-01-01', " +
+            "(price * POWER(10::numeric, SCALE(price)))::bigint, SCALE(price) " +
+            "FROM example.price ";
+    private static final String ORDER_BY = "ORDER BY price_list_id, date, id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public PriceHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @FunctionalInterface
+    public interface PriceRowHandler {
+        void handle(long priceListId, long id, int epochDay, long unscaledPrice, int scale);
+    }
+
+    @Transactional(readOnly = true)
+    public void forEachPrice(PriceRowHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_PRICES + ORDER_BY);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rowCallbackHandler(handler));
+    }
+
+    @Transactional(readOnly = true)
+    public void forEachPriceOfPriceLists(Collection<Long> priceListsId, PriceRowHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_PRICES + "WHERE price_list_id = ANY(?) " + ORDER_BY);
+            statement.setArray(1, connection.createArrayOf("bigint", priceListsId.toArray()));
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rowCallbackHandler(handler));
+    }
+
+    private static RowCallbackHandler rowCallbackHandler(PriceRowHandler handler) {
+        return resultSet -> handler.handle(resultSet.getLong(1), resultSet.getLong(2), resultSet.getInt(3), resultSet.getLong(4),
+                resultSet.getInt(5));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.repository;
+
+import com.example.entity.dto.PriceStatisticsDTO;
+import com.example.enums.StatisticsBucket;
+import com.example.enums.StatisticsGrouping;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Price statistics aggregated by the database, only one row per product or store and bucket is sent back.
+ * The inner query takes the first and the last price of every bucket with window functions over the same partition,
+ * the outer one groups the prices of the bucket. The SQL is built only from the enum values, never from the request.
+ */
+@Repository
+public class PriceStatisticsRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public PriceStatisticsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param storesId stores of the price lists, all stores when empty
+     */
+    public List<PriceStatisticsDTO> findStatistics(Collection<Long> productsId, Collection<Long> storesId, LocalDate startDate,
+                                                   LocalDate endDate, StatisticsBucket bucket, StatisticsGrouping grouping) {
+        String storeColumn = grouping == StatisticsGrouping.STORE ? "pl.store_id" : "CAST(NULL AS bigint)";
+        String partition = grouping == StatisticsGrouping.STORE ? "pl.product_id, pl.store_id, " : "pl.product_id, ";
+        String sql = "SELECT product_id, store_id, bucket_start, MIN(price), MAX(price), ROUND(AVG(price), 2), " +
+                "MIN(first_price), MIN(last_price), ROUND((MIN(last_price) - MIN(first_price)) * 100 / NULLIF(MIN(first_price), 0), 2), COUNT(*) " +
+                "FROM (SELECT pl.product_id, " + storeColumn + " AS store_id, " + bucket.getStartExpression() + " AS bucket_start, p.price, " +
+                "FIRST_VALUE(p.price) OVER (w ORDER BY p.date, p.id) AS first_price, " +
+                "FIRST_VALUE(p.price) OVER (w ORDER BY p.date DESC, p.id DESC) AS last_price " +
+                "FROM example.price p JOIN example.store_has_pricelist pl ON pl.id = p.price_list_id " +
+                "WHERE pl.product_id = ANY(?) " + (storesId.isEmpty() ? "" : "AND pl.store_id = ANY(?) ") +
+                "AND p.date BETWEEN ? AND ? " +
+                "WINDOW w AS (PARTITION BY " + partition + bucket.getStartExpression() + ")) prices " +
+                "GROUP BY product_id, store_id, bucket_start " +
+                "ORDER BY product_id, store_id, bucket_start";
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            int index = 1;
+            statement.setArray(index++, connection.createArrayOf("bigint", productsId.toArray()));
+            if (!storesId.isEmpty()) {
+                statement.setArray(index++, connection.createArrayOf("bigint", storesId.toArray()));
+            }
+            statement.setDate(index++, Date.valueOf(startDate));
+            statement.setDate(index, Date.valueOf(endDate));
+            return statement;
+        }, (resultSet, rowNum) -> {
+            Date bucketStart = resultSet.getDate(3);
+            return new PriceStatisticsDTO(resultSet.getLong(1), resultSet.getObject(2, Long.class),
+                    bucketStart == null ? startDate : bucketStart.toLocalDate(),
+                    resultSet.getBigDecimal(4), resultSet.getBigDecimal(5), resultSet.getBigDecimal(6),
+                    resultSet.getBigDecimal(7), resultSet.getBigDecimal(8), resultSet.getBigDecimal(9), resultSet.getLong(10));
+        });
+    }
+}
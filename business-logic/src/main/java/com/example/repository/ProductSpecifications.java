@@ -0,0 +1,66 @@
+package com.example.repository;
+
+import com.example.entity.Category;
+import com.example.entity.Product;
+import com.example.entity.Subcategory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Path;
+import java.util.Locale;
+
+/**
+ * Filters of the product search, combined with Specification.where(..).and(..).
+ * Each filter is a single grouped predicate, so the keyword OR never leaks out of the category or subcategory condition.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> hasCategoryName(String categoryName) {
+        return (root, query, cb) -> {
+            Join<Product, Subcategory> subcategory = root.join("subcategory");
+            Join<Subcategory, Category> category = subcategory.join("category");
+            return cb.equal(cb.upper(category.get("name")), categoryName.toUpperCase(Locale.ROOT));
+        };
+    }
+
+    public static Specification<Product> hasSubcategoryName(String subcategoryName) {
+        return (root, query, cb) -> {
+            Join<Product, Subcategory> subcategory = root.join("subcategory");
+            return cb.equal(cb.upper(subcategory.get("name")), subcategoryName.toUpperCase(Locale.ROOT));
+        };
+    }
+
+    /**
+     * Matches the keyword in name, brand or manufacturer, the upper(column) expressions are covered by trigram indexes.
+     */
+    public static Specification<Product> containsKeyword(String keyword) {
+        return (root, query, cb) -> {
+            String pattern = "%" + keyword.toUpperCase(Locale.ROOT) + "%";
+            return cb.or(
+                    cb.like(cb.upper(root.get("name")), pattern),
+                    cb.like(cb.upper(root.get("brand")), pattern),
+                    cb.like(cb.upper(root.get("manufacturer")), pattern));
+        };
+    }
+
+    /**
+     * Keyset condition for the page after the product with the given name and id, in the order of Sort (name, id).
+     * name >= :name keeps the scan of the (name, id) index starting at the cursor instead of the first row.
+     */
+    public static Specification<Product> isAfter(String name, Long id, Sort.Direction direction) {
+        return (root, query, cb) -> {
+            Path<String> namePath = root.get("name");
+            Path<Long> idPath = root.get("id");
+            if (direction.isAscending()) {
+                return cb.and(cb.greaterThanOrEqualTo(namePath, name),
+                        cb.or(cb.greaterThan(namePath, name), cb.greaterThan(idPath, id)));
+            }
+            return cb.and(cb.lessThanOrEqualTo(namePath, name),
+                    cb.or(cb.lessThan(namePath, name), cb.lessThan(idPath, id)));
+        };
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Current prices of the products of a basket in the stores that sell them, kept in primitive arrays.
+ * The price of a product in a store is prices[store * productCount + product] in cents. A product the store
+ * does not sell costs missingPrice, which is higher than the total of the whole basket,
+ * so a set of stores that sells more of the basket always wins over a cheaper one.
+ */
+public final class BasketPriceMatrix {
+    // cells visited by the enumeration of all sets of stores, above it the sets are found by a local search
+    static final long EXACT_SEARCH_LIMIT = 20_000_000L;
+    private static final int MAX_LOCAL_SEARCH_ROUNDS = 100;
+
+    private final long[] productIds;
+    private final long[] storeIds;
+    private final long[] priceListIds;
+    private final long[] prices;
+    private final long missingPrice;
+
+    private BasketPriceMatrix(long[] productIds, long[] storeIds, long[] priceListIds, long[] prices, long missingPrice) {
+        this.productIds = productIds;
+        this.storeIds = storeIds;
+        this.priceListIds = priceListIds;
+        this.prices = prices;
+        this.missingPrice = missingPrice;
+    }
+
+    /**
+     * @param productsId distinct ids of the basket products
+     * @param rows       product id, store id, price list id and current price of the price lists of the products
+     */
+    public static BasketPriceMatrix of(List<Long> productsId, List<Object[]> rows) {
+        Map<Long, Integer> productIndexes = new HashMap<>();
+        long[] productIds = new long[productsId.size()];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = productsId.get(i);
+            productIndexes.put(productIds[i], i);
+        }
+        Map<Long, Integer> storeIndexes = new HashMap<>();
+        for (Object[] row : rows) {
+            storeIndexes.putIfAbsent((Long) row[1], storeIndexes.size());
+        }
+        long[] storeIds = new long[storeIndexes.size()];
+        storeIndexes.forEach((storeId, index) -> storeIds[index] = storeId);
+
+        int productCount = productIds.length;
+        long[] prices = new long[storeIds.length * productCount];
+        long[] priceListIds = new long[prices.length];
+        Arrays.fill(prices, -1L);
+        for (Object[] row : rows) {
+            Integer product = productIndexes.get((Long) row[0]);
+            if (product == null) {
+                continue;
+            }
+            int cell = storeIndexes.get((Long) row[1]) * productCount + product;
+            long price = ((BigDecimal) row[3]).setScale(2, RoundingMode.DOWN).unscaledValue().longValueExact();
+            // a store with two price lists of the product sells it at the lower price
+            if (prices[cell] < 0 || price < prices[cell]) {
+                prices[cell] = price;
+                priceListIds[cell] = (Long) row[2];
+            }
+        }
+
+        long missingPrice = 1;
+        for (int product = 0; product < productCount; product++) {
+            long maxPrice = 0;
+            for (int cell = product; cell < prices.length; cell += productCount) {
+                maxPrice = Math.max(maxPrice, prices[cell]);
+            }
+            missingPrice = Math.addExact(missingPrice, maxPrice);
+        }
+        for (int cell = 0; cell < prices.length; cell++) {
+            if (prices[cell] < 0) {
+                prices[cell] = missingPrice;
+            }
+        }
+        return new BasketPriceMatrix(productIds, storeIds, priceListIds, prices, missingPrice);
+    }
+
+    public int getProductCount() {
+        return productIds.length;
+    }
+
+    public int getStoreCount() {
+        return storeIds.length;
+    }
+
+    public long getProductId(int product) {
+        return productIds[product];
+    }
+
+    public long getStoreId(int store) {
+        return storeIds[store];
+    }
+
+    public long getPriceListId(int store, int product) {
+        return priceListIds[store * productIds.length + product];
+    }
+
+    public long getPrice(int store, int product) {
+        return prices[store * productIds.length + product];
+    }
+
+    /**
+     * Store of the set that sells the product at the lowest price, -1 when no store of the set sells it.
+     */
+    public int cheapestStore(int[] stores, int product) {
+        int cheapestStore = -1;
+        long cheapestPrice = missingPrice;
+        for (int store : stores) {
+            long price = getPrice(store, product);
+            if (price < cheapestPrice) {
+                cheapestPrice = price;
+                cheapestStore = store;
+            }
+        }
+        return cheapestStore;
+    }
+
+    /**
+     * Set of at most maxStores stores with the lowest basket total, every product bought in the cheapest store of the set.
+     * Sets that sell more products of the basket come first, of equal totals the smaller set is returned.
+     * All sets are compared while their count stays under EXACT_SEARCH_LIMIT, e.g. up to two of 500 stores
+     * for 100 products, larger searches start from the greedy set and swap stores while the total goes down.
+     */
+    public int[] cheapestStores(int maxStores) {
+        int setSize = Math.min(maxStores, storeIds.length);
+        if (setSize <= 0) {
+            return new int[0];
+        }
+        return isExactSearchAffordable(setSize) ? exactSearch(setSize) : localSearch(setSize);
+    }
+
+    private boolean isExactSearchAffordable(int setSize) {
+        long sets = 0;
+        long combinations = 1;
+        for (int size = 1; size <= setSize; size++) {
+            combinations = combinations * (storeIds.length - size + 1) / size;
+            sets += combinations;
+            if (sets * productIds.length > EXACT_SEARCH_LIMIT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Depth-first enumeration of the sets in the order of the single store totals. A branch is cut when even the cheapest
+     * prices of all the stores after it cannot bring the total under the best one found, or to it with fewer stores.
+     */
+    private int[] exactSearch(int setSize) {
+        int productCount = productIds.length;
+        int storeCount = storeIds.length;
+        int[] order = storesByTotal();
+        long[] suffixMinPrices = new long[(storeCount + 1) * productCount];
+        Arrays.fill(suffixMinPrices, storeCount * productCount, suffixMinPrices.length, missingPrice);
+        for (int position = storeCount - 1; position >= 0; position--) {
+            int offset = order[position] * productCount;
+            for (int product = 0; product < productCount; product++) {
+                suffixMinPrices[position * productCount + product] = Math.min(prices[offset + product],
+                        suffixMinPrices[(position + 1) * productCount + product]);
+            }
+        }
+
+        long[][] minPrices = new long[setSize + 1][productCount];
+        Arrays.fill(minPrices[0], missingPrice);
+        ExactSearch search = new ExactSearch(order, suffixMinPrices, minPrices, setSize);
+        search.visit(0, 0);
+        return search.best;
+    }
+
+    private final class ExactSearch {
+        private final int[] order;
+        private final long[] suffixMinPrices;
+        private final long[][] minPrices;
+        private final int[] current;
+        private int[] best = new int[0];
+        private long bestTotal = Long.MAX_VALUE;
+
+        private ExactSearch(int[] order, long[] suffixMinPrices, long[][] minPrices, int setSize) {
+            this.order = order;
+            this.suffixMinPrices = suffixMinPrices;
+            this.minPrices = minPrices;
+            this.current = new int[setSize];
+        }
+
+        private void visit(int depth, int firstPosition) {
+            if (depth + 1 == current.length) {
+                visitLast(depth, firstPosition);
+                return;
+            }
+            int productCount = productIds.length;
+            long[] previous = minPrices[depth];
+            long[] next = minPrices[depth + 1];
+            for (int position = firstPosition; position < order.length; position++) {
+                int offset = order[position] * productCount;
+                long total = 0;
+                long bound = 0;
+                int suffixOffset = (position + 1) * productCount;
+                for (int product = 0; product < productCount; product++) {
+                    long price = Math.min(previous[product], prices[offset + product]);
+                    next[product] = price;
+                    total += price;
+                    bound += Math.min(price, suffixMinPrices[suffixOffset + product]);
+                }
+                current[depth] = order[position];
+                if (isBetter(total, depth + 1)) {
+                    bestTotal = total;
+                    best = Arrays.copyOf(current, depth + 1);
+                }
+                if (isBetter(bound, depth + 2)) {
+                    visit(depth + 1, position + 1);
+                }
+            }
+        }
+
+        /**
+         * Last store of the set, only the total is needed, most of the sets are visited here.
+         */
+        private void visitLast(int depth, int firstPosition) {
+            int productCount = productIds.length;
+            long[] previous = minPrices[depth];
+            for (int position = firstPosition; position < order.length; position++) {
+                int offset = order[position] * productCount;
+                long total = 0;
+                for (int product = 0; product < productCount; product++) {
+                    total += Math.min(previous[product], prices[offset + product]);
+                }
+                if (isBetter(total, depth + 1)) {
+                    bestTotal = total;
+                    current[depth] = order[position];
+                    best = Arrays.copyOf(current, depth + 1);
+                }
+            }
+        }
+
+        /**
+         * A set of the given size and total replaces the best one when it is cheaper, or as cheap and smaller.
+         */
+        private boolean isBetter(long total, int size) {
+            return total < bestTotal || total == bestTotal && size < best.length;
+        }
+    }
+
+    /**
+     * Greedy set, each step adds the store that lowers the total the most, improved by swapping
+     * a store of the set for another one while that lowers the total.
+     */
+    private int[] localSearch(int setSize) {
+        int productCount = productIds.length;
+        long[] minPrices = new long[productCount];
+        Arrays.fill(minPrices, missingPrice);
+        long total = missingPrice * productCount;
+        int[] stores = new int[setSize];
+        int size = 0;
+        while (size < setSize) {
+            int bestStore = -1;
+            long bestTotal = total;
+            for (int store = 0; store < storeIds.length; store++) {
+                long storeTotal = 0;
+                int offset = store * productCount;
+                for (int product = 0; product < productCount; product++) {
+                    storeTotal += Math.min(minPrices[product], prices[offset + product]);
+                }
+                if (storeTotal < bestTotal) {
+                    bestTotal = storeTotal;
+                    bestStore = store;
+                }
+            }
+            if (bestStore < 0) {
+                break;
+            }
+            int offset = bestStore * productCount;
+            for (int product = 0; product < productCount; product++) {
+                minPrices[product] = Math.min(minPrices[product], prices[offset + product]);
+            }
+            stores[size++] = bestStore;
+            total = bestTotal;
+        }
+        stores = Arrays.copyOf(stores, size);
+
+        boolean[] inSet = new boolean[storeIds.length];
+        for (int store : stores) {
+            inSet[store] = true;
+        }
+        boolean improved = true;
+        for (int round = 0; improved && round < MAX_LOCAL_SEARCH_ROUNDS; round++) {
+            improved = false;
+            for (int i = 0; i < stores.length; i++) {
+                int replaced = stores[i];
+                for (int store = 0; store < storeIds.length; store++) {
+                    if (inSet[store]) {
+                        continue;
+                    }
+                    stores[i] = store;
+                    long swappedTotal = total(stores);
+                    if (swappedTotal < total) {
+                        total = swappedTotal;
+                        inSet[replaced] = false;
+                        inSet[store] = true;
+                        replaced = store;
+                        improved = true;
+                    }
+                }
+                stores[i] = replaced;
+            }
+        }
+        return stores;
+    }
+
+    private long total(int[] stores) {
+        long total = 0;
+        for (int product = 0; product < productIds.length; product++) {
+            long minPrice = missingPrice;
+            for (int store : stores) {
+                minPrice = Math.min(minPrice, getPrice(store, product));
+            }
+            total += minPrice;
+        }
+        return total;
+    }
+
+    private int[] storesByTotal() {
+        long[] totals = new long[storeIds.length];
+        for (int store = 0; store < storeIds.length; store++) {
+            int offset = store * productIds.length;
+            for (int product = 0; product < productIds.length; product++) {
+                totals[store] += prices[offset + product];
+            }
+        }
+        return IntStream.range(0, storeIds.length)
+                .boxed()
+                .sorted(Comparator.comparingLong(store -> totals[store]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
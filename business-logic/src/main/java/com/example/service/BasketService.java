@@ -0,0 +1,89 @@
+package com.example.service;
+
+import com.example.entity.Store;
+import com.example.entity.dto.BasketDTO;
+import com.example.entity.dto.BestPriceDTO;
+import com.example.repository.IPriceListRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cheapest store, or cheapest split over a few stores, for a basket of products.
+ * The current prices of all the price lists of the basket are loaded by one query into a BasketPriceMatrix,
+ * the sets of stores are compared in memory.
+ */
+@Slf4j
+@Service
+public class BasketService {
+    private static final int MAX_BASKET_SIZE = 200;
+    private static final int MAX_STORES = 5;
+
+    private final IPriceListRepository priceListRepository;
+    private final StoreService storeService;
+
+    @Autowired
+    public BasketService(IPriceListRepository priceListRepository, StoreService storeService) {
+        this.priceListRepository = priceListRepository;
+        this.storeService = storeService;
+    }
+
+    @Transactional
+    public BasketDTO findCheapestStores(List<Long> productsId, int maxStores) {
+        log.info("Method findCheapestStores begin");
+        if (productsId == null || productsId.isEmpty() || productsId.size() > MAX_BASKET_SIZE) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Basket should contain between 1 and " + MAX_BASKET_SIZE + " products");
+            log.error(exception.getMessage());
+            throw  exception;
+        } else if (maxStores < 1 || maxStores > MAX_STORES) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Number of stores should be between 1 and " + MAX_STORES);
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+        List<Long> basket = new ArrayList<>(new LinkedHashSet<>(productsId));
+        BasketPriceMatrix matrix = BasketPriceMatrix.of(basket, priceListRepository.findPriceMatrixByProductsId(basket));
+
+        long start = System.nanoTime();
+        int[] stores = matrix.cheapestStores(maxStores);
+        log.info("Basket of " + basket.size() + " products is split over " + stores.length + " of " + matrix.getStoreCount()
+                + " stores in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return convertToDTO(matrix, stores);
+    }
+
+    private BasketDTO convertToDTO(BasketPriceMatrix matrix, int[] stores) {
+        Map<Long, Store> storesById = storeService.findAllById(Arrays.stream(stores)
+                        .mapToObj(matrix::getStoreId)
+                        .collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(Store::getId, Function.identity()));
+
+        BasketDTO basketDTO = new BasketDTO();
+        BigDecimal totalPrice = BigDecimal.ZERO.setScale(2);
+        for (int product = 0; product < matrix.getProductCount(); product++) {
+            int store = matrix.cheapestStore(stores, product);
+            if (store < 0) {
+                basketDTO.getUnavailableProductsId().add(matrix.getProductId(product));
+                continue;
+            }
+            BigDecimal price = BigDecimal.valueOf(matrix.getPrice(store, product), 2);
+            Store storeEntity = storesById.get(matrix.getStoreId(store));
+            basketDTO.getItems().add(new BestPriceDTO(matrix.getProductId(product), matrix.getPriceListId(store, product),
+                    storeEntity.getId(), storeEntity.getName(), price));
+            totalPrice = totalPrice.add(price);
+        }
+        for (int store : stores) {
+            basketDTO.getStoresId().add(matrix.getStoreId(store));
+        }
+        basketDTO.setTotalPrice(totalPrice);
+        return basketDTO;
+    }
+}
@@ -15,32 +15,42 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class CategoryService implements EntityService<Category, CategoryDTO> {
 
     private final ICategoryRepository categoryRepository;
+    private final CategoryTreeCache categoryTreeCache;
     @Getter
     @Setter
     private SubcategoryService subcategoryService;
 
     @Autowired
-    public CategoryService(ICategoryRepository categoryRepository) {
+    public CategoryService(ICategoryRepository categoryRepository, CategoryTreeCache categoryTreeCache) {
         this.categoryRepository = categoryRepository;
+        this.categoryTreeCache = categoryTreeCache;
     }
 
     @Override
     public CategoryDTO convertToDTO(Category category) {
         log.info("Method convertToDTO begin");
-        CategoryDTO categoryDTO = new CategoryDTO();
-        categoryDTO.setId(category.getId());
-        categoryDTO.setName(category.getName());
         List<SubcategoryDTO> subcategoryDTOS = new ArrayList<>();
         for (Subcategory subcategory : category.getSubcategoryList()){
             subcategoryDTOS.add(subcategoryService.convertToDTO(subcategory));
         }
+        return convertToDTO(category, subcategoryDTOS);
+    }
+
+    private CategoryDTO convertToDTO(Category category, List<SubcategoryDTO> subcategoryDTOS) {
+        CategoryDTO categoryDTO = new CategoryDTO();
+        categoryDTO.setId(category.getId());
+        categoryDTO.setName(category.getName());
         categoryDTO.setSubcategoryList(subcategoryDTOS);
         return categoryDTO;
     }
@@ -65,12 +75,19 @@ public class CategoryService implements EntityService<Category, CategoryDTO> {
         return category;
     }
 
+    /**
+     * The subcategories of all categories are read at once, not through the subcategory list of every category.
+     */
     @Override
     public List<CategoryDTO> listConverterToDTO(List<Category> categories) {
         log.info("Method listConverterToDTO begin");
+        Set<Long> categoriesId = categories.stream()
+                .map(Category::getId)
+                .collect(Collectors.toSet());
+        Map<Long, List<SubcategoryDTO>> subcategoryDTOS = subcategoryService.findAllDTOByCategoriesId(categoriesId);
         List<CategoryDTO> categoryDTOS = new ArrayList<>();
         for (Category category : categories) {
-            categoryDTOS.add(convertToDTO(category));
+            categoryDTOS.add(convertToDTO(category, subcategoryDTOS.getOrDefault(category.getId(), new ArrayList<>())));
         }
         return categoryDTOS;
     }
@@ -81,6 +98,7 @@ public class CategoryService implements EntityService<Category, CategoryDTO> {
         log.info("Method create begin");
         if (categoryDTO.getId() == null || categoryDTO.getId() != 0L) {
             Category category = categoryRepository.save(convertFromDTO(categoryDTO));
+            categoryTreeCache.invalidate();
             log.info("Category " + category.getId() + " is created");
             return convertToDTO(category);
         } else {
@@ -99,6 +117,16 @@ public class CategoryService implements EntityService<Category, CategoryDTO> {
         return categoryList;
     }
 
+    /**
+     * Category tree of the api, built from findAll() on a cache miss.
+     */
+    @Transactional
+    public List<CategoryDTO> findAllDTO() {
+        log.info("Method findAllDTO begin");
+        return categoryTreeCache.get(CategoryTreeCache.CATEGORIES_KEY,
+                () -> Collections.unmodifiableList(listConverterToDTO(findAll())));
+    }
+
     @Transactional
     @Override
     public Category findById(Long id) {
@@ -116,6 +144,7 @@ public class CategoryService implements EntityService<Category, CategoryDTO> {
         log.info("Method update begin");
         idValidation(categoryDTO.getId());
         Category category = categoryRepository.save(convertFromDTO(categoryDTO));
+        categoryTreeCache.invalidate();
         log.info("Category " + category.getId() + " is updated");
         return convertToDTO(category);
     }
@@ -126,6 +155,7 @@ public class CategoryService implements EntityService<Category, CategoryDTO> {
         log.info("Method deleteById begin");
         idValidation(id);
         categoryRepository.deleteById(id);
+        categoryTreeCache.invalidate();
         log.info("Category" + id + " is deleted");
     }
 
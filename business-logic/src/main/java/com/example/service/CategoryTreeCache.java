@@ -0,0 +1,74 @@
+package com.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Read-through cache of the category and subcategory lists returned by the api.
+ * Size, ttl and hit/miss statistics are configured by spring.cache.caffeine.spec,
+ * services that change categories, subcategories or products call invalidate().
+ */
+@Slf4j
+@Service
+public class CategoryTreeCache {
+    public static final String CACHE_NAME = "categoryTree";
+    public static final String CATEGORIES_KEY = "categories";
+    public static final String SUBCATEGORIES_KEY = "subcategories";
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public CategoryTreeCache(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public <T> T get(String key, Callable<T> valueLoader) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            return load(valueLoader);
+        }
+        return cache.get(key, valueLoader);
+    }
+
+    /**
+     * Inside a transaction the cache is cleared after commit,
+     * otherwise a read between the clear and the commit would cache the old tree again.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear();
+                }
+            });
+        } else {
+            clear();
+        }
+    }
+
+    private void clear() {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            cache.clear();
+            log.info("Cache " + CACHE_NAME + " is cleared");
+        }
+    }
+
+    private <T> T load(Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
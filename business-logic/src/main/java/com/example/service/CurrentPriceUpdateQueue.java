@@ -0,0 +1,55 @@
+package com.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the ids of price lists whose prices were changed one by one and recomputes their current price
+ * in the background, repeated changes of the same price list between two runs cost one recompute.
+ */
+@Slf4j
+@Service
+public class CurrentPriceUpdateQueue {
+    private final PriceListService priceListService;
+    private final Set<Long> pendingPriceListsId = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public CurrentPriceUpdateQueue(PriceListService priceListService) {
+        this.priceListService = priceListService;
+    }
+
+    public void enqueue(Long priceListId) {
+        if (priceListId != null) {
+            pendingPriceListsId.add(priceListId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.currentPriceUpdateDelayMs:500}")
+    public void updatePendingCurrentPrices() {
+        if (pendingPriceListsId.isEmpty()) {
+            return;
+        }
+        // an id enqueued again after this point belongs to a change committed before the update runs
+        List<Long> priceListsId = new ArrayList<>(pendingPriceListsId);
+        pendingPriceListsId.removeAll(priceListsId);
+        try {
+            priceListService.updateCurrentPrices(priceListsId);
+        } catch (RuntimeException ex) {
+            pendingPriceListsId.addAll(priceListsId);
+            log.error("Current price update failed for priceLists " + priceListsId + ": " + ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        updatePendingCurrentPrices();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.service;
+
+import com.example.events.PriceChangeEvent;
+import com.example.exceptions.ServiceUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process fan-out of committed price changes to the subscribers of the price change stream.
+ * Every subscriber has a queue of at most app.priceChangeQueueCapacity events, the publishing thread only offers
+ * to the queues and never waits for a client. The queues are sent by a small pool of sender threads, one subscriber
+ * at a time, so a slow client holds back only its own events. When the queue of a slow client is full the oldest
+ * event is dropped and the number of dropped events is sent with the next batch, the client then reads
+ * the price lists again instead of trusting the events it got.
+ * Changes made by other instances of the application are not seen.
+ */
+@Slf4j
+@Service
+public class PriceChangeBus {
+    private static final int MAX_BATCH_SIZE = 100;
+
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final ExecutorService sender;
+    private final Set<Subscription> subscriptions = new CopyOnWriteArraySet<>();
+
+    @Autowired
+    public PriceChangeBus(@Value("${app.priceChangeQueueCapacity:1000}") int queueCapacity,
+                          @Value("${app.priceChangeMaxSubscribers:1000}") int maxSubscribers,
+                          @Value("${app.priceChangeSenderThreads:4}") int senderThreads) {
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "price-change-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @FunctionalInterface
+    public interface PriceChangeSink {
+        /**
+         * Sends the events of the subscriber, an empty batch without dropped events is a heartbeat.
+         * An exception closes the subscription.
+         */
+        void send(List<PriceChangeEvent> events, long droppedEvents) throws Exception;
+    }
+
+    /**
+     * @param productsId products of the events, all products when empty
+     * @param storesId   stores of the events, all stores when empty
+     */
+    public Subscription subscribe(Collection<Long> productsId, Collection<Long> storesId, PriceChangeSink sink) {
+        log.info("Method subscribe begin");
+        if (subscriptions.size() >= maxSubscribers) {
+            ServiceUnavailableException exception = new ServiceUnavailableException("Error! Price change stream has reached the limit of " + maxSubscribers + " subscribers");
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+        Subscription subscription = new Subscription(Set.copyOf(productsId), Set.copyOf(storesId), sink, queueCapacity);
+        subscriptions.add(subscription);
+        log.info("Price change subscriber is added, " + subscriptions.size() + " subscribers");
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            log.info("Price change subscriber is removed, " + subscriptions.size() + " subscribers");
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Runs after the commit of the transaction that published the event, or at once outside of a transaction,
+     * so the subscribers never see a change that is rolled back.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceChange(PriceChangeEvent event) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.accepts(event)) {
+                subscription.offer(event);
+                scheduleSend(subscription);
+            }
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies and finds the clients that are gone.
+     */
+    @Scheduled(fixedDelayString = "${app.priceChangeHeartbeatMs:30000}")
+    public void heartbeat() {
+        for (Subscription subscription : subscriptions) {
+            subscription.heartbeatDue = true;
+            scheduleSend(subscription);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        sender.shutdownNow();
+    }
+
+    private void scheduleSend(Subscription subscription) {
+        if (subscription.sending.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> send(subscription));
+            } catch (RejectedExecutionException ex) {
+                subscription.sending.set(false);
+            }
+        }
+    }
+
+    private void send(Subscription subscription) {
+        try {
+            List<PriceChangeEvent> events = new ArrayList<>(MAX_BATCH_SIZE);
+            do {
+                events.clear();
+                subscription.queue.drainTo(events, MAX_BATCH_SIZE);
+                long droppedEvents = subscription.droppedEvents.getAndSet(0);
+                boolean heartbeat = subscription.heartbeatDue;
+                subscription.heartbeatDue = false;
+                if (!events.isEmpty() || droppedEvents > 0 || heartbeat) {
+                    subscription.sink.send(events, droppedEvents);
+                }
+            } while (!subscription.queue.isEmpty());
+        } catch (Exception ex) {
+            log.info("Price change subscriber is closed: " + ex.getMessage());
+            unsubscribe(subscription);
+            return;
+        } finally {
+            subscription.sending.set(false);
+        }
+        // an event offered after the last drain and before the flag was cleared is sent by a new task
+        if (!subscription.queue.isEmpty() && subscriptions.contains(subscription)) {
+            scheduleSend(subscription);
+        }
+    }
+
+    public static final class Subscription {
+        private final Set<Long> productsId;
+        private final Set<Long> storesId;
+        private final PriceChangeSink sink;
+        private final BlockingQueue<PriceChangeEvent> queue;
+        private final AtomicLong droppedEvents = new AtomicLong();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+
+        private Subscription(Set<Long> productsId, Set<Long> storesId, PriceChangeSink sink, int queueCapacity) {
+            this.productsId = productsId;
+            this.storesId = storesId;
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        private boolean accepts(PriceChangeEvent event) {
+            return (productsId.isEmpty() || productsId.contains(event.getProductId()))
+                    && (storesId.isEmpty() || storesId.contains(event.getStoreId()));
+        }
+
+        private void offer(PriceChangeEvent event) {
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) {
+                    droppedEvents.incrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.service;
+
+import com.example.entity.Price;
+import com.example.entity.dto.PriceDTO;
+import com.example.repository.PriceHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Price history of every price list in memory, for the date range queries of the price dynamics comparison.
+ * A price list keeps its prices in four arrays sorted by date and id: ids, epoch days, unscaled prices and their scales,
+ * about 21 bytes per price instead of a Price entity with its BigDecimal and LocalDate. The prices keep the scale
+ * of the database, so they are the same as the prices read from the database while the store is not loaded.
+ * The histories are loaded once when the application is ready, until then isLoaded() is false and the callers
+ * read the database. After a commit created prices are added as they were written, price lists with changed
+ * or deleted prices are read again on their next query. Histories are replaced as a whole,
+ * so readers never see a half written one.
+ * Changes made by other instances of the application are not seen, app.priceHistoryStoreEnabled=false turns the store off.
+ */
+@Slf4j
+@Service
+public class PriceHistoryStore {
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final boolean enabled;
+    private final Map<Long, PriceHistory> histories = new ConcurrentHashMap<>();
+    private final Set<Long> stalePriceListsId = ConcurrentHashMap.newKeySet();
+    // orders the reads of stale histories and the additions, so an older read never replaces a newer history
+    private final Object writeLock = new Object();
+    private volatile boolean loaded;
+
+    @Autowired
+    public PriceHistoryStore(PriceHistoryRepository priceHistoryRepository,
+                             @Value("${app.priceHistoryStoreEnabled:true}") boolean enabled) {
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        HistoryCollector collector = new HistoryCollector();
+        priceHistoryRepository.forEachPrice(collector);
+        collector.finish();
+        histories.putAll(collector.histories);
+        // price lists changed while the rows were read are stale and read again on their first query
+        loaded = true;
+        log.info("Price history of " + collector.histories.size() + " priceLists is loaded in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Prices of the price lists between the dates inclusive, latest first, grouped by price list id.
+     */
+    public Map<Long, List<PriceDTO>> findPricesBetweenDates(Collection<Long> priceListsId, LocalDate startDate, LocalDate endDate) {
+        log.info("Method findPricesBetweenDates begin");
+        List<Long> staleIds = priceListsId.stream()
+                .filter(stalePriceListsId::contains)
+                .distinct()
+                .collect(Collectors.toList());
+        if (!staleIds.isEmpty()) {
+            reloadNow(staleIds);
+        }
+
+        int startDay = (int) startDate.toEpochDay();
+        int endDay = (int) endDate.toEpochDay();
+        Map<Long, List<PriceDTO>> pricesByPriceListId = new HashMap<>();
+        for (Long priceListId : priceListsId) {
+            PriceHistory history = histories.get(priceListId);
+            if (history != null) {
+                List<PriceDTO> priceDTOS = history.between(priceListId, startDay, endDay);
+                if (!priceDTOS.isEmpty()) {
+                    pricesByPriceListId.put(priceListId, priceDTOS);
+                }
+            }
+        }
+        return pricesByPriceListId;
+    }
+
+    /**
+     * Adds the created prices, their price lists must be set.
+     */
+    public void addAll(List<Price> prices) {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, HistoryBuilder> builders = new HashMap<>();
+        for (Price price : prices) {
+            if (price.getPriceList() == null) {
+                continue;
+            }
+            builders.computeIfAbsent(price.getPriceList().getId(), id -> new HistoryBuilder())
+                    .add(price.getId(), (int) price.getDate().toEpochDay(), price.getPrice().unscaledValue().longValueExact(),
+                            price.getPrice().scale());
+        }
+        afterCommit(() -> {
+            if (!loaded) {
+                stalePriceListsId.addAll(builders.keySet());
+                return;
+            }
+            synchronized (writeLock) {
+                builders.forEach((priceListId, builder) -> histories.merge(priceListId, builder.build(), PriceHistory::merge));
+            }
+        });
+    }
+
+    /**
+     * Marks the histories of the price lists as stale, for changes that can move, change or delete prices.
+     */
+    public void invalidate(Collection<Long> priceListsId) {
+        if (!enabled) {
+            return;
+        }
+        List<Long> invalidatedPriceListsId = priceListsId.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        afterCommit(() -> stalePriceListsId.addAll(invalidatedPriceListsId));
+    }
+
+    private void reloadNow(List<Long> priceListsId) {
+        synchronized (writeLock) {
+            // removed before the read, a change committed during the read marks the price list stale again
+            stalePriceListsId.removeAll(priceListsId);
+            HistoryCollector collector = new HistoryCollector();
+            priceHistoryRepository.forEachPriceOfPriceLists(priceListsId, collector);
+            collector.finish();
+            for (Long priceListId : priceListsId) {
+                PriceHistory history = collector.histories.get(priceListId);
+                if (history == null) {
+                    histories.remove(priceListId);
+                } else {
+                    histories.put(priceListId, history);
+                }
+            }
+        }
+        log.info("Price history of " + priceListsId.size() + " priceLists is reloaded");
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    /**
+     * Prices of one price list sorted by date and id.
+     */
+    static final class PriceHistory {
+        private final long[] ids;
+        private final int[] epochDays;
+        private final long[] unscaledPrices;
+        private final byte[] scales;
+
+        private PriceHistory(long[] ids, int[] epochDays, long[] unscaledPrices, byte[] scales) {
+            this.ids = ids;
+            this.epochDays = epochDays;
+            this.unscaledPrices = unscaledPrices;
+            this.scales = scales;
+        }
+
+        List<PriceDTO> between(Long priceListId, int startDay, int endDay) {
+            int from = firstIndexOnOrAfter(startDay);
+            int to = firstIndexOnOrAfter(endDay + 1);
+            List<PriceDTO> priceDTOS = new ArrayList<>(Math.max(0, to - from));
+            for (int i = to - 1; i >= from; i--) {
+                priceDTOS.add(new PriceDTO(ids[i], BigDecimal.valueOf(unscaledPrices[i], scales[i]), LocalDate.ofEpochDay(epochDays[i]), priceListId));
+            }
+            return priceDTOS;
+        }
+
+        private int firstIndexOnOrAfter(int epochDay) {
+            int low = 0;
+            int high = epochDays.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (epochDays[middle] < epochDay) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * New history with the prices of both, a price of other replaces the price with the same id.
+         */
+        PriceHistory merge(PriceHistory other) {
+            HistoryBuilder builder = new HistoryBuilder();
+            Set<Long> replacedIds = new HashSet<>();
+            for (long id : other.ids) {
+                replacedIds.add(id);
+            }
+            for (int i = 0; i < ids.length; i++) {
+                if (!replacedIds.contains(ids[i])) {
+                    builder.add(ids[i], epochDays[i], unscaledPrices[i], scales[i]);
+                }
+            }
+            for (int i = 0; i < other.ids.length; i++) {
+                builder.add(other.ids[i], other.epochDays[i], other.unscaledPrices[i], other.scales[i]);
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Growing arrays of one price list, build() sorts them by date and id and trims them to size.
+     */
+    static final class HistoryBuilder {
+        private long[] ids = new long[8];
+        private int[] epochDays = new int[8];
+        private long[] unscaledPrices = new long[8];
+        private byte[] scales = new byte[8];
+        private int size;
+        private boolean sorted = true;
+
+        void add(long id, int epochDay, long unscaledPrice, int scale) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                epochDays = Arrays.copyOf(epochDays, size * 2);
+                unscaledPrices = Arrays.copyOf(unscaledPrices, size * 2);
+                scales = Arrays.copyOf(scales, size * 2);
+            }
+            if (size > 0 && (epochDay < epochDays[size - 1] || epochDay == epochDays[size - 1] && id < ids[size - 1])) {
+                sorted = false;
+            }
+            ids[size] = id;
+            epochDays[size] = epochDay;
+            unscaledPrices[size] = unscaledPrice;
+            scales[size] = toByteExact(scale);
+            size++;
+        }
+
+        PriceHistory build() {
+            if (sorted) {
+                return new PriceHistory(Arrays.copyOf(ids, size), Arrays.copyOf(epochDays, size),
+                        Arrays.copyOf(unscaledPrices, size), Arrays.copyOf(scales, size));
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (first, second) -> epochDays[first] != epochDays[second]
+                    ? Integer.compare(epochDays[first], epochDays[second])
+                    : Long.compare(ids[first], ids[second]));
+            long[] sortedIds = new long[size];
+            int[] sortedEpochDays = new int[size];
+            long[] sortedUnscaledPrices = new long[size];
+            byte[] sortedScales = new byte[size];
+            for (int i = 0; i < size; i++) {
+                sortedIds[i] = ids[order[i]];
+                sortedEpochDays[i] = epochDays[order[i]];
+                sortedUnscaledPrices[i] = unscaledPrices[order[i]];
+                sortedScales[i] = scales[order[i]];
+            }
+            return new PriceHistory(sortedIds, sortedEpochDays, sortedUnscaledPrices, sortedScales);
+        }
+
+        private static byte toByteExact(int scale) {
+            if (scale != (byte) scale) {
+                throw new ArithmeticException("Scale " + scale + " of a price is out of range");
+            }
+            return (byte) scale;
+        }
+    }
+
+    /**
+     * Builds the histories from rows ordered by price list.
+     */
+    private static final class HistoryCollector implements PriceHistoryRepository.PriceRowHandler {
+        private final Map<Long, PriceHistory> histories = new HashMap<>();
+        private long priceListId = -1;
+        private HistoryBuilder builder;
+
+        @Override
+        public void handle(long priceListId, long id, int epochDay, long unscaledPrice, int scale) {
+            if (priceListId != this.priceListId) {
+                finish();
+                this.priceListId = priceListId;
+                builder = new HistoryBuilder();
+            }
+            builder.add(id, epochDay, unscaledPrice, scale);
+        }
+
+        void finish() {
+            if (builder != null) {
+                histories.put(priceListId, builder.build());
+                builder = null;
+            }
+        }
+    }
+}
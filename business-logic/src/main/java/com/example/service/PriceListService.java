@@ -2,14 +2,20 @@ package com.example.service;
 
 import com.example.entity.Price;
 import com.example.entity.PriceList;
+import com.example.entity.Product;
+import com.example.entity.Store;
 import com.example.entity.dto.PriceDTO;
 import com.example.entity.dto.PriceListDTO;
+import com.example.enums.PriceChangeType;
+import com.example.events.PriceChangeEvent;
 import com.example.exceptions.NotFoundException;
+import com.example.repository.BulkInsertRepository;
 import com.example.repository.IPriceListRepository;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,7 +24,18 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -26,15 +43,25 @@ public class PriceListService implements EntityService<PriceList, PriceListDTO>
     private final IPriceListRepository priceListRepository;
     private final ProductService productService;
     private final StoreService storeService;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final ProductBestPriceService productBestPriceService;
+    private final PriceHistoryStore priceHistoryStore;
+    private final ApplicationEventPublisher eventPublisher;
     @Getter
     @Setter
     private PriceService priceService;
 
     @Autowired
-    public PriceListService(IPriceListRepository priceListRepository, ProductService productService, StoreService storeService) {
+    public PriceListService(IPriceListRepository priceListRepository, ProductService productService, StoreService storeService,
+                            BulkInsertRepository bulkInsertRepository, ProductBestPriceService productBestPriceService,
+                            PriceHistoryStore priceHistoryStore, ApplicationEventPublisher eventPublisher) {
         this.priceListRepository = priceListRepository;
         this.productService = productService;
         this.storeService = storeService;
+        this.bulkInsertRepository = bulkInsertRepository;
+        this.productBestPriceService = productBestPriceService;
+        this.priceHistoryStore = priceHistoryStore;
+        this.eventPublisher = eventPublisher;
     }
 
     @PostConstruct
@@ -45,12 +72,7 @@ public class PriceListService implements EntityService<PriceList, PriceListDTO>
     @Override
     public PriceListDTO convertToDTO(PriceList priceList) {
         log.info("Method convertToDTO begin");
-        PriceListDTO priceListDTO = new PriceListDTO();
-        priceListDTO.setId(priceList.getId());
-        priceListDTO.setStoreId(priceList.getStore().getId());
-        priceListDTO.setStoreName(priceList.getStore().getName());
-        priceListDTO.setProductId(priceList.getProduct().getId());
-        priceListDTO.setCurrentPrice(priceList.getCurrentPrice());
+        PriceListDTO priceListDTO = convertToDTOWithoutPrices(priceList);
 
         List<PriceDTO> priceDTOS = new ArrayList<>();
         for (Price price : priceList.getPriceHistoryList()){
@@ -60,6 +82,16 @@ public class PriceListService implements EntityService<PriceList, PriceListDTO>
         return priceListDTO;
     }
 
+    private PriceListDTO convertToDTOWithoutPrices(PriceList priceList) {
+        PriceListDTO priceListDTO = new PriceListDTO();
+        priceListDTO.setId(priceList.getId());
+        priceListDTO.setStoreId(priceList.getStore().getId());
+        priceListDTO.setStoreName(priceList.getStore().getName());
+        priceListDTO.setProductId(priceList.getProduct().getId());
+        priceListDTO.setCurrentPrice(priceList.getCurrentPrice());
+        return priceListDTO;
+    }
+
     @Override
     public PriceList convertFromDTO(PriceListDTO priceListDTO) {
         log.info("Method convertFromDTO begin");
@@ -104,6 +136,8 @@ public class PriceListService implements EntityService<PriceList, PriceListDTO>
         log.info("Method create begin");
         if (priceListDTO.getId() == null || priceListDTO.getId() != 0L) {
             PriceList savedPriceList = priceListRepository.save(convertFromDTO(priceListDTO));
+            productBestPriceService.refreshByProductsId(List.of(savedPriceList.getProduct().getId()));
+            priceHistoryStore.invalidate(List.of(savedPriceList.getId()));
             log.info("PriceList" + savedPriceList.getId() + " is created");
             return convertToDTO(savedPriceList);
         } else {
@@ -113,6 +147,131 @@ public class PriceListService implements EntityService<PriceList, PriceListDTO>
         }
     }
 
+    @Transactional
+    public int createAll(List<PriceListDTO> priceListDTOS) {
+        log.info("Method createAll begin");
+        storeService.idsValidation(priceListDTOS.stream()
+                .map(PriceListDTO::getStoreId)
+                .collect(Collectors.toSet()));
+        productService.idsValidation(priceListDTOS.stream()
+                .map(PriceListDTO::getProductId)
+                .collect(Collectors.toSet()));
+        return importAll(priceListDTOS);
+    }
+
+    /**
+     * Creates the price lists without checking their store and product ids, the import has validated them.
+     */
+    @Transactional
+    public int importAll(List<PriceListDTO> priceListDTOS) {
+        log.info("Method importAll begin");
+        List<PriceList> priceLists = insertAll(priceListDTOS);
+        log.info(priceLists.size() + " priceLists are created");
+        return priceLists.size();
+    }
+
+    /**
+     * Imports a snapshot of price lists. A row of a store and product without a price list creates it,
+     * a row with another price than the price of today adds a price of today to the price list, the other rows
+     * are not written. The price of today is the price of the last date up to today, the current price when there
+     * is none, a price of a future date is not compared. The prices of the chunk are read with one query.
+     * Returns the number of created and changed price lists.
+     */
+    @Transactional
+    public int mergeAll(List<PriceListDTO> priceListDTOS) {
+        log.info("Method mergeAll begin");
+        storeService.idsValidation(priceListDTOS.stream()
+                .map(PriceListDTO::getStoreId)
+                .collect(Collectors.toSet()));
+        productService.idsValidation(priceListDTOS.stream()
+                .map(PriceListDTO::getProductId)
+                .collect(Collectors.toSet()));
+        return importSnapshot(priceListDTOS);
+    }
+
+    /**
+     * mergeAll without checking the store and product ids, the import has validated them.
+     */
+    @Transactional
+    public int importSnapshot(List<PriceListDTO> priceListDTOS) {
+        log.info("Method importSnapshot begin");
+        Set<Long> storesId = priceListDTOS.stream()
+                .map(PriceListDTO::getStoreId)
+                .collect(Collectors.toSet());
+        Set<Long> productsId = priceListDTOS.stream()
+                .map(PriceListDTO::getProductId)
+                .collect(Collectors.toSet());
+
+        // the oldest price list of a store and product is compared, the last row of a store and product is imported
+        LocalDate today = LocalDate.now();
+        Map<List<Long>, Object[]> currentPrices = new HashMap<>();
+        for (Object[] row : priceListRepository.findCurrentPrices(storesId, productsId, today)) {
+            currentPrices.putIfAbsent(Arrays.asList((Long) row[1], (Long) row[2]), row);
+        }
+        Map<List<Long>, PriceListDTO> rows = new LinkedHashMap<>();
+        priceListDTOS.forEach(priceListDTO -> rows.put(Arrays.asList(priceListDTO.getStoreId(), priceListDTO.getProductId()), priceListDTO));
+
+        List<PriceListDTO> newPriceLists = new ArrayList<>();
+        List<PriceDTO> changedPrices = new ArrayList<>();
+        rows.forEach((key, priceListDTO) -> {
+            Object[] currentPrice = currentPrices.get(key);
+            BigDecimal price = priceListDTO.getCurrentPrice() == null ? null : priceListDTO.getCurrentPrice().setScale(2, RoundingMode.DOWN);
+            if (currentPrice == null) {
+                newPriceLists.add(priceListDTO);
+                return;
+            }
+            BigDecimal priceOfToday = currentPrice[4] != null
+                    ? ((BigDecimal) currentPrice[4]).setScale(2, RoundingMode.DOWN)
+                    : (BigDecimal) currentPrice[3];
+            if (price != null && (priceOfToday == null || priceOfToday.compareTo(price) != 0)) {
+                changedPrices.add(new PriceDTO(null, price, today, (Long) currentPrice[0]));
+            }
+        });
+        int changed = changedPrices.size();
+
+        for (PriceList priceList : insertAll(newPriceLists)) {
+            if (priceList.getCurrentPrice() != null) {
+                changedPrices.add(new PriceDTO(null, priceList.getCurrentPrice(), today, priceList.getId()));
+            }
+        }
+        // the price lists are read from the database or have just been created
+        if (!changedPrices.isEmpty()) {
+            priceService.importAll(changedPrices);
+        }
+        log.info(newPriceLists.size() + " priceLists are created, " + changed + " are changed, "
+                + (rows.size() - newPriceLists.size() - changed) + " are not changed");
+        return newPriceLists.size() + changed;
+    }
+
+    private List<PriceList> insertAll(List<PriceListDTO> priceListDTOS) {
+        if (priceListDTOS.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = bulkInsertRepository.nextIds("sequencestorehaspricelist", priceListDTOS.size());
+        List<PriceList> priceLists = new ArrayList<>(priceListDTOS.size());
+        for (int i = 0; i < priceListDTOS.size(); i++) {
+            PriceListDTO priceListDTO = priceListDTOS.get(i);
+            Store store = new Store();
+            store.setId(priceListDTO.getStoreId());
+            Product product = new Product();
+            product.setId(priceListDTO.getProductId());
+
+            PriceList priceList = new PriceList();
+            priceList.setId(ids.get(i));
+            priceList.setStore(store);
+            priceList.setProduct(product);
+            if (priceListDTO.getCurrentPrice() != null) {
+                priceList.setCurrentPrice(priceListDTO.getCurrentPrice().setScale(2, RoundingMode.DOWN));
+            }
+            priceLists.add(priceList);
+        }
+        bulkInsertRepository.insertPriceLists(priceLists);
+        productBestPriceService.refreshByProductsId(priceListDTOS.stream()
+                .map(PriceListDTO::getProductId)
+                .collect(Collectors.toSet()));
+        return priceLists;
+    }
+
     @Transactional
     @Override
     public List<PriceList> findAll() {
@@ -122,65 +281,141 @@ public class PriceListService implements EntityService<PriceList, PriceListDTO>
         return  priceLists;
     }
 
+    /**
+     * Passes every price list with its prices to the consumer as it is read from a database cursor,
+     * only the price list being read is kept in memory.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<PriceListDTO> consumer) {
+        log.info("Method streamAll begin");
+        try (Stream<Object[]> rows = priceListRepository.streamAllWithPrices()) {
+            PriceListDTO[] current = new PriceListDTO[1];
+            rows.forEachOrdered(row -> {
+                if (current[0] == null || !current[0].getId().equals(row[0])) {
+                    if (current[0] != null) {
+                        consumer.accept(current[0]);
+                    }
+                    current[0] = new PriceListDTO((Long) row[0], (Long) row[1], (String) row[2], (Long) row[3],
+                            (BigDecimal) row[4], new ArrayList<>());
+                }
+                if (row[5] != null) {
+                    current[0].getPriceHistoryList().add(new PriceDTO((Long) row[5], (BigDecimal) row[6], (LocalDate) row[7], (Long) row[0]));
+                }
+            });
+            if (current[0] != null) {
+                consumer.accept(current[0]);
+            }
+        }
+    }
+
+    /**
+     * Passes every price list without its prices to the consumer as it is read from a database cursor.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllWithoutPrices(Consumer<PriceListDTO> consumer) {
+        log.info("Method streamAllWithoutPrices begin");
+        try (Stream<Object[]> rows = priceListRepository.streamAllWithoutPrices()) {
+            rows.forEach(row -> consumer.accept(new PriceListDTO((Long) row[0], (Long) row[1], (String) row[2], (Long) row[3],
+                    (BigDecimal) row[4], new ArrayList<>())));
+        }
+    }
+
     @Transactional
-    public List<PriceList> findPriceListsForPriceComparisonByProductId(ArrayList<Long> productsId) {
+    public List<PriceListDTO> findPriceListsForPriceComparisonByProductId(ArrayList<Long> productsId) {
         log.info("Method findPriceListsForPriceComparisonByProductId begin");
-        return priceListRepository.findAllPriceListsByProductsId(productsId)
-                .orElseThrow(() -> {
-                    NotFoundException exception = new NotFoundException("Error! PriceLists not found with productsId " + productsId.toString() );
-                    log.error(exception.getMessage());
-                    return exception;
-                });
+        List<PriceList> priceLists = findPriceListsByProductsId(productsId);
+        return convertToComparisonDTO(priceLists, priceService.findAllPricesByPriceListsId(collectIds(priceLists)));
     }
 
     @Transactional
-    public List<PriceList> findPriceListsForComparisonOfPriceDynamicsByProductIdAndBetweenDate(ArrayList<Long> productsId,
-                                                                                               LocalDate startDate,
-                                                                                               LocalDate endDate) {
+    public List<PriceListDTO> findPriceListsForComparisonOfPriceDynamicsByProductIdAndBetweenDate(ArrayList<Long> productsId,
+                                                                                                  LocalDate startDate,
+                                                                                                  LocalDate endDate) {
         log.info("Method findPriceListsForComparisonOfPriceDynamicsByProductIdAndBetweenDate begin");
         log.info("Stage 1: get priceLists with productsId " + productsId.toString());
-        List<PriceList> tempPriceLists = priceListRepository.findAllPriceListsByProductsId(productsId).orElseThrow(() -> {
-            NotFoundException exception = new NotFoundException("Error! PriceLists not found with productsId " + productsId.toString());
-            log.error(exception.getMessage());
-            return exception;
-        });
-        log.info("Stage 2: get prices for each priceList between startDate " + startDate.toString() + ", endDate " + endDate.toString() + ", and set in priceHistoryList");
-        for (PriceList priceList : tempPriceLists){
-            List<Price> prices = priceService.findAllPriceBetweenDateParam(priceList.getId(), startDate, endDate);
-            priceList.setPriceHistoryList(prices);
-        }
-        return tempPriceLists;
+        List<PriceList> priceLists = findPriceListsByProductsId(productsId);
+        log.info("Stage 2: get prices of all priceLists between startDate " + startDate.toString() + ", endDate " + endDate.toString());
+        return convertToComparisonDTO(priceLists, findPricesBetweenDates(collectIds(priceLists), startDate, endDate));
     }
 
     @Transactional
-    public List<PriceList> findPriceListsForPriceComparisonByProductsIdAndStoresId(ArrayList<Long> productsId,
-                                                                                   ArrayList<Long> storesId) {
+    public List<PriceListDTO> findPriceListsForPriceComparisonByProductsIdAndStoresId(ArrayList<Long> productsId,
+                                                                                      ArrayList<Long> storesId) {
         log.info("Method findPriceListsForPriceComparisonByProductsIdAndStoresId begin");
-        return priceListRepository.findAllPriceListsByProductsIdAndStoresId(productsId, storesId)
-                .orElseThrow(() -> {
-                    NotFoundException exception = new NotFoundException("Error! PriceLists not found with productsId " + productsId.toString() + ", and storesId " + storesId.toString());
-                    log.error(exception.getMessage());
-                    return exception;
-                });
+        List<PriceList> priceLists = findPriceListsByProductsIdAndStoresId(productsId, storesId);
+        return convertToComparisonDTO(priceLists, priceService.findAllPricesByPriceListsId(collectIds(priceLists)));
     }
 
     @Transactional
-    public List<PriceList> findPriceListsForComparisonOfPriceDynamicsByProductIdAndStoresIdAndBetweenDate(ArrayList<Long> productsId,
-                                                                                                          ArrayList<Long> storesId,
-                                                                                                          LocalDate startDate,
-                                                                                                          LocalDate endDate) {
+    public List<PriceListDTO> findPriceListsForComparisonOfPriceDynamicsByProductIdAndStoresIdAndBetweenDate(ArrayList<Long> productsId,
+                                                                                                             ArrayList<Long> storesId,
+                                                                                                             LocalDate startDate,
+                                                                                                             LocalDate endDate) {
         log.info("Method findPriceListsForComparisonOfPriceDynamicsByProductIdAndStoresIdAndBetweenDate begin");
         log.info("Stage 1: get priceLists with productsId " + productsId.toString() + ", and storesId " + storesId.toString());
-        List<PriceList> tempPriceLists = priceListRepository.findAllPriceListsByProductsIdAndStoresId(productsId, storesId).orElseThrow(() -> {
+        List<PriceList> priceLists = findPriceListsByProductsIdAndStoresId(productsId, storesId);
+        log.info("Stage 2: get prices of all priceLists between startDate " + startDate.toString() + ", endDate " + endDate.toString());
+        return convertToComparisonDTO(priceLists, findPricesBetweenDates(collectIds(priceLists), startDate, endDate));
+    }
+
+    private List<PriceList> findPriceListsByProductsId(ArrayList<Long> productsId) {
+        return priceListRepository.findAllPriceListsByProductsId(productsId).orElseThrow(() -> {
+            NotFoundException exception = new NotFoundException("Error! PriceLists not found with productsId " + productsId.toString());
+            log.error(exception.getMessage());
+            return exception;
+        });
+    }
+
+    private List<PriceList> findPriceListsByProductsIdAndStoresId(ArrayList<Long> productsId, ArrayList<Long> storesId) {
+        return priceListRepository.findAllPriceListsByProductsIdAndStoresId(productsId, storesId).orElseThrow(() -> {
             NotFoundException exception = new NotFoundException("Error! PriceLists not found with productsId " + productsId.toString() + ", and storesId " + storesId.toString());
             log.error(exception.getMessage());
             return exception;
         });
-        for (PriceList priceList : tempPriceLists){
-            List<Price> prices = priceService.findAllPriceBetweenDateParam(priceList.getId(), startDate, endDate);
-            priceList.setPriceHistoryList(prices);
+    }
+
+    private List<Long> collectIds(List<PriceList> priceLists) {
+        return priceLists.stream()
+                .map(PriceList::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Prices from the PriceHistoryStore, from the database while the store is not loaded.
+     */
+    private Map<Long, List<PriceDTO>> findPricesBetweenDates(List<Long> priceListsId, LocalDate startDate, LocalDate endDate) {
+        if (priceHistoryStore.isLoaded()) {
+            return priceHistoryStore.findPricesBetweenDates(priceListsId, startDate, endDate);
+        }
+        return groupByPriceListId(priceService.findAllPricesByPriceListsIdBetweenDateParam(priceListsId, startDate, endDate));
+    }
+
+    private Map<Long, List<PriceDTO>> groupByPriceListId(List<Price> prices) {
+        Map<Long, List<PriceDTO>> pricesByPriceListId = new HashMap<>();
+        for (Price price : prices) {
+            pricesByPriceListId.computeIfAbsent(price.getPriceList().getId(), id -> new ArrayList<>())
+                    .add(priceService.convertToDTO(price));
         }
-        return tempPriceLists;
+        return pricesByPriceListId;
+    }
+
+    private List<PriceListDTO> convertToComparisonDTO(List<PriceList> priceLists, List<Price> prices) {
+        return convertToComparisonDTO(priceLists, groupByPriceListId(prices));
+    }
+
+    /**
+     * Builds the DTOs from price lists loaded with their store and product and from the prices loaded by one query
+     * for all of them. The managed priceHistoryList collections are not touched, replacing them would make
+     * orphanRemoval delete the prices left out of the query.
+     */
+    private List<PriceListDTO> convertToComparisonDTO(List<PriceList> priceLists, Map<Long, List<PriceDTO>> pricesByPriceListId) {
+        List<PriceListDTO> priceListDTOS = new ArrayList<>(priceLists.size());
+        for (PriceList priceList : priceLists) {
+            PriceListDTO priceListDTO = convertToDTOWithoutPrices(priceList);
+            priceListDTO.setPriceHistoryList(pricesByPriceListId.getOrDefault(priceList.getId(), new ArrayList<>()));
+            priceListDTOS.add(priceListDTO);
+        }
+        return priceListDTOS;
     }
 
     @Transactional
@@ -199,7 +434,10 @@ public class PriceListService implements EntityService<PriceList, PriceListDTO>
     public PriceListDTO update(PriceListDTO priceListDTO) {
         log.info("Method findById begin");
         idValidation(priceListDTO.getId());
+        Long previousProductId = priceListRepository.findProductIdById(priceListDTO.getId());
         PriceList savedPriceList = priceListRepository.save(convertFromDTO(priceListDTO));
+        productBestPriceService.refreshByProductsId(new HashSet<>(Arrays.asList(previousProductId, savedPriceList.getProduct().getId())));
+        priceHistoryStore.invalidate(List.of(savedPriceList.getId()));
         log.info("PriceList" + savedPriceList.getId() + " is updated");
         return convertToDTO(savedPriceList);
     }
@@ -209,7 +447,10 @@ public class PriceListService implements EntityService<PriceList, PriceListDTO>
     public void deleteById(Long id) {
         log.info("Method deleteById begin");
         idValidation(id);
+        Long productId = priceListRepository.findProductIdById(id);
         priceListRepository.deleteById(id);
+        productBestPriceService.refreshByProductsId(List.of(productId));
+        priceHistoryStore.invalidate(List.of(id));
         log.info("PriceList " + id + " is deleted");
     }
 
@@ -226,13 +467,41 @@ public class PriceListService implements EntityService<PriceList, PriceListDTO>
         return lastPrice;
     }
 
+    /**
+     * Recomputes the current prices and best prices of the price lists, a price list whose current price changed
+     * publishes CURRENT_PRICE_UPDATED.
+     */
     @Transactional
-    public void updateCurrentPriceByPriceListId(Long priceListId) {
-        log.info("Method updateCurrentPriceByPriceListId begin");
-        PriceList priceList = findById(priceListId);
-        priceList.setCurrentPrice(findLastPrice(priceList.getPriceHistoryList()));
-        priceListRepository.save(priceList);
-        log.info("PriceList " + priceList.getId() + ", current price is updated");
+    public void updateCurrentPrices(Collection<Long> priceListsId) {
+        log.info("Method updateCurrentPrices begin");
+        if (priceListsId.isEmpty()) {
+            return;
+        }
+        List<Object[]> changed = priceListRepository.updateCurrentPrices(priceListsId);
+        productBestPriceService.refreshByPriceListsId(priceListsId);
+        for (Object[] row : changed) {
+            eventPublisher.publishEvent(new PriceChangeEvent(PriceChangeType.CURRENT_PRICE_UPDATED, null, ((Number) row[0]).longValue(),
+                    ((Number) row[1]).longValue(), ((Number) row[2]).longValue(), (BigDecimal) row[3], null));
+        }
+        log.info(changed.size() + " priceLists, current price is updated");
+    }
+
+    @Transactional
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        log.info("Method findExistingIds begin");
+        return new HashSet<>(priceListRepository.findExistingIds(ids));
+    }
+
+    @Transactional
+    public void idsValidation(Collection<Long> ids) {
+        log.info("Method idsValidation begin");
+        Set<Long> missingIds = new TreeSet<>(ids);
+        missingIds.removeAll(findExistingIds(ids));
+        if (!missingIds.isEmpty()) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! PriceList does not exist with this id - " + missingIds);
+            log.error(exception.getMessage());
+            throw  exception;
+        }
     }
 
     @Transactional
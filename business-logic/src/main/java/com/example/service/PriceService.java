@@ -1,33 +1,55 @@
 package com.example.service;
 
 import com.example.entity.Price;
+import com.example.entity.PriceList;
 import com.example.entity.dto.PriceDTO;
+import com.example.enums.PriceChangeType;
+import com.example.events.PriceChangeEvent;
 import com.example.exceptions.NotFoundException;
+import com.example.repository.BulkInsertRepository;
 import com.example.repository.IPriceRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class PriceService implements EntityService<Price, PriceDTO> {
     private final IPriceRepository priceRepository;
     private final PriceListService priceListService;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final PriceHistoryStore priceHistoryStore;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public PriceService(IPriceRepository priceRepository, PriceListService priceListService) {
+    public PriceService(IPriceRepository priceRepository, PriceListService priceListService, BulkInsertRepository bulkInsertRepository,
+                        PriceHistoryStore priceHistoryStore, ApplicationEventPublisher eventPublisher) {
         this.priceRepository = priceRepository;
         this.priceListService = priceListService;
+        this.bulkInsertRepository = bulkInsertRepository;
+        this.priceHistoryStore = priceHistoryStore;
+        this.eventPublisher = eventPublisher;
     }
 
     @PostConstruct
@@ -78,7 +100,10 @@ public class PriceService implements EntityService<Price, PriceDTO> {
     public PriceDTO create(PriceDTO priceDTO) {
         log.info("Method create begin");
         if (priceDTO.getId() == null || priceDTO.getId() != 0L) {
+            dateValidation(priceDTO, null);
             Price savedPrice = priceRepository.save(convertFromDTO(priceDTO));
+            priceHistoryStore.addAll(List.of(savedPrice));
+            publishPriceChange(PriceChangeType.PRICE_CREATED, savedPrice);
             log.info("Price" + savedPrice.getId() + " is created");
             return convertToDTO(savedPrice);
         } else {
@@ -88,6 +113,60 @@ public class PriceService implements EntityService<Price, PriceDTO> {
         }
     }
 
+    /**
+     * Creates the prices or changes the price of an existing price of the same price list and date.
+     * Returns the number of prices created or changed, prices imported again without changes are not counted.
+     * A price change event is published for every created or changed price.
+     */
+    @Transactional
+    public int createAll(List<PriceDTO> priceDTOS) {
+        log.info("Method createAll begin");
+        Set<Long> priceListsId = priceDTOS.stream()
+                .map(PriceDTO::getPriceListId)
+                .collect(Collectors.toSet());
+        priceListService.idsValidation(priceListsId);
+        return importAll(priceDTOS);
+    }
+
+    /**
+     * createAll without checking the price list ids, the import or the caller has validated them.
+     */
+    @Transactional
+    public int importAll(List<PriceDTO> priceDTOS) {
+        log.info("Method importAll begin");
+        // one statement cannot change a row twice, the last price of a price list and date in the chunk is kept
+        Map<List<Object>, Price> pricesByKey = new LinkedHashMap<>();
+        for (PriceDTO priceDTO : priceDTOS) {
+            PriceList priceList = new PriceList();
+            priceList.setId(priceDTO.getPriceListId());
+
+            Price price = new Price();
+            price.setPrice(priceDTO.getPrice());
+            price.setDate(priceDTO.getDate());
+            price.setPriceList(priceList);
+            pricesByKey.put(Arrays.asList(priceDTO.getPriceListId(), priceDTO.getDate()), price);
+        }
+        // rows are locked in the same order by concurrent imports of the same prices
+        List<Price> prices = new ArrayList<>(pricesByKey.values());
+        prices.sort(Comparator.comparing((Price price) -> price.getPriceList().getId())
+                .thenComparing(Price::getDate, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        BulkInsertRepository.PriceUpsertResult result = bulkInsertRepository.upsertPrices(prices);
+        Set<Long> updatedPriceListsId = result.getUpdated().stream()
+                .map(price -> price.getPriceList().getId())
+                .collect(Collectors.toSet());
+        priceHistoryStore.addAll(result.getInserted());
+        priceHistoryStore.invalidate(updatedPriceListsId);
+        result.getInserted().forEach(price -> publishPriceChange(PriceChangeType.PRICE_CREATED, price));
+        result.getUpdated().forEach(price -> publishPriceChange(PriceChangeType.PRICE_UPDATED, price));
+        log.info(result.getInserted().size() + " prices are created, " + result.getUpdated().size() + " prices are updated");
+
+        Set<Long> changedPriceListsId = new HashSet<>(updatedPriceListsId);
+        result.getInserted().forEach(price -> changedPriceListsId.add(price.getPriceList().getId()));
+        priceListService.updateCurrentPrices(changedPriceListsId);
+        return result.getInserted().size() + result.getUpdated().size();
+    }
+
     @Override
     public List<Price> findAll() {
         log.info("Method findAll begin");
@@ -96,6 +175,17 @@ public class PriceService implements EntityService<Price, PriceDTO> {
         return prices;
     }
 
+    /**
+     * Passes every price to the consumer as it is read from a database cursor, memory does not grow with the table.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<PriceDTO> consumer) {
+        log.info("Method streamAll begin");
+        try (Stream<PriceDTO> priceDTOS = priceRepository.streamAll()) {
+            priceDTOS.forEach(consumer);
+        }
+    }
+
     @Transactional
     public List<Price> findAllPriceBetweenDateParam(Long priceListId, LocalDate startDate, LocalDate endDate) {
         log.info("Method findAllPriceBetweenDateParam begin");
@@ -107,6 +197,18 @@ public class PriceService implements EntityService<Price, PriceDTO> {
                 });
     }
 
+    @Transactional
+    public List<Price> findAllPricesByPriceListsId(Collection<Long> priceListsId) {
+        log.info("Method findAllPricesByPriceListsId begin");
+        return priceRepository.findAllPricesByPriceListsId(priceListsId);
+    }
+
+    @Transactional
+    public List<Price> findAllPricesByPriceListsIdBetweenDateParam(Collection<Long> priceListsId, LocalDate startDate, LocalDate endDate) {
+        log.info("Method findAllPricesByPriceListsIdBetweenDateParam begin");
+        return priceRepository.findAllPricesByPriceListsIdBetweenDateParam(priceListsId, startDate, endDate);
+    }
+
     @Override
     public Price findById(Long id) {
         log.info("Method findById begin");
@@ -121,7 +223,11 @@ public class PriceService implements EntityService<Price, PriceDTO> {
     public PriceDTO update(PriceDTO priceDTO) {
         log.info("Method update begin");
         idValidation(priceDTO.getId());
+        dateValidation(priceDTO, priceDTO.getId());
+        Long previousPriceListId = priceRepository.findPriceListIdById(priceDTO.getId());
         Price savedPrice = priceRepository.save(convertFromDTO(priceDTO));
+        priceHistoryStore.invalidate(Arrays.asList(previousPriceListId, priceDTO.getPriceListId()));
+        publishPriceChange(PriceChangeType.PRICE_UPDATED, savedPrice);
         log.info("Price " + savedPrice.getId() + " is updated");
         return convertToDTO(savedPrice);
     }
@@ -130,10 +236,26 @@ public class PriceService implements EntityService<Price, PriceDTO> {
     public void deleteById(Long id) {
         log.info("Method deleteById begin");
         idValidation(id);
+        Price price = findById(id);
         priceRepository.deleteById(id);
+        priceHistoryStore.invalidate(Collections.singletonList(price.getPriceList() == null ? null : price.getPriceList().getId()));
+        publishPriceChange(PriceChangeType.PRICE_DELETED, price);
         log.info("Price " + id + " is deleted");
     }
 
+    /**
+     * A price list has at most one price on a date, the import changes that price instead of adding another one.
+     */
+    private void dateValidation(PriceDTO priceDTO, Long id) {
+        if (priceDTO.getPriceListId() != null && priceDTO.getDate() != null
+                && priceRepository.existsOtherByPriceListIdAndDate(priceDTO.getPriceListId(), priceDTO.getDate(), id)) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! PriceList " + priceDTO.getPriceListId()
+                    + " already has a price on " + priceDTO.getDate());
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+    }
+
     @Override
     public void idValidation(Long id) {
         log.info("Method idValidation begin");
@@ -148,6 +270,19 @@ public class PriceService implements EntityService<Price, PriceDTO> {
         }
     }
 
+    /**
+     * Published for the subscribers of PriceChangeBus, they get it after the commit.
+     */
+    private void publishPriceChange(PriceChangeType type, Price price) {
+        PriceList priceList = price.getPriceList();
+        if (priceList == null) {
+            return;
+        }
+        eventPublisher.publishEvent(new PriceChangeEvent(type, price.getId(), priceList.getId(),
+                priceList.getProduct() == null ? null : priceList.getProduct().getId(),
+                priceList.getStore() == null ? null : priceList.getStore().getId(), price.getPrice(), price.getDate()));
+    }
+
     public static <T> Predicate<T> distinctByKey(Function<? super T, ?> keyExtractor) {
         Map<Object, Boolean> seen = new ConcurrentHashMap<>();
         return t -> seen.putIfAbsent(keyExtractor.apply(t), Boolean.TRUE) == null;
@@ -0,0 +1,73 @@
+package com.example.service;
+
+import com.example.entity.dto.PriceStatisticsDTO;
+import com.example.enums.StatisticsBucket;
+import com.example.enums.StatisticsGrouping;
+import com.example.exceptions.BadRequestException;
+import com.example.repository.PriceStatisticsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Min, max, average, first and last price and the change between them, per product or per store of the product,
+ * for the whole date range or per day, week or month. The prices are aggregated by the database.
+ */
+@Slf4j
+@Service
+public class PriceStatisticsService {
+    private static final int MAX_PRODUCTS = 200;
+
+    private final PriceStatisticsRepository priceStatisticsRepository;
+
+    @Autowired
+    public PriceStatisticsService(PriceStatisticsRepository priceStatisticsRepository) {
+        this.priceStatisticsRepository = priceStatisticsRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<PriceStatisticsDTO> findStatistics(List<Long> productsId, List<Long> storesId, LocalDate startDate,
+                                                   LocalDate endDate, String bucket, String groupBy) {
+        log.info("Method findStatistics begin");
+        if (productsId == null || productsId.isEmpty() || productsId.size() > MAX_PRODUCTS) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Statistics should be requested for between 1 and " + MAX_PRODUCTS + " products");
+            log.error(exception.getMessage());
+            throw  exception;
+        } else if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Start date and end date are mandatory, start date should not be after end date");
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+        StatisticsBucket statisticsBucket = parseBucket(bucket);
+        StatisticsGrouping statisticsGrouping = parseGrouping(groupBy);
+        List<Long> stores = storesId == null ? List.of() : new ArrayList<>(new LinkedHashSet<>(storesId));
+        return priceStatisticsRepository.findStatistics(new ArrayList<>(new LinkedHashSet<>(productsId)), stores,
+                startDate, endDate, statisticsBucket, statisticsGrouping);
+    }
+
+    private StatisticsBucket parseBucket(String bucket) {
+        try {
+            return StatisticsBucket.valueOf(bucket.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            BadRequestException exception = new BadRequestException("Error! Invalid parameter bucket " + bucket + ". Valid parameter: DAY, WEEK, MONTH, PERIOD.");
+            log.error(exception.getMessage());
+            throw exception;
+        }
+    }
+
+    private StatisticsGrouping parseGrouping(String groupBy) {
+        try {
+            return StatisticsGrouping.valueOf(groupBy.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            BadRequestException exception = new BadRequestException("Error! Invalid parameter group_by " + groupBy + ". Valid parameter: STORE, PRODUCT.");
+            log.error(exception.getMessage());
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.service;
+
+import com.example.entity.ProductBestPrice;
+import com.example.entity.dto.BestPriceDTO;
+import com.example.repository.IProductBestPriceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Cheapest store of every product, kept in the product_best_price table.
+ * PriceListService refreshes the rows of the products whose price lists or current prices it changes,
+ * so a lookup is a primary key read instead of a comparison of all price lists of the product.
+ */
+@Slf4j
+@Service
+public class ProductBestPriceService {
+    private final IProductBestPriceRepository productBestPriceRepository;
+
+    @Autowired
+    public ProductBestPriceService(IProductBestPriceRepository productBestPriceRepository) {
+        this.productBestPriceRepository = productBestPriceRepository;
+    }
+
+    public BestPriceDTO convertToDTO(ProductBestPrice productBestPrice) {
+        log.info("Method convertToDTO begin");
+        BestPriceDTO bestPriceDTO = new BestPriceDTO();
+        bestPriceDTO.setProductId(productBestPrice.getProductId());
+        bestPriceDTO.setPriceListId(productBestPrice.getPriceListId());
+        bestPriceDTO.setStoreId(productBestPrice.getStore().getId());
+        bestPriceDTO.setStoreName(productBestPrice.getStore().getName());
+        bestPriceDTO.setCurrentPrice(productBestPrice.getCurrentPrice());
+        return bestPriceDTO;
+    }
+
+    @Transactional
+    public List<BestPriceDTO> findBestPricesByProductsId(Collection<Long> productsId) {
+        log.info("Method findBestPricesByProductsId begin");
+        List<BestPriceDTO> bestPriceDTOS = new ArrayList<>();
+        for (ProductBestPrice productBestPrice : productBestPriceRepository.findAllByProductsId(productsId)) {
+            bestPriceDTOS.add(convertToDTO(productBestPrice));
+        }
+        log.info("Method findBestPricesByProductsId result set size = " + bestPriceDTOS.size());
+        return bestPriceDTOS;
+    }
+
+    /**
+     * For changes that can move a price list to another product or remove the last price list of a product.
+     */
+    @Transactional
+    public void refreshByProductsId(Collection<Long> productsId) {
+        log.info("Method refreshByProductsId begin");
+        if (productsId.isEmpty()) {
+            return;
+        }
+        int refreshed = productBestPriceRepository.refreshByProductsId(productsId);
+        int deleted = productBestPriceRepository.deleteWithoutPriceListsByProductsId(productsId);
+        log.info(refreshed + " best prices are refreshed, " + deleted + " are deleted");
+    }
+
+    /**
+     * For changes of the current prices, the products of the price lists stay the same.
+     */
+    @Transactional
+    public void refreshByPriceListsId(Collection<Long> priceListsId) {
+        log.info("Method refreshByPriceListsId begin");
+        if (priceListsId.isEmpty()) {
+            return;
+        }
+        int refreshed = productBestPriceRepository.refreshByPriceListsId(priceListsId);
+        log.info(refreshed + " best prices are refreshed");
+    }
+}
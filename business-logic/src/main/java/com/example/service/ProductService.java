@@ -2,26 +2,49 @@ package com.example.service;
 
 import com.example.entity.PriceList;
 import com.example.entity.Product;
+import com.example.entity.Subcategory;
+import com.example.entity.dto.PageDTO;
 import com.example.entity.dto.ProductDTO;
+import com.example.enums.Unit;
 import com.example.exceptions.NotFoundException;
+import com.example.repository.BulkInsertRepository;
 import com.example.repository.IProductRepository;
 import com.example.repository.ISubcategoryRepository;
+import com.example.repository.ProductSpecifications;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class ProductService implements EntityService<Product, ProductDTO> {
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final IProductRepository productRepository;
     private final ISubcategoryRepository subcategoryRepository;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final PriceHistoryStore priceHistoryStore;
     @Getter
     @Setter
     private SubcategoryService subcategoryService;
@@ -30,14 +53,29 @@ public class ProductService implements EntityService<Product, ProductDTO> {
     private PriceListService priceListService;
 
     @Autowired
-    public ProductService(IProductRepository productRepository, ISubcategoryRepository subcategoryRepository) {
+    public ProductService(IProductRepository productRepository, ISubcategoryRepository subcategoryRepository, BulkInsertRepository bulkInsertRepository,
+                          CategoryTreeCache categoryTreeCache, PriceHistoryStore priceHistoryStore) {
         this.productRepository = productRepository;
         this.subcategoryRepository = subcategoryRepository;
+        this.bulkInsertRepository = bulkInsertRepository;
+        this.categoryTreeCache = categoryTreeCache;
+        this.priceHistoryStore = priceHistoryStore;
     }
 
     @Override
     public ProductDTO convertToDTO(Product product) {
         log.info("Method convertToDTO begin");
+        ArrayList<Long> priceListsId = null;
+        if (product.getPriceList() != null){
+            priceListsId = new ArrayList<>();
+            for (PriceList priceList : product.getPriceList()){
+                priceListsId.add(priceList.getId());
+            }
+        }
+        return convertToDTO(product, priceListsId);
+    }
+
+    private ProductDTO convertToDTO(Product product, ArrayList<Long> priceListsId) {
         ProductDTO productDTO = new ProductDTO();
         productDTO.setId(product.getId());
         productDTO.setSubcategoryId(product.getSubcategory().getId());
@@ -46,16 +84,7 @@ public class ProductService implements EntityService<Product, ProductDTO> {
         productDTO.setQuantity(product.getQuantity());
         productDTO.setUnit(product.getUnit());
         productDTO.setManufacturer(product.getManufacturer());
-
-        ArrayList<Long> priceListsId = new ArrayList<>();
-        if (product.getPriceList() != null){
-            for (PriceList priceList : product.getPriceList()){
-                priceListsId.add(priceList.getId());
-            }
-            productDTO.setPriceListsId(priceListsId);
-        } else {
-            productDTO.setPriceListsId(null);
-        }
+        productDTO.setPriceListsId(priceListsId);
         return productDTO;
     }
 
@@ -82,12 +111,25 @@ public class ProductService implements EntityService<Product, ProductDTO> {
         return product;
     }
 
+    /**
+     * The price list ids of all products are read with one query, the price lists of the products are not loaded.
+     */
     @Override
     public List<ProductDTO> listConverterToDTO(List<Product> products) {
         log.info("Method listConverterToDTO begin");
         List<ProductDTO> productDTOS = new ArrayList<>();
+        if (products.isEmpty()) {
+            return productDTOS;
+        }
+        Map<Long, ArrayList<Long>> priceListsId = new HashMap<>();
+        List<Long> productsId = products.stream()
+                .map(Product::getId)
+                .collect(Collectors.toList());
+        for (Object[] row : productRepository.findPriceListsIdByProductsId(productsId)) {
+            priceListsId.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
         for (Product product : products) {
-            productDTOS.add(convertToDTO(product));
+            productDTOS.add(convertToDTO(product, priceListsId.getOrDefault(product.getId(), new ArrayList<>())));
         }
         return productDTOS;
     }
@@ -98,6 +140,8 @@ public class ProductService implements EntityService<Product, ProductDTO> {
         log.info("Method create begin");
         if (productDTO.getId() == null || productDTO.getId() != 0L) {
             Product savedProduct = productRepository.save(convertFromDTO(productDTO));
+            // subcategories of the cached tree list the ids of their products
+            categoryTreeCache.invalidate();
             log.info("Product " + savedProduct.getId() + " is created");
             return convertToDTO(savedProduct);
         } else {
@@ -107,6 +151,45 @@ public class ProductService implements EntityService<Product, ProductDTO> {
         }
     }
 
+    @Transactional
+    public int createAll(List<ProductDTO> productDTOS) {
+        log.info("Method createAll begin");
+        Set<Long> subcategoriesId = productDTOS.stream()
+                .map(ProductDTO::getSubcategoryId)
+                .collect(Collectors.toSet());
+        subcategoryService.idsValidation(subcategoriesId);
+        return importAll(productDTOS);
+    }
+
+    /**
+     * Creates the products without checking their subcategory ids, the import has validated them.
+     */
+    @Transactional
+    public int importAll(List<ProductDTO> productDTOS) {
+        log.info("Method importAll begin");
+        List<Long> ids = bulkInsertRepository.nextIds("sequenceproduct", productDTOS.size());
+        List<Product> products = new ArrayList<>(productDTOS.size());
+        for (int i = 0; i < productDTOS.size(); i++) {
+            ProductDTO productDTO = productDTOS.get(i);
+            Subcategory subcategory = new Subcategory();
+            subcategory.setId(productDTO.getSubcategoryId());
+
+            Product product = new Product();
+            product.setId(ids.get(i));
+            product.setSubcategory(subcategory);
+            product.setName(productDTO.getName());
+            product.setBrand(productDTO.getBrand());
+            product.setQuantity(productDTO.getQuantity());
+            product.setUnit(productDTO.getUnit());
+            product.setManufacturer(productDTO.getManufacturer());
+            products.add(product);
+        }
+        bulkInsertRepository.insertProducts(products);
+        categoryTreeCache.invalidate();
+        log.info(products.size() + " products are created");
+        return products.size();
+    }
+
     @Transactional
     @Override
     public List<Product> findAll() {
@@ -116,65 +199,92 @@ public class ProductService implements EntityService<Product, ProductDTO> {
         return products;
     }
 
-    @Transactional
-    public List<Product> findProductsByKeyword(String keyword, Sort sort) {
-        log.info("Method findProductsByKeyword begin");
-        if (keyword == null || keyword.isEmpty()) {
-            log.info("Condition where keyword null or empty is met");
-            return productRepository.findAll(sort);
-        } else {
-            log.info("Condition where keyword not null or not empty is met");
-            return productRepository.findAllProductByKeywordContains(keyword, sort)
-                    .orElseThrow(()-> {
-                        NotFoundException exception = new NotFoundException("Error! Product not found by keyword " + keyword);
-                        log.error(exception.getMessage());
-                        return exception;
-                    });
+    /**
+     * Passes every product without its price list ids to the consumer as it is read from a database cursor.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<ProductDTO> consumer) {
+        log.info("Method streamAll begin");
+        try (Stream<Object[]> rows = productRepository.streamAllWithoutPriceLists()) {
+            rows.forEach(row -> consumer.accept(new ProductDTO((Long) row[0], (Long) row[1], (String) row[2], (String) row[3],
+                    (Integer) row[4], (Unit) row[5], (String) row[6], null)));
         }
     }
 
     @Transactional
-    public List<Product> findProductsByCategoryAndByKeyword(String categoryName, String keyword, Sort sort) {
-        log.info("Method findProductsByCategoryAndByKeyword begin");
-        if (keyword == null || keyword.isEmpty()) {
-            log.info("Condition where keyword null or empty is met");
-            return productRepository.findAllProductByCategoryName(categoryName, sort)
-                    .orElseThrow(() -> {
-                        NotFoundException exception = new NotFoundException("Error! Product not found by category name " + categoryName);
-                        log.error(exception.getMessage());
-                        return exception;
-                    });
-        } else {
+    public PageDTO<ProductDTO> findProducts(String categoryName, String subcategoryName, String keyword,
+                                            Sort.Direction direction, String cursor, int size) {
+        log.info("Method findProducts begin");
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Page size should be between 1 and " + MAX_PAGE_SIZE);
+            log.error(exception.getMessage());
+            throw exception;
+        }
+        Specification<Product> specification = Specification.where(null);
+        if (categoryName != null && !categoryName.isEmpty()) {
+            log.info("Condition where categoryName not null and not empty is met");
+            specification = specification.and(ProductSpecifications.hasCategoryName(categoryName));
+        }
+        if (subcategoryName != null && !subcategoryName.isEmpty()) {
+            log.info("Condition where subcategoryName not null and not empty is met");
+            specification = specification.and(ProductSpecifications.hasSubcategoryName(subcategoryName));
+        }
+        if (keyword != null && !keyword.isEmpty()) {
             log.info("Condition where keyword not null or not empty is met");
-            return productRepository.findAllProductByKeywordContainsAndByCategoryName(categoryName, keyword, sort)
-                    .orElseThrow(() -> {
-                        NotFoundException exception = new NotFoundException("Error! Product not found by category name " + categoryName + ", and by keyword " + keyword);
-                        log.error(exception.getMessage());
-                        return exception;
-                    });
+            specification = specification.and(ProductSpecifications.containsKeyword(keyword));
+        }
+        if (cursor != null && !cursor.isEmpty()) {
+            log.info("Condition where cursor not null and not empty is met");
+            Product lastProduct = decodeCursor(cursor);
+            specification = specification.and(ProductSpecifications.isAfter(lastProduct.getName(), lastProduct.getId(), direction));
+        }
+
+        // one extra row tells whether a next page exists
+        List<Product> products = productRepository.findAll(specification, Sort.by(direction, "name", "id"), size + 1);
+        String next = null;
+        if (products.size() > size) {
+            products = products.subList(0, size);
+            next = encodeCursor(products.get(size - 1));
+        }
+        log.info("Method findProducts result set size = " + products.size());
+        return new PageDTO<>(listConverterToDTO(products), next);
+    }
+
+    private String encodeCursor(Product product) {
+        String key = product.getId() + ":" + product.getName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Product decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf(':');
+            Product product = new Product();
+            product.setId(Long.valueOf(key.substring(0, separator)));
+            product.setName(key.substring(separator + 1));
+            return product;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Invalid cursor - " + cursor);
+            log.error(exception.getMessage());
+            throw exception;
         }
     }
 
     @Transactional
-    public List<Product> findProductsBySubcategoryAndByKeyword(String subcategoryName, String keyword, Sort sort) {
-        log.info("Method findProductsBySubcategoryAndByKeyword begin");
-        if (keyword == null || keyword.isEmpty()) {
-            log.info("Condition where keyword null or empty is met");
-            return productRepository.findAllProductBySubcategoryName(subcategoryName, sort)
-                    .orElseThrow(() -> {
-                        NotFoundException exception = new NotFoundException("Error! Product not found by category name " + subcategoryName);
-                        log.error(exception.getMessage());
-                        return exception;
-                    });
-        } else {
-            log.info("Condition where keyword not null or not empty is met");
-            return productRepository.findAllProductByKeywordContainsAndBySubcategoryName(subcategoryName, keyword, sort)
-                    .orElseThrow(() -> {
-                        NotFoundException exception = new NotFoundException("Error! Product not found by category name " + subcategoryName + ", and by keyword " + keyword);
-                        log.error(exception.getMessage());
-                        return exception;
-                    });
+    public List<Product> searchProducts(String keyword, int limit) {
+        log.info("Method searchProducts begin");
+        if (keyword == null || keyword.isBlank()) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Search keyword cannot be empty");
+            log.error(exception.getMessage());
+            throw exception;
+        } else if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Search limit should be between 1 and " + MAX_SEARCH_LIMIT);
+            log.error(exception.getMessage());
+            throw exception;
         }
+        List<Product> products = productRepository.searchProductsByKeyword(keyword.trim(), limit);
+        log.info("Method searchProducts result set size = " + products.size());
+        return products;
     }
 
     @Transactional
@@ -206,6 +316,7 @@ public class ProductService implements EntityService<Product, ProductDTO> {
         }
         product.setPriceList(priceLists);
         Product savedProduct = productRepository.save(product);
+        categoryTreeCache.invalidate();
         log.info("Product " + savedProduct.getId() + " is updated");
         return convertToDTO(savedProduct);
     }
@@ -215,10 +326,34 @@ public class ProductService implements EntityService<Product, ProductDTO> {
     public void deleteById(Long id) {
         log.info("Method deleteById begin");
         idValidation(id);
+        // the price lists of the product and their prices are deleted with it
+        List<Long> priceListsId = productRepository.findPriceListsIdByProductsId(List.of(id)).stream()
+                .map(row -> (Long) row[1])
+                .collect(Collectors.toList());
         productRepository.deleteById(id);
+        priceHistoryStore.invalidate(priceListsId);
+        categoryTreeCache.invalidate();
         log.info("Product " + id + " is deleted");
     }
 
+    @Transactional
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        log.info("Method findExistingIds begin");
+        return new HashSet<>(productRepository.findExistingIds(ids));
+    }
+
+    @Transactional
+    public void idsValidation(Collection<Long> ids) {
+        log.info("Method idsValidation begin");
+        Set<Long> missingIds = new TreeSet<>(ids);
+        missingIds.removeAll(findExistingIds(ids));
+        if (!missingIds.isEmpty()) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Product does not exist with this id - " + missingIds);
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+    }
+
     @Transactional
     @Override
     public void idValidation(Long id) {
@@ -10,7 +10,11 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Slf4j
 @Service
@@ -122,6 +126,30 @@ public class StoreService {
         log.info("Store " + id + " is deleted");
     }
 
+    @Transactional
+    public List<Store> findAllById(Collection<Long> ids) {
+        log.info("Method findAllById begin");
+        return storeRepository.findAllById(ids);
+    }
+
+    @Transactional
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        log.info("Method findExistingIds begin");
+        return new HashSet<>(storeRepository.findExistingIds(ids));
+    }
+
+    @Transactional
+    public void idsValidation(Collection<Long> ids) {
+        log.info("Method idsValidation begin");
+        Set<Long> missingIds = new TreeSet<>(ids);
+        missingIds.removeAll(findExistingIds(ids));
+        if (!missingIds.isEmpty()) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Store does not exist with this id - " + missingIds);
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+    }
+
    @Transactional
     public void idValidation(Long id) {
         log.info("Method idValidation begin");
@@ -13,7 +13,15 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -21,12 +29,15 @@ public class SubcategoryService implements EntityService<Subcategory, Subcategor
     private final ISubcategoryRepository subcategoryRepository;
     private final ProductService productService;
     private final CategoryService categoryService;
+    private final CategoryTreeCache categoryTreeCache;
 
     @Autowired
-    public SubcategoryService(ISubcategoryRepository subcategoryRepository, ProductService productService, CategoryService categoryService) {
+    public SubcategoryService(ISubcategoryRepository subcategoryRepository, ProductService productService, CategoryService categoryService,
+                              CategoryTreeCache categoryTreeCache) {
         this.subcategoryRepository = subcategoryRepository;
         this.productService = productService;
         this.categoryService = categoryService;
+        this.categoryTreeCache = categoryTreeCache;
     }
 
     @PostConstruct
@@ -38,17 +49,22 @@ public class SubcategoryService implements EntityService<Subcategory, Subcategor
     @Override
     public SubcategoryDTO convertToDTO(Subcategory subcategory) {
         log.info("Method convertToDTO begin");
-        SubcategoryDTO subcategoryDTO = new SubcategoryDTO();
-        subcategoryDTO.setId(subcategory.getId());
-        subcategoryDTO.setName(subcategory.getName());
-        subcategoryDTO.setCategoryId(subcategory.getCategory().getId());
-        ArrayList<Long> productsId = new ArrayList<>();
+        ArrayList<Long> productsId = null;
         if (subcategory.getProductList() != null) {
+            productsId = new ArrayList<>();
             for (Product product : subcategory.getProductList()) {
                 productsId.add(product.getId());
             }
-            subcategoryDTO.setProductsId(productsId);
-        } else subcategoryDTO.setProductsId(null);
+        }
+        return convertToDTO(subcategory, productsId);
+    }
+
+    private SubcategoryDTO convertToDTO(Subcategory subcategory, List<Long> productsId) {
+        SubcategoryDTO subcategoryDTO = new SubcategoryDTO();
+        subcategoryDTO.setId(subcategory.getId());
+        subcategoryDTO.setName(subcategory.getName());
+        subcategoryDTO.setCategoryId(subcategory.getCategory().getId());
+        subcategoryDTO.setProductsId(productsId);
         return subcategoryDTO;
     }
 
@@ -82,16 +98,44 @@ public class SubcategoryService implements EntityService<Subcategory, Subcategor
         return subcategory;
     }
 
+    /**
+     * The product ids of all subcategories are read with one query, the products of the subcategories are not loaded.
+     */
     @Override
     public List<SubcategoryDTO> listConverterToDTO(List<Subcategory> list) {
         log.info("Method listConverterToDTO begin");
         List<SubcategoryDTO> subcategoryDTOS = new ArrayList<>();
+        if (list.isEmpty()) {
+            return subcategoryDTOS;
+        }
+        Map<Long, List<Long>> productsId = new HashMap<>();
+        List<Long> subcategoriesId = list.stream()
+                .map(Subcategory::getId)
+                .collect(Collectors.toList());
+        for (Object[] row : subcategoryRepository.findProductsIdBySubcategoriesId(subcategoriesId)) {
+            productsId.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+        }
         for (Subcategory subcategory : list) {
-            subcategoryDTOS.add(convertToDTO(subcategory));
+            subcategoryDTOS.add(convertToDTO(subcategory, productsId.getOrDefault(subcategory.getId(), new ArrayList<>())));
         }
         return subcategoryDTOS;
     }
 
+    /**
+     * Subcategories of the given categories ordered by name and grouped by category id,
+     * read with two queries whatever the number of categories and subcategories.
+     */
+    @Transactional
+    public Map<Long, List<SubcategoryDTO>> findAllDTOByCategoriesId(Collection<Long> categoriesId) {
+        log.info("Method findAllDTOByCategoriesId begin");
+        if (categoriesId.isEmpty()) {
+            return new HashMap<>();
+        }
+        List<Subcategory> subcategories = subcategoryRepository.findAllByCategoryIdIn(categoriesId, Sort.by(Sort.Direction.ASC, "name"));
+        return listConverterToDTO(subcategories).stream()
+                .collect(Collectors.groupingBy(SubcategoryDTO::getCategoryId));
+    }
+
     @Transactional
     @Override
     public SubcategoryDTO create(SubcategoryDTO subcategoryDTO) {
@@ -102,6 +146,7 @@ public class SubcategoryService implements EntityService<Subcategory, Subcategor
             subcategory.setCategory(categoryService.findById(subcategoryDTO.getCategoryId()));
             subcategory.setProductList(null);
             Subcategory savedSubcategory = subcategoryRepository.save(subcategory);
+            categoryTreeCache.invalidate();
             log.info("Subcategory " + savedSubcategory.getId() + " is created");
             return convertToDTO(savedSubcategory);
         } else {
@@ -120,6 +165,16 @@ public class SubcategoryService implements EntityService<Subcategory, Subcategor
         return subcategories;
     }
 
+    /**
+     * Subcategories of the api, built from findAll() on a cache miss.
+     */
+    @Transactional
+    public List<SubcategoryDTO> findAllDTO() {
+        log.info("Method findAllDTO begin");
+        return categoryTreeCache.get(CategoryTreeCache.SUBCATEGORIES_KEY,
+                () -> Collections.unmodifiableList(listConverterToDTO(findAll())));
+    }
+
     @Transactional
     @Override
     public Subcategory findById(Long id) {
@@ -138,6 +193,7 @@ public class SubcategoryService implements EntityService<Subcategory, Subcategor
         idValidation(subcategoryDTO.getId());
         Subcategory subcategory = convertFromDTO(subcategoryDTO);
         Subcategory savedSubcategory = subcategoryRepository.save(subcategory);
+        categoryTreeCache.invalidate();
         log.info("Subcategory " + savedSubcategory.getId() + " is updated");
         return convertToDTO(savedSubcategory);
     }
@@ -148,9 +204,28 @@ public class SubcategoryService implements EntityService<Subcategory, Subcategor
         log.info("Method deleteById begin");
         idValidation(id);
         subcategoryRepository.deleteById(id);
+        categoryTreeCache.invalidate();
         log.info("Subcategory " + id + " is deleted");
     }
 
+    @Transactional
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        log.info("Method findExistingIds begin");
+        return new HashSet<>(subcategoryRepository.findExistingIds(ids));
+    }
+
+    @Transactional
+    public void idsValidation(Collection<Long> ids) {
+        log.info("Method idsValidation begin");
+        Set<Long> missingIds = new TreeSet<>(ids);
+        missingIds.removeAll(findExistingIds(ids));
+        if (!missingIds.isEmpty()) {
+            IllegalArgumentException exception = new IllegalArgumentException("Error! Subcategory does not exist with this id - " + missingIds);
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+    }
+
     @Transactional
     @Override
     public void idValidation(Long id) {
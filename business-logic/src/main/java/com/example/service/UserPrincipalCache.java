@@ -0,0 +1,49 @@
+package com.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Principals of authenticated requests keyed by username and token issue time,
+ * so requests with the same jwt do not load the user and his roles again.
+ * Size and ttl are set by app.principalCacheSize and app.principalCacheTtlSeconds.
+ */
+@Slf4j
+@Service
+public class UserPrincipalCache {
+    public static final String CACHE_NAME = "userPrincipals";
+
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public UserPrincipalCache(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public UserDetails get(String username, Date issuedAt, Function<String, UserDetails> loader) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            return loader.apply(username);
+        }
+        String key = username + ":" + (issuedAt == null ? 0L : issuedAt.getTime());
+        return cache.get(key, () -> loader.apply(username));
+    }
+
+    /**
+     * Keys also contain the token issue time, a changed or deleted user clears the whole cache.
+     */
+    public void invalidate() {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            cache.clear();
+            log.info("Cache " + CACHE_NAME + " is cleared");
+        }
+    }
+}
@@ -19,10 +19,12 @@ import java.util.List;
 public class UserService {
 
     private final IUserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Autowired
-    public UserService(IUserRepository userRepository) {
+    public UserService(IUserRepository userRepository, UserPrincipalCache userPrincipalCache) {
         this.userRepository = userRepository;
+        this.userPrincipalCache = userPrincipalCache;
     }
 
     
@@ -113,6 +115,7 @@ public class UserService {
         user.setAddress(userDTO.getAddress());
         user.setEmail(userDTO.getEmail());
         User savedUser = userRepository.save(user);
+        userPrincipalCache.invalidate();
         log.info("User " + principal.getName() + " is updated");
         return convertToDTO(savedUser);
     }
@@ -121,6 +124,7 @@ public class UserService {
         log.info("Method update begin");
         idValidation(user.getId());
         User savedUser = userRepository.save(user);
+        userPrincipalCache.invalidate();
         log.info("User " + savedUser.getId() + " is updated");
         return savedUser;
     }
@@ -130,6 +134,7 @@ public class UserService {
         log.info("Method deleteById begin");
         idValidation(id);
         userRepository.deleteById(id);
+        userPrincipalCache.invalidate();
         log.info("User " + id + " is deleted");
     }
 
@@ -0,0 +1,152 @@
+package com.example.repository;
+
+import com.example.entity.Price;
+import com.example.entity.PriceList;
+import com.example.entity.Product;
+import com.example.entity.Subcategory;
+import com.example.enums.Unit;
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BulkInsertRepositoryTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Captor
+    ArgumentCaptor<ParameterizedPreparedStatementSetter<Product>> productSetterCaptor;
+    @Captor
+    ArgumentCaptor<PreparedStatementCreator> statementCreatorCaptor;
+    @Captor
+    ArgumentCaptor<RowCallbackHandler> rowCallbackHandlerCaptor;
+
+    private BulkInsertRepository bulkInsertRepository;
+
+    @BeforeEach
+    void init(){
+        bulkInsertRepository = new BulkInsertRepository(jdbcTemplate, 2);
+    }
+
+    private static Price price(String value, LocalDate date, long priceListId) {
+        PriceList priceList = new PriceList();
+        priceList.setId(priceListId);
+        return new Price(null, new BigDecimal(value), date, priceList);
+    }
+
+    @Test
+    public void nextIdsShouldTakeIdsFromSequenceInOneQuery(){
+        when(jdbcTemplate.queryForList("SELECT nextval('example.sequenceproduct') FROM generate_series(1, ?)", Long.class, 3))
+                .thenReturn(List.of(7L, 8L, 9L));
+
+        List<Long> ids = bulkInsertRepository.nextIds("sequenceproduct", 3);
+
+        assertThat(ids, equalTo(List.of(7L, 8L, 9L)));
+    }
+
+    @Test
+    public void insertProductsShouldSendProductsInBatchesOfBatchSize() throws SQLException {
+        Subcategory subcategory = new Subcategory();
+        subcategory.setId(4L);
+        Product product = new Product();
+        product.setId(10L);
+        product.setSubcategory(subcategory);
+        product.setName("Молоко");
+        product.setQuantity(930);
+        product.setUnit(Unit.MILLILITER);
+        Product productWithoutUnit = new Product();
+        productWithoutUnit.setId(11L);
+        productWithoutUnit.setSubcategory(subcategory);
+        List<Product> products = List.of(product, productWithoutUnit);
+
+        bulkInsertRepository.insertProducts(products);
+
+        verify(jdbcTemplate).batchUpdate(eq("INSERT INTO example.product (id, subcategory_id, name, brand, quantity, unit, manufacturer) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)"), eq(products), eq(2), productSetterCaptor.capture());
+        productSetterCaptor.getValue().setValues(preparedStatement, product);
+        verify(preparedStatement).setLong(1, 10L);
+        verify(preparedStatement).setLong(2, 4L);
+        verify(preparedStatement).setString(3, "Молоко");
+        verify(preparedStatement).setObject(5, 930);
+        verify(preparedStatement).setString(6, "MILLILITER");
+        productSetterCaptor.getValue().setValues(preparedStatement, productWithoutUnit);
+        verify(preparedStatement).setString(6, null);
+    }
+
+    @Test
+    public void insertProductsShouldThrowFailedBatchSoTheChunkTransactionIsRolledBack(){
+        DataIntegrityViolationException failure = new DataIntegrityViolationException("could not execute batch");
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), ArgumentMatchers.<ParameterizedPreparedStatementSetter<Product>>any()))
+                .thenThrow(failure);
+
+        assertThatThrownBy(() -> bulkInsertRepository.insertProducts(List.of(new Product())))
+                .isSameAs(failure);
+    }
+
+    @Test
+    public void upsertPricesShouldSendPricesAsArraysAndSplitInsertedFromUpdatedPrices() throws SQLException {
+        LocalDate date = LocalDate.of(2021, 3, 15);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(connection.createArrayOf(anyString(), any())).thenReturn(mock(Array.class));
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong(1)).thenReturn(100L, 101L);
+        when(resultSet.getBigDecimal(2)).thenReturn(new BigDecimal("10.50"), new BigDecimal("11"));
+        when(resultSet.getDate(3)).thenReturn(Date.valueOf(date));
+        when(resultSet.getLong(4)).thenReturn(1L, 2L);
+        when(resultSet.getBoolean(5)).thenReturn(true, false);
+        when(resultSet.getLong(6)).thenReturn(5L);
+        when(resultSet.getLong(7)).thenReturn(6L);
+
+        BulkInsertRepository.PriceUpsertResult result = bulkInsertRepository.upsertPrices(List.of(
+                price("10.50", date, 1L), price("11", date, 2L)));
+
+        verify(jdbcTemplate).query(statementCreatorCaptor.capture(), rowCallbackHandlerCaptor.capture());
+        statementCreatorCaptor.getValue().createPreparedStatement(connection);
+        verify(connection).createArrayOf("numeric", new Object[]{new BigDecimal("10.50"), new BigDecimal("11")});
+        verify(connection).createArrayOf("date", new Object[]{Date.valueOf(date), Date.valueOf(date)});
+        verify(connection).createArrayOf("bigint", new Object[]{1L, 2L});
+        rowCallbackHandlerCaptor.getValue().processRow(resultSet);
+        rowCallbackHandlerCaptor.getValue().processRow(resultSet);
+        assertThat(result.getInserted().size(), equalTo(1));
+        assertThat(result.getInserted().get(0).getId(), equalTo(100L));
+        assertThat(result.getInserted().get(0).getPriceList().getProduct().getId(), equalTo(5L));
+        assertThat(result.getInserted().get(0).getPriceList().getStore().getId(), equalTo(6L));
+        assertThat(result.getUpdated().size(), equalTo(1));
+        assertThat(result.getUpdated().get(0).getPrice(), equalTo(new BigDecimal("11")));
+        assertThat(result.getUpdated().get(0).getPriceList().getId(), equalTo(2L));
+    }
+}
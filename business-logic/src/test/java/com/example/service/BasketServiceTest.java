@@ -0,0 +1,169 @@
+package com.example.service;
+
+import com.example.entity.Store;
+import com.example.entity.dto.BasketDTO;
+import com.example.entity.dto.BestPriceDTO;
+import com.example.repository.IPriceListRepository;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BasketServiceTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private IPriceListRepository priceListRepository;
+    @Mock
+    private StoreService storeService;
+    @InjectMocks
+    private BasketService basketService;
+
+    private List<Object[]> rows;
+
+    @BeforeEach
+    void init(){
+        rows = new ArrayList<>();
+        lenient().when(storeService.findAllById(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> {
+                Store store = new Store();
+                store.setId(id);
+                store.setName("Store " + id);
+                return store;
+            }).collect(Collectors.toList());
+        });
+    }
+
+    @AfterEach
+    void reset(){
+        Mockito.reset(priceListRepository);
+        Mockito.reset(storeService);
+    }
+
+    private void priceList(long productId, long storeId, String currentPrice) {
+        rows.add(new Object[]{productId, storeId, productId * 100 + storeId, new BigDecimal(currentPrice)});
+    }
+
+    @Test
+    public void findCheapestStoresShouldReturnStoreWithLowestTotalOfWholeBasket(){
+        priceList(1L, 1L, "10.00");
+        priceList(2L, 1L, "20.00");
+        priceList(1L, 2L, "12.00");
+        priceList(2L, 2L, "15.00");
+        priceList(1L, 3L, "1.00");
+        when(priceListRepository.findPriceMatrixByProductsId(List.of(1L, 2L))).thenReturn(rows);
+
+        BasketDTO basketDTO = basketService.findCheapestStores(List.of(1L, 2L, 1L), 1);
+
+        verify(priceListRepository, times(1)).findPriceMatrixByProductsId(List.of(1L, 2L));
+        assertThat(basketDTO.getStoresId(), equalTo(List.of(2L)));
+        assertThat(basketDTO.getTotalPrice(), equalTo(new BigDecimal("27.00")));
+        assertThat(basketDTO.getItems().size(), equalTo(2));
+        assertThat(basketDTO.getItems().get(0).getPriceListId(), equalTo(102L));
+        assertThat(basketDTO.getItems().get(0).getStoreName(), equalTo("Store 2"));
+        assertThat(basketDTO.getUnavailableProductsId().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void findCheapestStoresShouldBuyEveryProductInCheapestStoreOfSplit(){
+        priceList(1L, 1L, "10.00");
+        priceList(2L, 1L, "20.00");
+        priceList(1L, 2L, "12.00");
+        priceList(2L, 2L, "15.00");
+        priceList(1L, 3L, "1.00");
+        when(priceListRepository.findPriceMatrixByProductsId(List.of(1L, 2L))).thenReturn(rows);
+
+        BasketDTO basketDTO = basketService.findCheapestStores(List.of(1L, 2L), 2);
+
+        assertThat(basketDTO.getStoresId(), containsInAnyOrder(2L, 3L));
+        assertThat(basketDTO.getTotalPrice(), equalTo(new BigDecimal("16.00")));
+        assertThat(basketDTO.getItems().get(0).getStoreId(), equalTo(3L));
+        assertThat(basketDTO.getItems().get(1).getStoreId(), equalTo(2L));
+    }
+
+    @Test
+    public void findCheapestStoresShouldPreferStoresSellingMoreProductsAndReportUnavailableOnes(){
+        priceList(1L, 1L, "1.00");
+        priceList(1L, 2L, "50.00");
+        priceList(2L, 2L, "50.00");
+        when(priceListRepository.findPriceMatrixByProductsId(List.of(1L, 2L, 3L))).thenReturn(rows);
+
+        BasketDTO basketDTO = basketService.findCheapestStores(List.of(1L, 2L, 3L), 1);
+
+        assertThat(basketDTO.getStoresId(), equalTo(List.of(2L)));
+        assertThat(basketDTO.getTotalPrice(), equalTo(new BigDecimal("100.00")));
+        assertThat(basketDTO.getUnavailableProductsId(), equalTo(List.of(3L)));
+    }
+
+    @Test
+    public void findCheapestStoresShouldReturnSmallerSetOfEqualTotal(){
+        // stores 1, 2 and 3 together cost as much as stores 1 and 4, the three stores are compared first
+        String[][] prices = {{"1.00", "9.00", "9.00"}, {"9.00", "1.00", "9.00"}, {"9.00", "9.00", "1.00"}, {"20.00", "1.00", "1.00"}};
+        for (int store = 0; store < prices.length; store++) {
+            for (int product = 0; product < prices[store].length; product++) {
+                priceList(product + 1, store + 1, prices[store][product]);
+            }
+        }
+        when(priceListRepository.findPriceMatrixByProductsId(List.of(1L, 2L, 3L))).thenReturn(rows);
+
+        BasketDTO basketDTO = basketService.findCheapestStores(List.of(1L, 2L, 3L), 3);
+
+        assertThat(basketDTO.getStoresId(), containsInAnyOrder(1L, 4L));
+        assertThat(basketDTO.getTotalPrice(), equalTo(new BigDecimal("3.00")));
+    }
+
+    @Test
+    public void findCheapestStoresShouldSplitLargeSearchesWithLocalSearch(){
+        // 60 stores, store i sells product i for 0.01 and the other products for 1.00,
+        // all the sets of 5 stores are too many to compare them one by one
+        List<Long> productsId = new ArrayList<>();
+        for (long product = 1; product <= 10; product++) {
+            productsId.add(product);
+            for (long store = 1; store <= 60; store++) {
+                priceList(product, store, product == store ? "0.01" : "1.00");
+            }
+        }
+        when(priceListRepository.findPriceMatrixByProductsId(productsId)).thenReturn(rows);
+
+        BasketDTO basketDTO = basketService.findCheapestStores(productsId, 5);
+
+        assertThat(basketDTO.getStoresId().size(), equalTo(5));
+        assertThat(basketDTO.getTotalPrice(), equalTo(new BigDecimal("5.05")));
+        for (BestPriceDTO item : basketDTO.getItems()) {
+            assertThat(basketDTO.getStoresId().contains(item.getStoreId()), equalTo(true));
+        }
+    }
+
+    @Test
+    public void findCheapestStoresShouldThrowIllegalArgumentExceptionForInvalidBasket(){
+        assertThatThrownBy(() -> basketService.findCheapestStores(List.of(), 1)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> basketService.findCheapestStores(List.of(1L), 0)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> basketService.findCheapestStores(List.of(1L), 6)).isInstanceOf(IllegalArgumentException.class);
+
+        verify(priceListRepository, never()).findPriceMatrixByProductsId(anyCollection());
+    }
+}
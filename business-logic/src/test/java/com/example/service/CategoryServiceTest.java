@@ -17,14 +17,18 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.*;
 
@@ -36,6 +40,7 @@ public class CategoryServiceTest {
     private static ICategoryRepository categoryRepository;
     private static SubcategoryService subcategoryService;
     private static CategoryService categoryService;
+    private static CategoryTreeCache categoryTreeCache;
 
 
     private Category category;
@@ -51,7 +56,8 @@ public class CategoryServiceTest {
     static void setMock(){
         subcategoryService = Mockito.mock(SubcategoryService.class);
         categoryRepository = Mockito.mock(ICategoryRepository.class);
-        categoryService = new CategoryService(categoryRepository);
+        categoryTreeCache = new CategoryTreeCache(new ConcurrentMapCacheManager(CategoryTreeCache.CACHE_NAME));
+        categoryService = new CategoryService(categoryRepository, categoryTreeCache);
         categoryService.setSubcategoryService(subcategoryService);
     }
 
@@ -86,6 +92,7 @@ public class CategoryServiceTest {
     void reset(){
         Mockito.reset(categoryRepository);
         Mockito.reset(subcategoryService);
+        categoryTreeCache.invalidate();
     }
 
 
@@ -134,6 +141,35 @@ public class CategoryServiceTest {
         verify(categoryRepository, times(1)).findAll(any(Sort.class));
     }
 
+    @Test
+    public void findAllDTOShouldReadCategoryRepositoryOnlyOnceUntilCacheIsInvalidated(){
+        when(categoryRepository.findAll(any(Sort.class))).thenReturn(categoryList);
+        when(subcategoryService.findAllDTOByCategoriesId(Set.of(1L))).thenReturn(Map.of(1L, List.of(subcategoryDTO)));
+
+        List<CategoryDTO> firstResult = categoryService.findAllDTO();
+        List<CategoryDTO> secondResult = categoryService.findAllDTO();
+
+        verify(categoryRepository, times(1)).findAll(any(Sort.class));
+        verify(subcategoryService, times(1)).findAllDTOByCategoriesId(Set.of(1L));
+        verify(subcategoryService, never()).convertToDTO(any());
+        assertThat(secondResult, sameInstance(firstResult));
+        assertThat(firstResult.get(0).getName(), equalTo(category.getName()));
+        assertThat(firstResult.get(0).getSubcategoryList().get(0), sameInstance(subcategoryDTO));
+    }
+
+    @Test
+    public void deleteByIdShouldInvalidateCategoryTreeCache(){
+        when(categoryRepository.findAll(any(Sort.class))).thenReturn(categoryList);
+        when(subcategoryService.findAllDTOByCategoriesId(Set.of(1L))).thenReturn(Map.of(1L, List.of(subcategoryDTO)));
+        when(categoryRepository.existsById(any(Long.class))).thenReturn(true);
+        categoryService.findAllDTO();
+
+        categoryService.deleteById(1L);
+        categoryService.findAllDTO();
+
+        verify(categoryRepository, times(2)).findAll(any(Sort.class));
+    }
+
     @Test
     public void findByIdShouldCallCategoryRepositoryMethodFindById(){
         when(categoryRepository.findById(1L)).thenReturn(Optional.of(category));
@@ -0,0 +1,62 @@
+package com.example.service;
+
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CurrentPriceUpdateQueueTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private PriceListService priceListService;
+    @InjectMocks
+    private CurrentPriceUpdateQueue currentPriceUpdateQueue;
+
+    @Captor
+    ArgumentCaptor<Collection<Long>> priceListsIdCaptor;
+
+    @AfterEach
+    void reset(){
+        Mockito.reset(priceListService);
+    }
+
+    @Test
+    public void updatePendingCurrentPricesShouldUpdateEveryEnqueuedPriceListOnce(){
+        currentPriceUpdateQueue.enqueue(1L);
+        currentPriceUpdateQueue.enqueue(2L);
+        currentPriceUpdateQueue.enqueue(1L);
+        currentPriceUpdateQueue.enqueue(null);
+
+        currentPriceUpdateQueue.updatePendingCurrentPrices();
+        currentPriceUpdateQueue.updatePendingCurrentPrices();
+
+        verify(priceListService, times(1)).updateCurrentPrices(priceListsIdCaptor.capture());
+        assertThat(priceListsIdCaptor.getValue(), containsInAnyOrder(1L, 2L));
+    }
+
+    @Test
+    public void updatePendingCurrentPricesShouldKeepPriceListsIfUpdateFailed(){
+        currentPriceUpdateQueue.enqueue(1L);
+        doThrow(new RuntimeException("connection refused")).doNothing()
+                .when(priceListService).updateCurrentPrices(anyCollection());
+
+        currentPriceUpdateQueue.updatePendingCurrentPrices();
+        currentPriceUpdateQueue.updatePendingCurrentPrices();
+
+        verify(priceListService, times(2)).updateCurrentPrices(List.of(1L));
+    }
+}
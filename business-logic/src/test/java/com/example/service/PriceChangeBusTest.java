@@ -0,0 +1,107 @@
+package com.example.service;
+
+import com.example.enums.PriceChangeType;
+import com.example.events.PriceChangeEvent;
+import com.example.exceptions.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PriceChangeBusTest {
+    private final PriceChangeBus priceChangeBus = new PriceChangeBus(2, 2, 1);
+
+    @AfterEach
+    void reset(){
+        priceChangeBus.destroy();
+    }
+
+    private static PriceChangeEvent event(long priceId, long productId, long storeId) {
+        return new PriceChangeEvent(PriceChangeType.PRICE_CREATED, priceId, productId * 100 + storeId, productId, storeId,
+                new BigDecimal("10.00"), LocalDate.of(2022, 1, 1));
+    }
+
+    @Test
+    public void onPriceChangeShouldSendOnlyEventsOfSubscribedProductsAndStores() throws InterruptedException {
+        List<Long> receivedPricesId = new ArrayList<>();
+        CountDownLatch received = new CountDownLatch(2);
+        priceChangeBus.subscribe(List.of(1L), List.of(), (events, droppedEvents) -> events.forEach(event -> {
+            receivedPricesId.add(event.getPriceId());
+            received.countDown();
+        }));
+
+        priceChangeBus.onPriceChange(event(1L, 1L, 1L));
+        priceChangeBus.onPriceChange(event(2L, 2L, 1L));
+        priceChangeBus.onPriceChange(event(3L, 1L, 2L));
+
+        assertThat(received.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(receivedPricesId, equalTo(List.of(1L, 3L)));
+    }
+
+    @Test
+    public void onPriceChangeShouldDropOldestEventsOfSlowSubscriberAndReportThem() throws InterruptedException {
+        CountDownLatch firstSend = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<Long> receivedPricesId = new ArrayList<>();
+        AtomicLong reportedDroppedEvents = new AtomicLong();
+        priceChangeBus.subscribe(List.of(), List.of(), (events, droppedEvents) -> {
+            events.forEach(event -> receivedPricesId.add(event.getPriceId()));
+            reportedDroppedEvents.addAndGet(droppedEvents);
+            if (firstSend.getCount() > 0) {
+                firstSend.countDown();
+                release.await();
+            } else if (receivedPricesId.contains(5L)) {
+                done.countDown();
+            }
+        });
+
+        priceChangeBus.onPriceChange(event(1L, 1L, 1L));
+        assertThat(firstSend.await(5, TimeUnit.SECONDS), equalTo(true));
+        // the sender is blocked by the client, the queue of 2 events keeps the latest ones
+        for (long priceId = 2; priceId <= 5; priceId++) {
+            priceChangeBus.onPriceChange(event(priceId, 1L, 1L));
+        }
+        release.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(receivedPricesId, equalTo(List.of(1L, 4L, 5L)));
+        assertThat(reportedDroppedEvents.get(), equalTo(2L));
+    }
+
+    @Test
+    public void sendShouldUnsubscribeClientThatFailed() throws InterruptedException {
+        CountDownLatch failed = new CountDownLatch(1);
+        priceChangeBus.subscribe(List.of(), List.of(), (events, droppedEvents) -> {
+            failed.countDown();
+            throw new IllegalStateException("connection closed");
+        });
+
+        priceChangeBus.onPriceChange(event(1L, 1L, 1L));
+
+        assertThat(failed.await(5, TimeUnit.SECONDS), equalTo(true));
+        for (int i = 0; i < 50 && priceChangeBus.getSubscriberCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(priceChangeBus.getSubscriberCount(), equalTo(0));
+    }
+
+    @Test
+    public void subscribeShouldThrowServiceUnavailableExceptionOverLimit(){
+        priceChangeBus.subscribe(List.of(), List.of(), (events, droppedEvents) -> { });
+        priceChangeBus.subscribe(List.of(), List.of(), (events, droppedEvents) -> { });
+
+        assertThatThrownBy(() -> priceChangeBus.subscribe(List.of(), List.of(), (events, droppedEvents) -> { }))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.service;
+
+import com.example.entity.Price;
+import com.example.entity.PriceList;
+import com.example.entity.dto.PriceDTO;
+import com.example.repository.PriceHistoryRepository;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PriceHistoryStoreTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private static final LocalDate JANUARY_1 = LocalDate.of(2021, 1, 1);
+
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    private PriceHistoryStore priceHistoryStore;
+
+    @BeforeEach
+    void init(){
+        priceHistoryStore = new PriceHistoryStore(priceHistoryRepository, true);
+        // price list 1 with prices on January 1, 10 and 20, price list 2 with one price on January 5
+        lenient().doAnswer(invocation -> {
+            PriceHistoryRepository.PriceRowHandler handler = invocation.getArgument(0);
+            handler.handle(1L, 1L, day(1), 1000L, 2);
+            handler.handle(1L, 2L, day(10), 1100L, 2);
+            handler.handle(1L, 3L, day(20), 1200L, 2);
+            handler.handle(2L, 4L, day(5), 5000L, 2);
+            return null;
+        }).when(priceHistoryRepository).forEachPrice(any());
+    }
+
+    @AfterEach
+    void reset(){
+        Mockito.reset(priceHistoryRepository);
+    }
+
+    private static int day(int dayOfJanuary) {
+        return (int) JANUARY_1.plusDays(dayOfJanuary - 1L).toEpochDay();
+    }
+
+    private static List<Long> ids(List<PriceDTO> priceDTOS) {
+        return priceDTOS.stream().map(PriceDTO::getId).collect(Collectors.toList());
+    }
+
+    private static Price price(long id, long priceListId, LocalDate date, String value) {
+        PriceList priceList = new PriceList();
+        priceList.setId(priceListId);
+        return new Price(id, new BigDecimal(value), date, priceList);
+    }
+
+    @Test
+    public void findPricesBetweenDatesShouldReturnPricesBetweenDatesInclusiveLatestFirst(){
+        priceHistoryStore.load();
+
+        Map<Long, List<PriceDTO>> prices = priceHistoryStore.findPricesBetweenDates(List.of(1L, 2L, 3L),
+                LocalDate.of(2021, 1, 1), LocalDate.of(2021, 1, 10));
+
+        assertThat(priceHistoryStore.isLoaded(), equalTo(true));
+        assertThat(ids(prices.get(1L)), equalTo(List.of(2L, 1L)));
+        assertThat(prices.get(1L).get(0).getPrice(), equalTo(new BigDecimal("11.00")));
+        assertThat(prices.get(1L).get(0).getDate(), equalTo(LocalDate.of(2021, 1, 10)));
+        assertThat(prices.get(1L).get(0).getPriceListId(), equalTo(1L));
+        assertThat(ids(prices.get(2L)), equalTo(List.of(4L)));
+        assertThat(prices.containsKey(3L), equalTo(false));
+        verify(priceHistoryRepository, never()).forEachPriceOfPriceLists(any(), any());
+    }
+
+    @Test
+    public void addAllShouldAddCreatedPricesInDateOrderWithTheirScale(){
+        priceHistoryStore.load();
+
+        priceHistoryStore.addAll(List.of(
+                price(6L, 1L, LocalDate.of(2021, 1, 15), "9.999"),
+                price(5L, 1L, LocalDate.of(2021, 1, 2), "9.50"),
+                price(7L, 3L, LocalDate.of(2021, 1, 3), "1.00")));
+
+        Map<Long, List<PriceDTO>> prices = priceHistoryStore.findPricesBetweenDates(List.of(1L, 3L),
+                LocalDate.of(2021, 1, 1), LocalDate.of(2021, 1, 31));
+        assertThat(ids(prices.get(1L)), equalTo(List.of(3L, 6L, 2L, 5L, 1L)));
+        assertThat(prices.get(1L).get(1).getPrice(), equalTo(new BigDecimal("9.999")));
+        assertThat(prices.get(1L).get(3).getPrice(), equalTo(new BigDecimal("9.50")));
+        assertThat(ids(prices.get(3L)), equalTo(List.of(7L)));
+    }
+
+    @Test
+    public void invalidateShouldReadPriceListAgainOnItsNextQuery(){
+        priceHistoryStore.load();
+        doAnswer(invocation -> {
+            PriceHistoryRepository.PriceRowHandler handler = invocation.getArgument(1);
+            handler.handle(1L, 3L, day(20), 125L, 1);
+            return null;
+        }).when(priceHistoryRepository).forEachPriceOfPriceLists(eq(List.of(1L)), any());
+
+        priceHistoryStore.invalidate(List.of(1L));
+        Map<Long, List<PriceDTO>> prices = priceHistoryStore.findPricesBetweenDates(List.of(1L, 2L),
+                LocalDate.of(2021, 1, 1), LocalDate.of(2021, 1, 31));
+        priceHistoryStore.findPricesBetweenDates(List.of(1L, 2L), LocalDate.of(2021, 1, 1), LocalDate.of(2021, 1, 31));
+
+        verify(priceHistoryRepository, times(1)).forEachPriceOfPriceLists(eq(List.of(1L)), any());
+        assertThat(ids(prices.get(1L)), equalTo(List.of(3L)));
+        assertThat(prices.get(1L).get(0).getPrice(), equalTo(new BigDecimal("12.5")));
+        assertThat(ids(prices.get(2L)), equalTo(List.of(4L)));
+    }
+
+    @Test
+    public void addAllBeforeLoadShouldReadPriceListAgainAfterLoad(){
+        priceHistoryStore.addAll(List.of(price(5L, 2L, LocalDate.of(2021, 1, 6), "49.00")));
+        priceHistoryStore.load();
+
+        priceHistoryStore.findPricesBetweenDates(List.of(2L), LocalDate.of(2021, 1, 1), LocalDate.of(2021, 1, 31));
+
+        verify(priceHistoryRepository, times(1)).forEachPriceOfPriceLists(eq(List.of(2L)), any());
+    }
+
+    @Test
+    public void loadShouldNotReadDatabaseWhenStoreIsDisabled(){
+        PriceHistoryStore disabledStore = new PriceHistoryStore(priceHistoryRepository, false);
+
+        disabledStore.load();
+
+        assertThat(disabledStore.isLoaded(), equalTo(false));
+        verifyNoInteractions(priceHistoryRepository);
+    }
+}
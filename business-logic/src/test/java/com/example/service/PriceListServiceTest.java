@@ -6,6 +6,9 @@ import com.example.entity.Product;
 import com.example.entity.Store;
 import com.example.entity.dto.PriceDTO;
 import com.example.entity.dto.PriceListDTO;
+import com.example.enums.PriceChangeType;
+import com.example.events.PriceChangeEvent;
+import com.example.repository.BulkInsertRepository;
 import com.example.repository.IPriceListRepository;
 import org.junit.Rule;
 import org.junit.jupiter.api.AfterEach;
@@ -19,13 +22,18 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -38,9 +46,13 @@ public class PriceListServiceTest {
     public MockitoRule rule = MockitoJUnit.rule();
 
     private static IPriceListRepository priceListRepository;
+    private static BulkInsertRepository bulkInsertRepository;
     private static ProductService productService;
     private static StoreService storeService;
     private static PriceService priceService;
+    private static ProductBestPriceService productBestPriceService;
+    private static PriceHistoryStore priceHistoryStore;
+    private static ApplicationEventPublisher eventPublisher;
     private static PriceListService priceListService;
 
     private PriceList priceList;
@@ -57,6 +69,10 @@ public class PriceListServiceTest {
 
     @Captor
     ArgumentCaptor<PriceList> priceListCaptor;
+    @Captor
+    ArgumentCaptor<List<PriceList>> priceListsCaptor;
+    @Captor
+    ArgumentCaptor<List<PriceDTO>> pricesCaptor;
 
     @BeforeAll
     static void setMock(){
@@ -64,7 +80,12 @@ public class PriceListServiceTest {
         productService = Mockito.mock(ProductService.class);
         storeService = Mockito.mock(StoreService.class);
         priceService = Mockito.mock(PriceService.class);
-        priceListService = new PriceListService(priceListRepository, productService, storeService);
+        bulkInsertRepository = Mockito.mock(BulkInsertRepository.class);
+        productBestPriceService = Mockito.mock(ProductBestPriceService.class);
+        priceHistoryStore = Mockito.mock(PriceHistoryStore.class);
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        priceListService = new PriceListService(priceListRepository, productService, storeService, bulkInsertRepository,
+                productBestPriceService, priceHistoryStore, eventPublisher);
 
         priceListService.setPriceService(priceService);
     }
@@ -133,9 +154,13 @@ public class PriceListServiceTest {
     @AfterEach
     void reset(){
         Mockito.reset(priceListRepository);
+        Mockito.reset(bulkInsertRepository);
         Mockito.reset(storeService);
         Mockito.reset(priceService);
         Mockito.reset(productService);
+        Mockito.reset(productBestPriceService);
+        Mockito.reset(priceHistoryStore);
+        Mockito.reset(eventPublisher);
     }
 
     @Test
@@ -182,6 +207,8 @@ public class PriceListServiceTest {
 
         verify(priceListRepository).save(priceListCaptor.capture());
         verify(priceListRepository, times(1)).save(any(PriceList.class));
+        verify(productBestPriceService, times(1)).refreshByProductsId(List.of(1L));
+        verify(priceHistoryStore, times(1)).invalidate(List.of(1L));
         assertThat(priceListCaptor.getValue().getId(), equalTo(null));
         assertThat(priceListCaptor.getValue().getStore(), equalTo(priceList.getStore()));
         assertThat(priceListCaptor.getValue().getProduct(), equalTo(priceList.getProduct()));
@@ -189,6 +216,97 @@ public class PriceListServiceTest {
         assertThat(priceListCaptor.getValue().getPriceHistoryList(), equalTo(priceList.getPriceHistoryList()));
     }
 
+    @Test
+    public void createAllShouldInsertPriceListsWithIdsFromSequence(){
+        when(bulkInsertRepository.nextIds("sequencestorehaspricelist", 1)).thenReturn(List.of(10L));
+
+        int created = priceListService.createAll(List.of(priceListDTO));
+
+        verify(storeService, times(1)).idsValidation(Set.of(1L));
+        verify(productService, times(1)).idsValidation(Set.of(1L));
+        verify(bulkInsertRepository).insertPriceLists(priceListsCaptor.capture());
+        verify(productBestPriceService, times(1)).refreshByProductsId(Set.of(1L));
+        assertThat(created, equalTo(1));
+        assertThat(priceListsCaptor.getValue().get(0).getId(), equalTo(10L));
+        assertThat(priceListsCaptor.getValue().get(0).getStore().getId(), equalTo(priceListDTO.getStoreId()));
+        assertThat(priceListsCaptor.getValue().get(0).getProduct().getId(), equalTo(priceListDTO.getProductId()));
+        assertThat(priceListsCaptor.getValue().get(0).getCurrentPrice(), equalTo(priceListDTO.getCurrentPrice()));
+    }
+
+    @Test
+    public void mergeAllShouldCreateNewPriceListsAndAddPricesOfTodayToChangedPriceListsOnly(){
+        List<PriceListDTO> snapshot = List.of(
+                new PriceListDTO(null, 1L, null, 1L, new BigDecimal("10.00"), new ArrayList<>()),
+                new PriceListDTO(null, 1L, null, 2L, new BigDecimal("20.00"), new ArrayList<>()),
+                new PriceListDTO(null, 2L, null, 3L, new BigDecimal("30.00"), new ArrayList<>()));
+        when(priceListRepository.findCurrentPrices(Set.of(1L, 2L), Set.of(1L, 2L, 3L), LocalDate.now())).thenReturn(List.<Object[]>of(
+                new Object[]{4L, 1L, 1L, new BigDecimal("10.00"), new BigDecimal("10.00")},
+                new Object[]{5L, 1L, 2L, new BigDecimal("15.00"), new BigDecimal("15.00")}));
+        when(bulkInsertRepository.nextIds("sequencestorehaspricelist", 1)).thenReturn(List.of(10L));
+
+        int merged = priceListService.mergeAll(snapshot);
+
+        verify(storeService, times(1)).idsValidation(Set.of(1L, 2L));
+        verify(productService, times(1)).idsValidation(Set.of(1L, 2L, 3L));
+        verify(bulkInsertRepository).insertPriceLists(priceListsCaptor.capture());
+        verify(priceService).importAll(pricesCaptor.capture());
+        assertThat(merged, equalTo(2));
+        assertThat(priceListsCaptor.getValue().size(), equalTo(1));
+        assertThat(priceListsCaptor.getValue().get(0).getId(), equalTo(10L));
+        assertThat(priceListsCaptor.getValue().get(0).getProduct().getId(), equalTo(3L));
+        assertThat(pricesCaptor.getValue().size(), equalTo(2));
+        assertThat(pricesCaptor.getValue().get(0).getPriceListId(), equalTo(5L));
+        assertThat(pricesCaptor.getValue().get(0).getPrice(), equalTo(new BigDecimal("20.00")));
+        assertThat(pricesCaptor.getValue().get(0).getDate(), equalTo(LocalDate.now()));
+        assertThat(pricesCaptor.getValue().get(1).getPriceListId(), equalTo(10L));
+        assertThat(pricesCaptor.getValue().get(1).getPrice(), equalTo(new BigDecimal("30.00")));
+    }
+
+    @Test
+    public void mergeAllShouldNotWriteAnythingIfCurrentPricesAreNotChanged(){
+        List<PriceListDTO> snapshot = List.of(
+                new PriceListDTO(null, 1L, null, 1L, new BigDecimal("10.001"), new ArrayList<>()));
+        when(priceListRepository.findCurrentPrices(Set.of(1L), Set.of(1L), LocalDate.now())).thenReturn(List.<Object[]>of(
+                new Object[]{4L, 1L, 1L, new BigDecimal("10.00"), new BigDecimal("10.009")}));
+
+        int merged = priceListService.mergeAll(snapshot);
+
+        assertThat(merged, equalTo(0));
+        verify(bulkInsertRepository, never()).nextIds(anyString(), anyInt());
+        verify(bulkInsertRepository, never()).insertPriceLists(anyList());
+        verify(priceService, never()).importAll(anyList());
+    }
+
+    @Test
+    public void importSnapshotShouldNotValidateIdsValidatedByImport(){
+        List<PriceListDTO> snapshot = List.of(
+                new PriceListDTO(null, 1L, null, 1L, new BigDecimal("10.00"), new ArrayList<>()));
+        when(priceListRepository.findCurrentPrices(Set.of(1L), Set.of(1L), LocalDate.now())).thenReturn(List.<Object[]>of(
+                new Object[]{4L, 1L, 1L, new BigDecimal("10.00"), new BigDecimal("10.00")}));
+
+        int merged = priceListService.importSnapshot(snapshot);
+
+        assertThat(merged, equalTo(0));
+        verify(storeService, never()).idsValidation(anyCollection());
+        verify(productService, never()).idsValidation(anyCollection());
+    }
+
+    @Test
+    public void mergeAllShouldCompareWithPriceOfTodayNotWithCurrentPriceOfFutureDate(){
+        List<PriceListDTO> snapshot = List.of(
+                new PriceListDTO(null, 1L, null, 1L, new BigDecimal("10.00"), new ArrayList<>()),
+                new PriceListDTO(null, 1L, null, 2L, new BigDecimal("20.00"), new ArrayList<>()));
+        // the current prices 12.00 and 20.00 are prices of a future date, price list 5 has no price until today
+        when(priceListRepository.findCurrentPrices(Set.of(1L), Set.of(1L, 2L), LocalDate.now())).thenReturn(List.<Object[]>of(
+                new Object[]{4L, 1L, 1L, new BigDecimal("12.00"), new BigDecimal("10.00")},
+                new Object[]{5L, 1L, 2L, new BigDecimal("20.00"), null}));
+
+        int merged = priceListService.mergeAll(snapshot);
+
+        assertThat(merged, equalTo(0));
+        verify(priceService, never()).importAll(anyList());
+    }
+
     @Test
     public void findAllShouldCallPriceListRepositoryMethodFindAll(){
         when(priceListRepository.findAll()).thenReturn(priceLists);
@@ -199,32 +317,60 @@ public class PriceListServiceTest {
     }
 
     @Test
-    public void findPriceListsForPriceComparisonByProductIdShouldCallPriceListRepositoryMethodFindAllPriceListsByProductsId(){
+    public void findPriceListsForPriceComparisonByProductIdShouldLoadPricesOfAllPriceListsWithOneCall(){
         ArrayList<Long> longs = new ArrayList<>();
         longs.add(1L);
         when(priceListRepository.findAllPriceListsByProductsId(longs)).thenReturn(Optional.of(priceLists));
+        when(priceService.findAllPricesByPriceListsId(List.of(1L))).thenReturn(prices);
+        when(priceService.convertToDTO(price1)).thenReturn(priceDTO1);
+        when(priceService.convertToDTO(price2)).thenReturn(priceDTO2);
 
-
-        priceListService.findPriceListsForPriceComparisonByProductId(longs);
+        List<PriceListDTO> priceListDTOS = priceListService.findPriceListsForPriceComparisonByProductId(longs);
 
         verify(priceListRepository, times(1)).findAllPriceListsByProductsId(longs);
+        verify(priceService, times(1)).findAllPricesByPriceListsId(List.of(1L));
+        assertThat(priceListDTOS.size(), equalTo(1));
+        assertThat(priceListDTOS.get(0).getStoreName(), equalTo(store.getName()));
+        assertThat(priceListDTOS.get(0).getPriceHistoryList().size(), equalTo(2));
     }
 
     @Test
     public void findPriceListsForComparisonOfPriceDynamicsByProductIdAndBetweenDateShouldFindAllPriceListsForComparisonOfPriceDynamicsByProductIdAndBetweenDate(){
         ArrayList<Long> longs = new ArrayList<>();
         longs.add(1L);
+        List<Price> januaryPrices = List.of(price1);
         when(priceListRepository.findAllPriceListsByProductsId(longs)).thenReturn(Optional.of(priceLists));
-        when(priceService.findAllPriceBetweenDateParam(1L,
+        when(priceService.findAllPricesByPriceListsIdBetweenDateParam(List.of(1L),
                 LocalDate.of(2021,1,1),
-                LocalDate.of(2021,2,1))).thenReturn(prices);
+                LocalDate.of(2021,2,1))).thenReturn(januaryPrices);
+        when(priceService.convertToDTO(price1)).thenReturn(priceDTO1);
 
-        priceListService.findPriceListsForComparisonOfPriceDynamicsByProductIdAndBetweenDate(longs, LocalDate.of(2021,1,1), LocalDate.of(2021,2,1));
+        List<PriceListDTO> priceListDTOS = priceListService.findPriceListsForComparisonOfPriceDynamicsByProductIdAndBetweenDate(longs, LocalDate.of(2021,1,1), LocalDate.of(2021,2,1));
 
         verify(priceListRepository, times(1)).findAllPriceListsByProductsId(longs);
-        verify(priceService, times(1)).findAllPriceBetweenDateParam(1L,
+        verify(priceService, times(1)).findAllPricesByPriceListsIdBetweenDateParam(List.of(1L),
                 LocalDate.of(2021,1,1),
                 LocalDate.of(2021,2,1));
+        verify(priceService, never()).findAllPriceBetweenDateParam(any(), any(), any());
+        assertThat(priceListDTOS.get(0).getPriceHistoryList().size(), equalTo(1));
+        assertThat(priceListDTOS.get(0).getPriceHistoryList().get(0), equalTo(priceDTO1));
+        assertThat(priceList.getPriceHistoryList(), equalTo(prices));
+    }
+
+    @Test
+    public void findPriceListsForComparisonOfPriceDynamicsByProductIdAndBetweenDateShouldReadLoadedPriceHistoryStore(){
+        ArrayList<Long> longs = new ArrayList<>();
+        longs.add(1L);
+        when(priceListRepository.findAllPriceListsByProductsId(longs)).thenReturn(Optional.of(priceLists));
+        when(priceHistoryStore.isLoaded()).thenReturn(true);
+        when(priceHistoryStore.findPricesBetweenDates(List.of(1L),
+                LocalDate.of(2021,1,1),
+                LocalDate.of(2021,2,1))).thenReturn(Map.of(1L, List.of(priceDTO1)));
+
+        List<PriceListDTO> priceListDTOS = priceListService.findPriceListsForComparisonOfPriceDynamicsByProductIdAndBetweenDate(longs, LocalDate.of(2021,1,1), LocalDate.of(2021,2,1));
+
+        verify(priceService, never()).findAllPricesByPriceListsIdBetweenDateParam(any(), any(), any());
+        assertThat(priceListDTOS.get(0).getPriceHistoryList(), equalTo(List.of(priceDTO1)));
     }
 
     @Test
@@ -232,29 +378,35 @@ public class PriceListServiceTest {
         ArrayList<Long> longs = new ArrayList<>();
         longs.add(1L);
         when(priceListRepository.findAllPriceListsByProductsIdAndStoresId(longs, longs)).thenReturn(Optional.of(priceLists));
+        when(priceService.findAllPricesByPriceListsId(List.of(1L))).thenReturn(prices);
 
         priceListService.findPriceListsForPriceComparisonByProductsIdAndStoresId(longs, longs);
 
         verify(priceListRepository, times(1)).findAllPriceListsByProductsIdAndStoresId(longs, longs);
+        verify(priceService, times(1)).findAllPricesByPriceListsId(List.of(1L));
     }
 
     @Test
     public void findPriceListsForComparisonOfPriceDynamicsByProductIdAndStoresIdAndBetweenDateShouldFindAllPriceListsForComparisonOfPriceDynamicsByProductIdAndStoresIdAndBetweenDate(){
         ArrayList<Long> longs = new ArrayList<>();
         longs.add(1L);
+        PriceList emptyPriceList = new PriceList(2L, store, product, new BigDecimal("10.00"), new ArrayList<>());
+        priceLists.add(emptyPriceList);
         when(priceListRepository.findAllPriceListsByProductsIdAndStoresId(longs, longs)).thenReturn(Optional.of(priceLists));
-        when(priceService.findAllPriceBetweenDateParam(1L,
+        when(priceService.findAllPricesByPriceListsIdBetweenDateParam(List.of(1L, 2L),
                 LocalDate.of(2021,1,1),
-                LocalDate.of(2021,2,1))).thenReturn(prices);
+                LocalDate.of(2021,2,1))).thenReturn(List.of(price1));
 
-        priceListService.findPriceListsForComparisonOfPriceDynamicsByProductIdAndStoresIdAndBetweenDate(longs, longs,
+        List<PriceListDTO> priceListDTOS = priceListService.findPriceListsForComparisonOfPriceDynamicsByProductIdAndStoresIdAndBetweenDate(longs, longs,
                 LocalDate.of(2021,1,1),
                 LocalDate.of(2021,2,1));
 
         verify(priceListRepository, times(1)).findAllPriceListsByProductsIdAndStoresId(longs, longs);
-        verify(priceService, times(1)).findAllPriceBetweenDateParam(1L,
+        verify(priceService, times(1)).findAllPricesByPriceListsIdBetweenDateParam(List.of(1L, 2L),
                 LocalDate.of(2021,1,1),
                 LocalDate.of(2021,2,1));
+        assertThat(priceListDTOS.get(0).getPriceHistoryList().size(), equalTo(1));
+        assertThat(priceListDTOS.get(1).getPriceHistoryList().size(), equalTo(0));
     }
 
     @Test
@@ -276,11 +428,14 @@ public class PriceListServiceTest {
         when(priceService.convertFromDTO(priceDTO1)).thenReturn(price1);
         when(priceService.convertFromDTO(priceDTO2)).thenReturn(price2);
 
+        when(priceListRepository.findProductIdById(1L)).thenReturn(2L);
         when(priceListRepository.save(any(PriceList.class))).thenReturn(priceList);
 
         priceListService.update(priceListDTO);
 
         verify(priceListRepository, times(1)).save(priceListCaptor.capture());
+        verify(productBestPriceService, times(1)).refreshByProductsId(Set.of(1L, 2L));
+        verify(priceHistoryStore, times(1)).invalidate(List.of(1L));
         assertThat(priceListCaptor.getValue().getId(), equalTo(priceList.getId()));
         assertThat(priceListCaptor.getValue().getStore(), equalTo(priceList.getStore()));
         assertThat(priceListCaptor.getValue().getProduct(), equalTo(priceList.getProduct()));
@@ -292,10 +447,13 @@ public class PriceListServiceTest {
     public void deleteByIdShouldCallPriceListRepositoryMethodDeleteById(){
         doNothing().when(priceListRepository).deleteById(1L);
         when(priceListRepository.existsById(1L)).thenReturn(true);
+        when(priceListRepository.findProductIdById(1L)).thenReturn(1L);
 
         priceListService.deleteById(1L);
 
         verify(priceListRepository, times(1)).deleteById(1L);
+        verify(productBestPriceService, times(1)).refreshByProductsId(List.of(1L));
+        verify(priceHistoryStore, times(1)).invalidate(List.of(1L));
     }
 
     @Test
@@ -306,16 +464,64 @@ public class PriceListServiceTest {
     }
 
     @Test
-    public void updateCurrentPriceByPriceListIdShouldUpdateCurrentPriceFieldInPriceListEntityAndSaveInRepository(){
-        priceList.setCurrentPrice(new BigDecimal("1.00").setScale(2, RoundingMode.DOWN));
-        when(priceListRepository.findById(1L)).thenReturn(Optional.of(priceList));
-        when(priceListRepository.save(any(PriceList.class))).thenReturn(priceList);
+    public void streamAllShouldGroupRowsOfOnePriceListIntoOneDTO(){
+        when(priceListRepository.streamAllWithPrices()).thenReturn(Stream.of(
+                new Object[]{1L, 2L, "Store", 3L, new BigDecimal("5.00"), 10L, new BigDecimal("6.00"), LocalDate.of(2022, 1, 1)},
+                new Object[]{1L, 2L, "Store", 3L, new BigDecimal("5.00"), 11L, new BigDecimal("5.00"), LocalDate.of(2022, 1, 2)},
+                new Object[]{4L, 2L, "Store", 5L, new BigDecimal("7.00"), null, null, null}));
+        List<PriceListDTO> streamed = new ArrayList<>();
+
+        priceListService.streamAll(streamed::add);
+
+        assertThat(streamed.size(), equalTo(2));
+        assertThat(streamed.get(0).getId(), equalTo(1L));
+        assertThat(streamed.get(0).getStoreName(), equalTo("Store"));
+        assertThat(streamed.get(0).getPriceHistoryList().size(), equalTo(2));
+        assertThat(streamed.get(0).getPriceHistoryList().get(1).getId(), equalTo(11L));
+        assertThat(streamed.get(0).getPriceHistoryList().get(1).getPriceListId(), equalTo(1L));
+        assertThat(streamed.get(1).getId(), equalTo(4L));
+        assertThat(streamed.get(1).getPriceHistoryList().isEmpty(), equalTo(true));
+    }
 
-        priceListService.updateCurrentPriceByPriceListId(1L);
+    @Test
+    public void streamAllWithoutPricesShouldConvertEveryRowToPriceListDTO(){
+        when(priceListRepository.streamAllWithoutPrices()).thenReturn(Stream.<Object[]>of(
+                new Object[]{1L, 2L, "Store", 3L, new BigDecimal("5.00")}));
+        List<PriceListDTO> streamed = new ArrayList<>();
+
+        priceListService.streamAllWithoutPrices(streamed::add);
+
+        assertThat(streamed.size(), equalTo(1));
+        assertThat(streamed.get(0).getStoreId(), equalTo(2L));
+        assertThat(streamed.get(0).getProductId(), equalTo(3L));
+        assertThat(streamed.get(0).getCurrentPrice(), equalTo(new BigDecimal("5.00")));
+        assertThat(streamed.get(0).getPriceHistoryList().isEmpty(), equalTo(true));
+    }
 
-        verify(priceListRepository, times(1)).findById(1L);
-        verify(priceListRepository, times(1)).save(priceListCaptor.capture());
-        assertThat(priceListCaptor.getValue().getCurrentPrice(), equalTo(new BigDecimal("99.99").setScale(2, RoundingMode.DOWN)));
+    @Test
+    public void updateCurrentPricesShouldUpdateAllPriceListsWithOneRepositoryCall(){
+        when(priceListRepository.updateCurrentPrices(Set.of(1L, 2L))).thenReturn(List.<Object[]>of(
+                new Object[]{BigInteger.valueOf(2L), BigInteger.valueOf(3L), BigInteger.valueOf(4L), new BigDecimal("5.00")}));
+        ArgumentCaptor<PriceChangeEvent> eventCaptor = ArgumentCaptor.forClass(PriceChangeEvent.class);
+
+        priceListService.updateCurrentPrices(Set.of(1L, 2L));
+
+        verify(priceListRepository, times(1)).updateCurrentPrices(Set.of(1L, 2L));
+        verify(priceListRepository, never()).save(any(PriceList.class));
+        verify(productBestPriceService, times(1)).refreshByPriceListsId(Set.of(1L, 2L));
+        verify(eventPublisher, times(1)).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getType(), equalTo(PriceChangeType.CURRENT_PRICE_UPDATED));
+        assertThat(eventCaptor.getValue().getPriceListId(), equalTo(2L));
+        assertThat(eventCaptor.getValue().getProductId(), equalTo(3L));
+        assertThat(eventCaptor.getValue().getStoreId(), equalTo(4L));
+        assertThat(eventCaptor.getValue().getPrice(), equalTo(new BigDecimal("5.00")));
+    }
+
+    @Test
+    public void updateCurrentPricesShouldNotCallRepositoryForEmptyCollection(){
+        priceListService.updateCurrentPrices(Set.of());
+
+        verify(priceListRepository, never()).updateCurrentPrices(anyCollection());
     }
 
     @Test
@@ -3,6 +3,9 @@ package com.example.service;
 import com.example.entity.Price;
 import com.example.entity.PriceList;
 import com.example.entity.dto.PriceDTO;
+import com.example.enums.PriceChangeType;
+import com.example.events.PriceChangeEvent;
+import com.example.repository.BulkInsertRepository;
 import com.example.repository.IPriceRepository;
 import org.junit.Rule;
 import org.junit.jupiter.api.AfterEach;
@@ -13,6 +16,8 @@ import org.mockito.*;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -20,6 +25,8 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -35,6 +42,12 @@ public class PriceServiceTest {
     private IPriceRepository priceRepository;
     @Mock
     private PriceListService priceListService;
+    @Mock
+    private BulkInsertRepository bulkInsertRepository;
+    @Mock
+    private PriceHistoryStore priceHistoryStore;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
     @InjectMocks
     private PriceService priceService;
 
@@ -46,6 +59,8 @@ public class PriceServiceTest {
 
     @Captor
     ArgumentCaptor<Price> priceCaptor;
+    @Captor
+    ArgumentCaptor<List<Price>> pricesCaptor;
 
     @BeforeEach
     void init(){
@@ -72,6 +87,9 @@ public class PriceServiceTest {
     void reset(){
         Mockito.reset(priceRepository);
         Mockito.reset(priceListService);
+        Mockito.reset(bulkInsertRepository);
+        Mockito.reset(priceHistoryStore);
+        Mockito.reset(eventPublisher);
     }
 
     @Test
@@ -107,12 +125,100 @@ public class PriceServiceTest {
         priceService.create(priceDTO);
 
         verify(priceRepository, times(1)).save(priceCaptor.capture());
+        verify(priceHistoryStore, times(1)).addAll(List.of(price));
         assertThat(priceCaptor.getValue().getId(), equalTo(null));
         assertThat(priceCaptor.getValue().getPrice(), equalTo(price.getPrice()));
         assertThat(priceCaptor.getValue().getDate(), equalTo(price.getDate()));
         assertThat(priceCaptor.getValue().getPriceList(), equalTo(price.getPriceList()));
     }
 
+    @Test
+    public void createShouldThrowIllegalArgumentExceptionIfPriceListHasPriceOnDate(){
+        priceDTO.setId(null);
+        when(priceRepository.existsOtherByPriceListIdAndDate(1L, LocalDate.of(2021,1,1), null)).thenReturn(true);
+
+        assertThatThrownBy(() -> priceService.create(priceDTO)).isInstanceOf(IllegalArgumentException.class);
+
+        verify(priceRepository, never()).save(any(Price.class));
+    }
+
+    @Test
+    public void createAllShouldUpsertPricesAndUpdateCurrentPricesOfChangedPriceLists(){
+        PriceDTO secondPriceDTO = new PriceDTO(null, new BigDecimal("70.00"), LocalDate.of(2021,2,1), 1L);
+        BulkInsertRepository.PriceUpsertResult result = new BulkInsertRepository.PriceUpsertResult();
+        result.getInserted().add(price);
+        result.getInserted().add(new Price(11L, secondPriceDTO.getPrice(), secondPriceDTO.getDate(), priceList));
+        when(bulkInsertRepository.upsertPrices(anyList())).thenReturn(result);
+
+        int created = priceService.createAll(List.of(secondPriceDTO, priceDTO));
+
+        verify(priceListService, times(1)).idsValidation(Set.of(1L));
+        verify(bulkInsertRepository).upsertPrices(pricesCaptor.capture());
+        verify(priceListService, times(1)).updateCurrentPrices(Set.of(1L));
+        verify(priceHistoryStore, times(1)).addAll(result.getInserted());
+        assertThat(created, equalTo(2));
+        assertThat(pricesCaptor.getValue().size(), equalTo(2));
+        assertThat(pricesCaptor.getValue().get(0).getDate(), equalTo(priceDTO.getDate()));
+        assertThat(pricesCaptor.getValue().get(1).getPrice(), equalTo(secondPriceDTO.getPrice()));
+        assertThat(pricesCaptor.getValue().get(1).getPriceList().getId(), equalTo(1L));
+    }
+
+    @Test
+    public void createAllShouldSendLastPriceOfPriceListAndDateAndCountNothingWhenPricesAreNotChanged(){
+        PriceDTO samePriceDTO = new PriceDTO(null, new BigDecimal("70.00"), priceDTO.getDate(), 1L);
+        when(bulkInsertRepository.upsertPrices(anyList())).thenReturn(new BulkInsertRepository.PriceUpsertResult());
+
+        int created = priceService.createAll(List.of(priceDTO, samePriceDTO));
+
+        verify(bulkInsertRepository).upsertPrices(pricesCaptor.capture());
+        verify(priceListService, times(1)).updateCurrentPrices(Set.of());
+        assertThat(created, equalTo(0));
+        assertThat(pricesCaptor.getValue().size(), equalTo(1));
+        assertThat(pricesCaptor.getValue().get(0).getPrice(), equalTo(samePriceDTO.getPrice()));
+    }
+
+    @Test
+    public void importAllShouldNotValidatePriceListIdsValidatedByImport(){
+        when(bulkInsertRepository.upsertPrices(anyList())).thenReturn(new BulkInsertRepository.PriceUpsertResult());
+
+        priceService.importAll(List.of(priceDTO));
+
+        verify(priceListService, never()).idsValidation(anyCollection());
+        verify(bulkInsertRepository, times(1)).upsertPrices(anyList());
+    }
+
+    @Test
+    public void importAllShouldThrowFailedUpsertWithoutPublishingItsPrices(){
+        // the exception rolls back the transaction of the chunk, the import reports the chunk as not imported
+        DataIntegrityViolationException failure = new DataIntegrityViolationException("could not execute statement");
+        when(bulkInsertRepository.upsertPrices(anyList())).thenThrow(failure);
+
+        assertThatThrownBy(() -> priceService.importAll(List.of(priceDTO))).isSameAs(failure);
+        verifyNoInteractions(eventPublisher);
+        verifyNoInteractions(priceHistoryStore);
+    }
+
+    @Test
+    public void createAllShouldPublishPriceChangeOfEveryCreatedAndUpdatedPrice(){
+        PriceDTO secondPriceDTO = new PriceDTO(null, new BigDecimal("70.00"), LocalDate.of(2021,2,1), 1L);
+        BulkInsertRepository.PriceUpsertResult result = new BulkInsertRepository.PriceUpsertResult();
+        result.getInserted().add(price);
+        result.getUpdated().add(new Price(11L, secondPriceDTO.getPrice(), secondPriceDTO.getDate(), priceList));
+        when(bulkInsertRepository.upsertPrices(anyList())).thenReturn(result);
+        ArgumentCaptor<PriceChangeEvent> eventCaptor = ArgumentCaptor.forClass(PriceChangeEvent.class);
+
+        int changed = priceService.createAll(List.of(priceDTO, secondPriceDTO));
+
+        verify(eventPublisher, times(2)).publishEvent(eventCaptor.capture());
+        verify(priceHistoryStore, times(1)).invalidate(Set.of(1L));
+        assertThat(changed, equalTo(2));
+        assertThat(eventCaptor.getAllValues().get(0).getType(), equalTo(PriceChangeType.PRICE_CREATED));
+        assertThat(eventCaptor.getAllValues().get(0).getPriceId(), equalTo(price.getId()));
+        assertThat(eventCaptor.getAllValues().get(1).getType(), equalTo(PriceChangeType.PRICE_UPDATED));
+        assertThat(eventCaptor.getAllValues().get(1).getPriceId(), equalTo(11L));
+        assertThat(eventCaptor.getAllValues().get(1).getPrice(), equalTo(secondPriceDTO.getPrice()));
+    }
+
     @Test
     public void findAllShouldCallPriceRepositoryMethodFindAll(){
         when(priceRepository.findAll()).thenReturn(prices);
@@ -134,6 +240,17 @@ public class PriceServiceTest {
                 LocalDate.of(2021,2,1));
     }
 
+    @Test
+    public void streamAllShouldPassEveryPriceOfRepositoryStreamToConsumer(){
+        when(priceRepository.streamAll()).thenReturn(Stream.of(priceDTO, priceDTO));
+        List<PriceDTO> streamed = new ArrayList<>();
+
+        priceService.streamAll(streamed::add);
+
+        verify(priceRepository, times(1)).streamAll();
+        assertThat(streamed, equalTo(List.of(priceDTO, priceDTO)));
+    }
+
     @Test
     public void findByIdShouldCallPriceRepositoryMethodFindById(){
         when(priceRepository.findById(1L)).thenReturn(Optional.of(price));
@@ -148,11 +265,14 @@ public class PriceServiceTest {
         when(priceRepository.existsById(1L)).thenReturn(true);
         doNothing().when(priceListService).idValidation(1L);
         when(priceListService.findById(1L)).thenReturn(priceList);
+        when(priceRepository.findPriceListIdById(1L)).thenReturn(2L);
         when(priceRepository.save(any(Price.class))).thenReturn(price);
 
         priceService.update(priceDTO);
 
         verify(priceRepository, times(1)).save(priceCaptor.capture());
+        verify(priceHistoryStore, times(1)).invalidate(List.of(2L, 1L));
+        verify(eventPublisher, times(1)).publishEvent(any(PriceChangeEvent.class));
         assertThat(priceCaptor.getValue().getId(), equalTo(price.getId()));
         assertThat(priceCaptor.getValue().getPrice(), equalTo(price.getPrice()));
         assertThat(priceCaptor.getValue().getDate(), equalTo(price.getDate()));
@@ -163,10 +283,17 @@ public class PriceServiceTest {
     public void deleteByIdShouldCallPriceRepositoryMethodDeleteById(){
         doNothing().when(priceRepository).deleteById(1L);
         when(priceRepository.existsById(1L)).thenReturn(true);
+        when(priceRepository.findById(1L)).thenReturn(Optional.of(price));
+        ArgumentCaptor<PriceChangeEvent> eventCaptor = ArgumentCaptor.forClass(PriceChangeEvent.class);
 
         priceService.deleteById(1L);
 
         verify(priceRepository, times(1)).deleteById(1L);
+        verify(priceHistoryStore, times(1)).invalidate(List.of(1L));
+        verify(eventPublisher, times(1)).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getType(), equalTo(PriceChangeType.PRICE_DELETED));
+        assertThat(eventCaptor.getValue().getPriceId(), equalTo(1L));
+        assertThat(eventCaptor.getValue().getPriceListId(), equalTo(1L));
     }
 
     @Test
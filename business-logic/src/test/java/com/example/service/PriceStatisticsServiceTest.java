@@ -0,0 +1,93 @@
+package com.example.service;
+
+import com.example.entity.dto.PriceStatisticsDTO;
+import com.example.enums.StatisticsBucket;
+import com.example.enums.StatisticsGrouping;
+import com.example.exceptions.BadRequestException;
+import com.example.repository.PriceStatisticsRepository;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PriceStatisticsServiceTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private PriceStatisticsRepository priceStatisticsRepository;
+    @InjectMocks
+    private PriceStatisticsService priceStatisticsService;
+
+    private final LocalDate startDate = LocalDate.of(2022, 1, 1);
+    private final LocalDate endDate = LocalDate.of(2022, 3, 31);
+
+    @AfterEach
+    void reset(){
+        Mockito.reset(priceStatisticsRepository);
+    }
+
+    @Test
+    public void findStatisticsShouldPassDistinctIdsAndParsedParametersToRepository(){
+        PriceStatisticsDTO statisticsDTO = new PriceStatisticsDTO(1L, 2L, startDate, new BigDecimal("10.00"), new BigDecimal("12.00"),
+                new BigDecimal("11.00"), new BigDecimal("10.00"), new BigDecimal("12.00"), new BigDecimal("20.00"), 3L);
+        when(priceStatisticsRepository.findStatistics(List.of(1L), List.of(2L), startDate, endDate, StatisticsBucket.MONTH, StatisticsGrouping.STORE))
+                .thenReturn(List.of(statisticsDTO));
+
+        List<PriceStatisticsDTO> result = priceStatisticsService.findStatistics(List.of(1L, 1L), List.of(2L), startDate, endDate, "month", "Store");
+
+        verify(priceStatisticsRepository, times(1))
+                .findStatistics(List.of(1L), List.of(2L), startDate, endDate, StatisticsBucket.MONTH, StatisticsGrouping.STORE);
+        assertThat(result, equalTo(List.of(statisticsDTO)));
+    }
+
+    @Test
+    public void findStatisticsShouldUseAllStoresWhenStoresAreNotSet(){
+        priceStatisticsService.findStatistics(List.of(1L), null, startDate, startDate, "PERIOD", "PRODUCT");
+
+        verify(priceStatisticsRepository, times(1))
+                .findStatistics(List.of(1L), List.of(), startDate, startDate, StatisticsBucket.PERIOD, StatisticsGrouping.PRODUCT);
+    }
+
+    @Test
+    public void findStatisticsShouldThrowIllegalArgumentExceptionForInvalidProductsOrDates(){
+        assertThatThrownBy(() -> priceStatisticsService.findStatistics(List.of(), null, startDate, endDate, "PERIOD", "STORE"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> priceStatisticsService.findStatistics(List.of(1L), null, null, endDate, "PERIOD", "STORE"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> priceStatisticsService.findStatistics(List.of(1L), null, endDate, startDate, "PERIOD", "STORE"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(priceStatisticsRepository, never()).findStatistics(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void findStatisticsShouldThrowBadRequestExceptionForInvalidBucketOrGrouping(){
+        assertThatThrownBy(() -> priceStatisticsService.findStatistics(List.of(1L), null, startDate, endDate, "YEAR", "STORE"))
+                .isInstanceOf(BadRequestException.class);
+
+        assertThatThrownBy(() -> priceStatisticsService.findStatistics(List.of(1L), null, startDate, endDate, "DAY", "CITY"))
+                .isInstanceOf(BadRequestException.class);
+
+        verify(priceStatisticsRepository, never()).findStatistics(any(), any(), any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.service;
+
+import com.example.entity.ProductBestPrice;
+import com.example.entity.Store;
+import com.example.entity.dto.BestPriceDTO;
+import com.example.repository.IProductBestPriceRepository;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductBestPriceServiceTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private IProductBestPriceRepository productBestPriceRepository;
+    @InjectMocks
+    private ProductBestPriceService productBestPriceService;
+
+    private ProductBestPrice productBestPrice;
+
+    @BeforeEach
+    void init(){
+        Store store = new Store();
+        store.setId(3L);
+        store.setName("Глобус");
+        productBestPrice = new ProductBestPrice(1L, 2L, store, new BigDecimal("65.12"));
+    }
+
+    @AfterEach
+    void reset(){
+        Mockito.reset(productBestPriceRepository);
+    }
+
+    @Test
+    public void findBestPricesByProductsIdShouldConvertRowsOfOneRepositoryCall(){
+        when(productBestPriceRepository.findAllByProductsId(List.of(1L, 5L))).thenReturn(List.of(productBestPrice));
+
+        List<BestPriceDTO> bestPriceDTOS = productBestPriceService.findBestPricesByProductsId(List.of(1L, 5L));
+
+        verify(productBestPriceRepository, times(1)).findAllByProductsId(List.of(1L, 5L));
+        assertThat(bestPriceDTOS.size(), equalTo(1));
+        assertThat(bestPriceDTOS.get(0).getProductId(), equalTo(1L));
+        assertThat(bestPriceDTOS.get(0).getPriceListId(), equalTo(2L));
+        assertThat(bestPriceDTOS.get(0).getStoreId(), equalTo(3L));
+        assertThat(bestPriceDTOS.get(0).getStoreName(), equalTo("Глобус"));
+        assertThat(bestPriceDTOS.get(0).getCurrentPrice(), equalTo(new BigDecimal("65.12")));
+    }
+
+    @Test
+    public void refreshByProductsIdShouldUpsertAndDeleteRowsOfProducts(){
+        productBestPriceService.refreshByProductsId(Set.of(1L, 2L));
+
+        verify(productBestPriceRepository, times(1)).refreshByProductsId(Set.of(1L, 2L));
+        verify(productBestPriceRepository, times(1)).deleteWithoutPriceListsByProductsId(Set.of(1L, 2L));
+    }
+
+    @Test
+    public void refreshByPriceListsIdShouldUpsertRowsOfProductsOfPriceLists(){
+        productBestPriceService.refreshByPriceListsId(Set.of(1L, 2L));
+
+        verify(productBestPriceRepository, times(1)).refreshByPriceListsId(Set.of(1L, 2L));
+        verify(productBestPriceRepository, never()).deleteWithoutPriceListsByProductsId(anyCollection());
+    }
+
+    @Test
+    public void refreshShouldNotCallRepositoryForEmptyCollection(){
+        productBestPriceService.refreshByProductsId(Set.of());
+        productBestPriceService.refreshByPriceListsId(Set.of());
+
+        verifyNoInteractions(productBestPriceRepository);
+    }
+}
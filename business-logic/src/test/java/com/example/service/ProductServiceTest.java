@@ -3,7 +3,10 @@ package com.example.service;
 import com.example.entity.PriceList;
 import com.example.entity.Product;
 import com.example.entity.Subcategory;
+import com.example.entity.dto.PageDTO;
 import com.example.entity.dto.ProductDTO;
+import com.example.enums.Unit;
+import com.example.repository.BulkInsertRepository;
 import com.example.repository.IProductRepository;
 import com.example.repository.ISubcategoryRepository;
 import org.junit.Rule;
@@ -12,22 +15,35 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Captor;
+import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.*;
 
@@ -38,8 +54,10 @@ public class ProductServiceTest {
 
     private static IProductRepository productRepository;
     private static ISubcategoryRepository subcategoryRepository;
+    private static BulkInsertRepository bulkInsertRepository;
     private static SubcategoryService subcategoryService;
     private static PriceListService priceListService;
+    private static PriceHistoryStore priceHistoryStore;
     private static ProductService productService;
 
 
@@ -54,6 +72,12 @@ public class ProductServiceTest {
 
     @Captor
     ArgumentCaptor<Product> productCaptor;
+    @Captor
+    ArgumentCaptor<List<Product>> productsCaptor;
+    @Captor
+    ArgumentCaptor<Specification<Product>> specificationCaptor;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+    Root<Product> root;
 
     @BeforeAll
     static void setMock(){
@@ -61,7 +85,10 @@ public class ProductServiceTest {
         subcategoryRepository = Mockito.mock(ISubcategoryRepository.class);
         subcategoryService = Mockito.mock(SubcategoryService.class);
         priceListService = Mockito.mock(PriceListService.class);
-        productService = new ProductService(productRepository,subcategoryRepository);
+        bulkInsertRepository = Mockito.mock(BulkInsertRepository.class);
+        priceHistoryStore = Mockito.mock(PriceHistoryStore.class);
+        productService = new ProductService(productRepository,subcategoryRepository, bulkInsertRepository, Mockito.mock(CategoryTreeCache.class),
+                priceHistoryStore);
         productService.setSubcategoryService(subcategoryService);
         productService.setPriceListService(priceListService);
     }
@@ -103,8 +130,10 @@ public class ProductServiceTest {
     void reset(){
         Mockito.reset(productRepository);
         Mockito.reset(subcategoryRepository);
+        Mockito.reset(bulkInsertRepository);
         Mockito.reset(subcategoryService);
         Mockito.reset(priceListService);
+        Mockito.reset(priceHistoryStore);
     }
 
     @Test
@@ -117,6 +146,38 @@ public class ProductServiceTest {
         assertThat(product.getPriceList().get(0).getId(), equalTo(productDTO.getPriceListsId().get(0)));
     }
 
+    @Test
+    public void streamAllShouldConvertEveryRowOfRepositoryStreamToProductDTO(){
+        when(productRepository.streamAllWithoutPriceLists()).thenReturn(Stream.<Object[]>of(
+                new Object[]{1L, 2L, "Milk", "Brand", 900, Unit.MILLILITER, "Manufacturer"}));
+        List<ProductDTO> streamed = new ArrayList<>();
+
+        productService.streamAll(streamed::add);
+
+        assertThat(streamed.size(), equalTo(1));
+        assertThat(streamed.get(0).getId(), equalTo(1L));
+        assertThat(streamed.get(0).getSubcategoryId(), equalTo(2L));
+        assertThat(streamed.get(0).getUnit(), equalTo(Unit.MILLILITER));
+        assertThat(streamed.get(0).getManufacturer(), equalTo("Manufacturer"));
+    }
+
+    @Test
+    public void listConverterToDTOShouldReadPriceListsIdOfAllProductsWithOneQuery(){
+        Product otherProduct = new Product();
+        otherProduct.setId(2L);
+        otherProduct.setSubcategory(subcategory);
+        product.setPriceList(null);
+        when(productRepository.findPriceListsIdByProductsId(List.of(1L, 2L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 3L},
+                new Object[]{1L, 4L}));
+
+        List<ProductDTO> productDTOS = productService.listConverterToDTO(List.of(product, otherProduct));
+
+        verify(productRepository, times(1)).findPriceListsIdByProductsId(List.of(1L, 2L));
+        assertThat(productDTOS.get(0).getPriceListsId(), equalTo(List.of(3L, 4L)));
+        assertThat(productDTOS.get(1).getPriceListsId().isEmpty(), equalTo(true));
+    }
+
     @Test
     public void convertFromDTOShouldConvertProductDTOEntityToProduct(){
         doNothing().when(subcategoryService).idValidation(1L);
@@ -150,6 +211,32 @@ public class ProductServiceTest {
         assertThat(productCaptor.getValue().getPriceList(), is(nullValue()));
     }
 
+    @Test
+    public void createAllShouldInsertProductsWithIdsFromSequence(){
+        productDTO.setId(null);
+        when(bulkInsertRepository.nextIds("sequenceproduct", 1)).thenReturn(List.of(10L));
+
+        int created = productService.createAll(List.of(productDTO));
+
+        verify(subcategoryService, times(1)).idsValidation(Set.of(1L));
+        verify(bulkInsertRepository).insertProducts(productsCaptor.capture());
+        verify(productRepository, never()).save(any(Product.class));
+        assertThat(created, equalTo(1));
+        assertThat(productsCaptor.getValue().get(0).getId(), equalTo(10L));
+        assertThat(productsCaptor.getValue().get(0).getName(), equalTo(productDTO.getName()));
+        assertThat(productsCaptor.getValue().get(0).getSubcategory().getId(), equalTo(productDTO.getSubcategoryId()));
+    }
+
+    @Test
+    public void createAllShouldNotInsertProductsWhenSubcategoryDoesNotExist(){
+        doThrow(new IllegalArgumentException("Error! Subcategory does not exist with this id - [1]"))
+                .when(subcategoryService).idsValidation(Set.of(1L));
+
+        assertThatThrownBy(() -> productService.createAll(List.of(productDTO)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(bulkInsertRepository, never()).insertProducts(anyList());
+    }
+
     @Test
     public void findAllShouldCallProductRepositoryMethodFindAll(){
         when(productRepository.findAll(any(Sort.class))).thenReturn(productList);
@@ -160,33 +247,107 @@ public class ProductServiceTest {
     }
 
     @Test
-    public void findProductsByKeywordShouldCallProductRepositoryMethodFindAllProductByKeywordContains(){
-        when(productRepository.findAllProductByKeywordContains(any(String.class), any(Sort.class))).thenReturn(Optional.of(productList));
+    public void findProductsShouldReturnLastPageWithoutNextCursor(){
+        when(productRepository.findAll(ArgumentMatchers.<Specification<Product>>any(), any(Sort.class), anyInt())).thenReturn(productList);
 
-        Sort sort = Sort.by(Sort.Direction.ASC, "name");
-        productService.findProductsByKeyword("keyword", sort);
+        PageDTO<ProductDTO> page = productService.findProducts(null, null, null, Sort.Direction.ASC, null, 50);
 
-        verify(productRepository, times(1)).findAllProductByKeywordContains("keyword", sort);
+        verify(productRepository, times(1)).findAll(ArgumentMatchers.<Specification<Product>>any(), eq(Sort.by(Sort.Direction.ASC, "name", "id")), eq(51));
+        assertThat(page.getContent().size(), equalTo(1));
+        assertThat(page.getContent().get(0).getId(), equalTo(product.getId()));
+        assertThat(page.getNext(), is(nullValue()));
+    }
+
+    @Test
+    public void findProductsShouldReturnNextCursorThatContinuesAfterLastProductOfPage(){
+        Product secondProduct = new Product();
+        secondProduct.setId(2L);
+        secondProduct.setName("Молоко \"Простоквашино\"");
+        secondProduct.setSubcategory(subcategory);
+        productList.add(secondProduct);
+        when(productRepository.findAll(ArgumentMatchers.<Specification<Product>>any(), any(Sort.class), anyInt())).thenReturn(productList);
+
+        PageDTO<ProductDTO> firstPage = productService.findProducts(null, null, null, Sort.Direction.ASC, null, 1);
+        assertThat(firstPage.getContent().size(), equalTo(1));
+        assertThat(firstPage.getNext(), is(notNullValue()));
+
+        productService.findProducts(null, null, null, Sort.Direction.ASC, firstPage.getNext(), 1);
+        verify(productRepository, times(2)).findAll(specificationCaptor.capture(), any(Sort.class), eq(2));
+
+        CriteriaBuilder cb = mock(CriteriaBuilder.class);
+        specificationCaptor.getValue().toPredicate(root, mock(CriteriaQuery.class), cb);
+
+        verify(cb).greaterThanOrEqualTo(ArgumentMatchers.<Expression<String>>any(), eq(product.getName()));
+        verify(cb).greaterThan(ArgumentMatchers.<Expression<String>>any(), eq(product.getName()));
+        verify(cb).greaterThan(ArgumentMatchers.<Expression<Long>>any(), eq(product.getId()));
     }
 
     @Test
-    public void findProductsByCategoryAndByKeywordShouldCallProductRepositoryMethodFindAllProductByKeywordContainsAndByCategoryName(){
-        when(productRepository.findAllProductByKeywordContainsAndByCategoryName(any(String.class), any(String.class), any(Sort.class))).thenReturn(Optional.of(productList));
+    public void findProductsShouldThrowIllegalArgumentExceptionIfCursorInvalidOrSizeOutOfRange(){
+        assertThatThrownBy(() -> productService.findProducts(null, null, null, Sort.Direction.ASC, "not a cursor", 50))
+                .isInstanceOf(IllegalArgumentException.class);
 
-        Sort sort = Sort.by(Sort.Direction.ASC, "name");
-        productService.findProductsByCategoryAndByKeyword("categoryName","keyword", sort);
+        assertThatThrownBy(() -> productService.findProducts(null, null, null, Sort.Direction.ASC, null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
 
-        verify(productRepository, times(1)).findAllProductByKeywordContainsAndByCategoryName("categoryName","keyword", sort);
+        assertThatThrownBy(() -> productService.findProducts(null, null, null, Sort.Direction.ASC, null, 201))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(productRepository, never()).findAll(ArgumentMatchers.<Specification<Product>>any(), any(Sort.class), anyInt());
     }
 
     @Test
-    public void findProductsBySubcategoryAndByKeywordShouldCallProductRepositoryMethodFindAllProductByKeywordContainsAndBySubcategoryName(){
-        when(productRepository.findAllProductByKeywordContainsAndBySubcategoryName(any(String.class), any(String.class), any(Sort.class))).thenReturn(Optional.of(productList));
+    public void findProductsByCategoryAndByKeywordShouldApplyCategoryToEveryKeywordMatch(){
+        productService.findProducts("categoryName", null, "keyword", Sort.Direction.ASC, null, 50);
+        verify(productRepository).findAll(specificationCaptor.capture(), any(Sort.class), anyInt());
+
+        CriteriaQuery<?> query = mock(CriteriaQuery.class);
+        CriteriaBuilder cb = mock(CriteriaBuilder.class);
+        Predicate categoryPredicate = mock(Predicate.class);
+        Predicate keywordPredicate = mock(Predicate.class);
+        Predicate combinedPredicate = mock(Predicate.class);
+        when(cb.equal(any(), eq("CATEGORYNAME"))).thenReturn(categoryPredicate);
+        when(cb.or(any(), any(), any())).thenReturn(keywordPredicate);
+        when(cb.and(categoryPredicate, keywordPredicate)).thenReturn(combinedPredicate);
+
+        Predicate predicate = specificationCaptor.getValue().toPredicate(root, query, cb);
+
+        verify(cb, times(3)).like(any(), eq("%KEYWORD%"));
+        assertThat(predicate, equalTo(combinedPredicate));
+    }
+
+    @Test
+    public void findProductsBySubcategoryShouldNotFilterByKeywordWhenKeywordEmpty(){
+        productService.findProducts(null, "subcategoryName", "", Sort.Direction.DESC, "", 50);
+        verify(productRepository).findAll(specificationCaptor.capture(), any(Sort.class), anyInt());
 
-        Sort sort = Sort.by(Sort.Direction.ASC, "name");
-        productService.findProductsBySubcategoryAndByKeyword("subcategoryName","keyword", sort);
+        CriteriaBuilder cb = mock(CriteriaBuilder.class);
+        Predicate subcategoryPredicate = mock(Predicate.class);
+        when(cb.equal(any(), eq("SUBCATEGORYNAME"))).thenReturn(subcategoryPredicate);
 
-        verify(productRepository, times(1)).findAllProductByKeywordContainsAndBySubcategoryName("subcategoryName","keyword", sort);
+        Predicate predicate = specificationCaptor.getValue().toPredicate(root, mock(CriteriaQuery.class), cb);
+
+        verify(cb, never()).like(any(), anyString());
+        assertThat(predicate, equalTo(subcategoryPredicate));
+    }
+
+    @Test
+    public void searchProductsShouldCallProductRepositoryMethodSearchProductsByKeywordWithTrimmedKeyword(){
+        when(productRepository.searchProductsByKeyword("молоко", 20)).thenReturn(productList);
+
+        List<Product> products = productService.searchProducts(" молоко ", 20);
+
+        verify(productRepository, times(1)).searchProductsByKeyword("молоко", 20);
+        assertThat(products, equalTo(productList));
+    }
+
+    @Test
+    public void searchProductsShouldThrowIllegalArgumentExceptionIfKeywordEmptyOrLimitOutOfRange(){
+        assertThatThrownBy(() -> productService.searchProducts(" ", 20)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> productService.searchProducts("молоко", 0)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThatThrownBy(() -> productService.searchProducts("молоко", 101)).isInstanceOf(IllegalArgumentException.class);
+        verify(productRepository, never()).searchProductsByKeyword(anyString(), anyInt());
     }
 
     @Test
@@ -227,6 +388,17 @@ public class ProductServiceTest {
         verify(productRepository, times(1)).deleteById(1L);
     }
 
+    @Test
+    public void deleteByIdShouldInvalidatePriceHistoryOfDeletedPriceLists(){
+        when(productRepository.existsById(any(Long.class))).thenReturn(true);
+        when(productRepository.findPriceListsIdByProductsId(List.of(1L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 3L}, new Object[]{1L, 5L}));
+
+        productService.deleteById(1L);
+
+        verify(priceHistoryStore, times(1)).invalidate(List.of(3L, 5L));
+    }
+
     @Test
     public void idValidationShouldThrowIllegalArgumentExceptionIfIdEqualsNullNotZero(){
         assertThatThrownBy(() -> {
@@ -19,7 +19,9 @@ import org.springframework.data.domain.Sort;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -37,6 +39,8 @@ public class SubcategoryServiceTest {
     private ProductService productService;
     @Mock
     private CategoryService categoryService;
+    @Mock
+    private CategoryTreeCache categoryTreeCache;
     @InjectMocks
     private SubcategoryService subcategoryService;
 
@@ -111,6 +115,32 @@ public class SubcategoryServiceTest {
     }
 
 
+    @Test
+    public void listConverterToDTOShouldReadProductsIdOfAllSubcategoriesWithOneQuery(){
+        subcategory.setProductList(null);
+        when(subcategoryRepository.findProductsIdBySubcategoriesId(List.of(1L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 5L},
+                new Object[]{1L, 6L}));
+
+        List<SubcategoryDTO> subcategoryDTOS = subcategoryService.listConverterToDTO(List.of(subcategory));
+
+        assertThat(subcategoryDTOS.get(0).getProductsId(), equalTo(List.of(5L, 6L)));
+        assertThat(subcategoryDTOS.get(0).getCategoryId(), equalTo(category.getId()));
+    }
+
+    @Test
+    public void findAllDTOByCategoriesIdShouldGroupSubcategoriesByCategoryId(){
+        when(subcategoryRepository.findAllByCategoryIdIn(eq(Set.of(1L)), any(Sort.class))).thenReturn(subcategoryList);
+        when(subcategoryRepository.findProductsIdBySubcategoriesId(List.of(1L))).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 1L}));
+
+        Map<Long, List<SubcategoryDTO>> subcategoryDTOS = subcategoryService.findAllDTOByCategoriesId(Set.of(1L));
+
+        assertThat(subcategoryDTOS.get(1L).size(), equalTo(1));
+        assertThat(subcategoryDTOS.get(1L).get(0).getName(), equalTo(subcategory.getName()));
+        assertThat(subcategoryDTOS.get(1L).get(0).getProductsId(), equalTo(List.of(1L)));
+    }
+
     @Test
     public void convertFromDTOShouldConvertSubcategoryDTOEntityToSubcategory(){
         when(subcategoryRepository.findById(1L)).thenReturn(Optional.of(subcategory));
@@ -140,6 +170,7 @@ public class SubcategoryServiceTest {
 
         verify(subcategoryRepository).save(subcategoryCaptor.capture());
         verify(subcategoryRepository, times(1)).save(any(Subcategory.class));
+        verify(categoryTreeCache, times(1)).invalidate();
         assertThat(subcategoryCaptor.getValue().getId(), equalTo(subcategoryDTO.getId()));
         assertThat(subcategoryCaptor.getValue().getName(), equalTo(subcategoryDTO.getName()));
     }
@@ -189,6 +220,7 @@ public class SubcategoryServiceTest {
         subcategoryService.deleteById(1L);
 
         verify(subcategoryRepository, times(1)).deleteById(1L);
+        verify(categoryTreeCache, times(1)).invalidate();
     }
 
     @Test
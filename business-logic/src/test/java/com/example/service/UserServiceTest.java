@@ -33,6 +33,8 @@ public class UserServiceTest {
     private Principal principal;
     @Mock
     private IUserRepository userRepository;
+    @Mock
+    private UserPrincipalCache userPrincipalCache;
     @InjectMocks
     private UserService userService;
 
@@ -171,6 +173,7 @@ public class UserServiceTest {
         userService.update(user);
 
         verify(userRepository, times(1)).save(userCaptor.capture());
+        verify(userPrincipalCache, times(1)).invalidate();
         assertThat(userCaptor.getValue().getId(), equalTo(user.getId()));
         assertThat(userCaptor.getValue().getName(), equalTo(user.getName()));
         assertThat(userCaptor.getValue().getSurname(), equalTo(user.getSurname()));
@@ -184,6 +187,7 @@ public class UserServiceTest {
         userService.deleteById(1L);
 
         verify(userRepository, times(1)).deleteById(1L);
+        verify(userPrincipalCache, times(1)).invalidate();
     }
 
     @Test
@@ -2,8 +2,12 @@ package com.example;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
+@EnableCaching
+@EnableScheduling
 @SpringBootApplication(scanBasePackages = "com.example")
 public class ApplicationStart {
 
@@ -0,0 +1,29 @@
+package com.example.config;
+
+import com.example.service.UserPrincipalCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caches with their own size and ttl, the other caches use spring.cache.caffeine.spec.
+ */
+@Configuration
+public class CacheConfiguration {
+
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> userPrincipalCacheCustomizer(
+            @Value("${app.principalCacheSize:10000}") long maximumSize,
+            @Value("${app.principalCacheTtlSeconds:60}") long ttlSeconds) {
+        return cacheManager -> cacheManager.registerCustomCache(UserPrincipalCache.CACHE_NAME, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build());
+    }
+}
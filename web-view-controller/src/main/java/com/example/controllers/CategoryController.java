@@ -43,7 +43,7 @@ public class CategoryController {
         @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
         @GetMapping()
         public List<CategoryDTO> read(){
-                return categoryService.listConverterToDTO(categoryService.findAll());
+                return categoryService.findAllDTO();
         }
 
         @Operation(
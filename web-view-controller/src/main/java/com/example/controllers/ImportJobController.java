@@ -0,0 +1,47 @@
+package com.example.controllers;
+
+
+import com.example.utils.ImportJobManager;
+import com.example.utils.pojo.ImportJob;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@Tag(name = "Import job controller", description = "This controller is designed to get the progress of background imports")
+@RestController
+@RequestMapping(path ="/import_jobs")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class ImportJobController {
+
+        private final ImportJobManager importJobManager;
+
+        @Autowired
+        public ImportJobController(ImportJobManager importJobManager) {
+                this.importJobManager = importJobManager;
+        }
+
+        @Operation(
+                summary = "Get all import jobs (only for admin role)",
+                description = "Allows you to get the queued, running and recently finished import jobs, from the newest"
+        )
+        @PreAuthorize("hasRole('ADMIN')")
+        @GetMapping()
+        public List<ImportJob> readAll(){
+                return importJobManager.findAll();
+        }
+
+        @Operation(
+                summary = "Get import job by id (only for admin role)",
+                description = "Allows you to get the status, rows read and imported, failed chunks and throughput of an import job"
+        )
+        @PreAuthorize("hasRole('ADMIN')")
+        @GetMapping("/{id}")
+        public ImportJob read(@PathVariable("id") UUID id){
+                return importJobManager.findById(id);
+        }
+}
@@ -2,24 +2,36 @@ package com.example.controllers;
 
 
 import com.example.entity.dto.PriceDTO;
-import com.example.service.PriceListService;
+import com.example.entity.dto.PriceStatisticsDTO;
+import com.example.enums.ImportJobType;
+import com.example.service.CurrentPriceUpdateQueue;
 import com.example.service.PriceService;
+import com.example.service.PriceStatisticsService;
 import com.example.utils.ExcelUtils;
+import com.example.utils.ExportUtils;
+import com.example.utils.ImportJobManager;
+import com.example.utils.JsonArrayStreamer;
+import com.example.utils.pojo.ImportJob;
+import com.example.utils.pojo.ImportReport;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.apache.poi.ss.usermodel.Sheet;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-
-import static com.example.service.PriceService.distinctByKey;
 
 @Tag(name = "Price controller", description = "This controller is designed to get prices and edit them")
 @RestController
@@ -28,14 +40,24 @@ import static com.example.service.PriceService.distinctByKey;
 public class PriceController {
 
         private final PriceService priceService;
-        private final PriceListService priceListService;
+        private final CurrentPriceUpdateQueue currentPriceUpdateQueue;
         private final ExcelUtils excelUtils;
+        private final PriceStatisticsService priceStatisticsService;
+        private final JsonArrayStreamer jsonArrayStreamer;
+        private final ExportUtils exportUtils;
+        private final ImportJobManager importJobManager;
 
         @Autowired
-        public PriceController(PriceService priceService, PriceListService priceListService, ExcelUtils excelUtils) {
+        public PriceController(PriceService priceService, CurrentPriceUpdateQueue currentPriceUpdateQueue, ExcelUtils excelUtils,
+                               PriceStatisticsService priceStatisticsService, JsonArrayStreamer jsonArrayStreamer, ExportUtils exportUtils,
+                               ImportJobManager importJobManager) {
                 this.priceService = priceService;
-                this.priceListService = priceListService;
+                this.currentPriceUpdateQueue = currentPriceUpdateQueue;
                 this.excelUtils = excelUtils;
+                this.priceStatisticsService = priceStatisticsService;
+                this.jsonArrayStreamer = jsonArrayStreamer;
+                this.exportUtils = exportUtils;
+                this.importJobManager = importJobManager;
         }
 
         @Operation(
@@ -47,37 +69,68 @@ public class PriceController {
         @ResponseStatus(HttpStatus.CREATED)
         public PriceDTO create(@RequestBody PriceDTO priceDTO) {
                 PriceDTO savedPriceDTO = priceService.create(priceDTO);
-                priceListService.updateCurrentPriceByPriceListId(savedPriceDTO.getPriceListId());
+                currentPriceUpdateQueue.enqueue(savedPriceDTO.getPriceListId());
             return savedPriceDTO;
         }
 
         @Operation(
                 summary = "Import from excel file(only for admin role)",
-                description = "Allows import prices from excel file"
+                description = "Allows import prices from every sheet of excel files"
         )
         @PreAuthorize("hasRole('ADMIN')")
         @PostMapping(path = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
         @ResponseStatus(HttpStatus.OK)
-        public List<PriceDTO> create(@Parameter(description = "Excel file named importPrices") @RequestParam("importPrices") MultipartFile multipartFile) {
-                Sheet sheet = excelUtils.readXlsxFile(multipartFile);
-                List<PriceDTO> prices = excelUtils.createPrices(sheet),
-                        pricesFiltered = prices.stream()
-                        .filter(distinctByKey(PriceDTO::getPriceListId))
-                        .collect(Collectors.toList());
-                for (PriceDTO priceDTO : pricesFiltered){
-                        priceListService.updateCurrentPriceByPriceListId(priceDTO.getPriceListId());
-                }
-                return prices;
+        public ImportReport create(@Parameter(description = "Excel files named importPrices") @RequestParam("importPrices") List<MultipartFile> multipartFiles,
+                                   @Parameter(description = "Import the prices concurrently, the rows are split by price list (optional, default false - the sheets one after another). Every sheet of every file is imported in both modes, a price list and date repeated in the files keeps the price of the last row") @RequestParam(defaultValue = "false") boolean parallel) {
+                return excelUtils.createPrices(multipartFiles, parallel);
+        }
+
+        @Operation(
+                summary = "Import from excel file in the background (only for admin role)",
+                description = "Allows import prices from every sheet of excel files without waiting for the end of the import, returns the import job, its progress is read from /import_jobs/{id}"
+        )
+        @PreAuthorize("hasRole('ADMIN')")
+        @PostMapping(path = "/upload/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+        @ResponseStatus(HttpStatus.ACCEPTED)
+        public ImportJob createAsync(@Parameter(description = "Excel files named importPrices") @RequestParam("importPrices") List<MultipartFile> multipartFiles,
+                                     @Parameter(description = "Import the prices concurrently, the rows are split by price list (optional, default false - the sheets one after another). Every sheet of every file is imported in both modes, a price list and date repeated in the files keeps the price of the last row") @RequestParam(defaultValue = "false") boolean parallel) {
+                return importJobManager.submit(ImportJobType.PRICES, multipartFiles, parallel);
+        }
+
+        @Operation(
+                summary = "Export prices to xlsx or csv file",
+                description = "Allows you to download all prices, the file is written while the prices are read from the database"
+        )
+        @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+        @GetMapping("/export")
+        public ResponseEntity<StreamingResponseBody> export(@Parameter(description = "xlsx or csv (optional, default xlsx)") @RequestParam(defaultValue = "xlsx") String format) {
+                return exportUtils.exportPrices(format);
         }
 
         @Operation(
                 summary = "Get all price",
-                description = "Allows you to get all prices"
+                description = "Allows you to get all prices, the list is streamed while it is read from the database",
+                responses = @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = PriceDTO.class))))
         )
         @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
         @GetMapping()
-        public List<PriceDTO> read(){
-                return priceService.listConverterToDTO(priceService.findAll());
+        public ResponseEntity<StreamingResponseBody> read(){
+                return jsonArrayStreamer.stream(priceService::streamAll);
+        }
+
+        @Operation(
+                summary = "Get price statistics",
+                description = "Allows you to get min, max, average, first and last price and the change in percent per product or per store over a date range, by day, week, month or for the whole period"
+        )
+        @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+        @GetMapping("/statistics")
+        public List<PriceStatisticsDTO> findStatistics(@Parameter(description = "Products id") @RequestParam(name = "productsId") ArrayList<Long> productsId,
+                                                       @Parameter(description = "Store id (optional)") @RequestParam(name = "stores_id", required = false) ArrayList<Long> storesId,
+                                                       @Parameter(description = "Start date") @RequestParam(name = "start_date") LocalDate startDate,
+                                                       @Parameter(description = "End date") @RequestParam(name = "end_date") LocalDate endDate,
+                                                       @Parameter(description = "DAY, WEEK, MONTH or PERIOD, PERIOD by default (optional)") @RequestParam(name = "bucket", defaultValue = "PERIOD") String bucket,
+                                                       @Parameter(description = "STORE or PRODUCT, STORE by default (optional)") @RequestParam(name = "group_by", defaultValue = "STORE") String groupBy) {
+                return priceStatisticsService.findStatistics(productsId, storesId, startDate, endDate, bucket, groupBy);
         }
 
         @Operation(
@@ -98,7 +151,7 @@ public class PriceController {
         @PutMapping()
         public PriceDTO update(@RequestBody PriceDTO priceDTO){
                 PriceDTO tempPriceDTO = priceService.update(priceDTO);
-                priceListService.updateCurrentPriceByPriceListId(tempPriceDTO.getPriceListId());
+                currentPriceUpdateQueue.enqueue(tempPriceDTO.getPriceListId());
             return tempPriceDTO;
 
         }
@@ -113,6 +166,6 @@ public class PriceController {
         public void delete(@PathVariable Long id) {
                 Long priceListId = priceService.findById(id).getPriceList().getId();
                 priceService.deleteById(id);
-                priceListService.updateCurrentPriceByPriceListId(priceListId);
+                currentPriceUpdateQueue.enqueue(priceListId);
         }
 }
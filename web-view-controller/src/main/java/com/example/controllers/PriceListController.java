@@ -1,21 +1,39 @@
 package com.example.controllers;
 
 
-import com.example.entity.PriceList;
+import com.example.entity.dto.BasketDTO;
+import com.example.entity.dto.BestPriceDTO;
 import com.example.entity.dto.PriceListDTO;
+import com.example.enums.ImportJobType;
+import com.example.events.PriceChangeEvent;
+import com.example.service.BasketService;
+import com.example.service.PriceChangeBus;
 import com.example.service.PriceListService;
+import com.example.service.ProductBestPriceService;
 import com.example.utils.ExcelUtils;
+import com.example.utils.ExportUtils;
+import com.example.utils.ImportJobManager;
+import com.example.utils.JsonArrayStreamer;
+import com.example.utils.pojo.ImportJob;
+import com.example.utils.pojo.ImportReport;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.Sheet;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -29,12 +47,29 @@ import java.util.List;
 public class PriceListController {
 
         private final PriceListService priceListService;
+        private final ProductBestPriceService productBestPriceService;
+        private final BasketService basketService;
         private final ExcelUtils excelUtils;
+        private final PriceChangeBus priceChangeBus;
+        private final JsonArrayStreamer jsonArrayStreamer;
+        private final ExportUtils exportUtils;
+        private final ImportJobManager importJobManager;
+        private final long priceChangeStreamTimeoutMs;
 
         @Autowired
-        public PriceListController(PriceListService priceListService, ExcelUtils excelUtils) {
+        public PriceListController(PriceListService priceListService, ProductBestPriceService productBestPriceService,
+                                   BasketService basketService, ExcelUtils excelUtils, PriceChangeBus priceChangeBus,
+                                   JsonArrayStreamer jsonArrayStreamer, ExportUtils exportUtils, ImportJobManager importJobManager,
+                                   @Value("${app.priceChangeStreamTimeoutMs:1800000}") long priceChangeStreamTimeoutMs) {
                 this.priceListService = priceListService;
+                this.productBestPriceService = productBestPriceService;
+                this.basketService = basketService;
                 this.excelUtils = excelUtils;
+                this.priceChangeBus = priceChangeBus;
+                this.jsonArrayStreamer = jsonArrayStreamer;
+                this.exportUtils = exportUtils;
+                this.importJobManager = importJobManager;
+                this.priceChangeStreamTimeoutMs = priceChangeStreamTimeoutMs;
         }
 
         @Operation(
@@ -50,29 +85,54 @@ public class PriceListController {
 
         @Operation(
                 summary = "Import from excel file (only for admin role)",
-                description = "Allows import priceLists from excel file"
+                description = "Allows import priceLists from every sheet of excel file"
         )
         @PreAuthorize("hasRole('ADMIN')")
         @PostMapping(path = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
         @ResponseStatus(HttpStatus.OK)
-        public List<PriceListDTO> create(@Parameter(description = "Excel file named importPriceLists") @RequestParam("importPriceLists") MultipartFile multipartFile) {
-                Sheet sheet = excelUtils.readXlsxFile(multipartFile);
-                return excelUtils.createPriceLists(sheet);
+        public ImportReport create(@Parameter(description = "Excel files named importPriceLists") @RequestParam("importPriceLists") List<MultipartFile> multipartFiles,
+                                   @Parameter(description = "Import the sheets concurrently, a sheet is split into row ranges (optional, default false - the sheets one after another). Every sheet of every file is imported in both modes") @RequestParam(defaultValue = "false") boolean parallel,
+                                   @Parameter(description = "The files are a full snapshot, only new price lists and changed current prices are written, a change adds a price of today, not together with parallel (optional, default false - every row creates a price list)") @RequestParam(defaultValue = "false") boolean diff) {
+                return excelUtils.createPriceLists(multipartFiles, parallel, diff);
+        }
+
+        @Operation(
+                summary = "Import from excel file in the background (only for admin role)",
+                description = "Allows import price lists from every sheet of excel files without waiting for the end of the import, returns the import job, its progress is read from /import_jobs/{id}"
+        )
+        @PreAuthorize("hasRole('ADMIN')")
+        @PostMapping(path = "/upload/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+        @ResponseStatus(HttpStatus.ACCEPTED)
+        public ImportJob createAsync(@Parameter(description = "Excel files named importPriceLists") @RequestParam("importPriceLists") List<MultipartFile> multipartFiles,
+                                     @Parameter(description = "Import the sheets concurrently, a sheet is split into row ranges (optional, default false - the sheets one after another). Every sheet of every file is imported in both modes") @RequestParam(defaultValue = "false") boolean parallel,
+                                   @Parameter(description = "The files are a full snapshot, only new price lists and changed current prices are written, a change adds a price of today, not together with parallel (optional, default false - every row creates a price list)") @RequestParam(defaultValue = "false") boolean diff) {
+                return importJobManager.submit(diff ? ImportJobType.PRICE_LISTS_DIFF : ImportJobType.PRICE_LISTS, multipartFiles, parallel);
+        }
+
+        @Operation(
+                summary = "Export priceLists to xlsx or csv file",
+                description = "Allows you to download all priceLists without their prices, the file is written while the priceLists are read from the database"
+        )
+        @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+        @GetMapping("/export")
+        public ResponseEntity<StreamingResponseBody> export(@Parameter(description = "xlsx or csv (optional, default xlsx)") @RequestParam(defaultValue = "xlsx") String format) {
+                return exportUtils.exportPriceLists(format);
         }
 
         @Operation(
                 summary = "Get all priceLists with params",
-                description = "Allows you to get all priceLists with params"
+                description = "Allows you to get all priceLists with params, without params the list is streamed while it is read from the database",
+                responses = @ApiResponse(responseCode = "200", content = @Content(array = @ArraySchema(schema = @Schema(implementation = PriceListDTO.class))))
         )
         @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
         @GetMapping()
-        public List<PriceListDTO> findPriceLists(@Parameter(description = "Product id (optional)") @RequestParam(name = "productsId", required = false) ArrayList<Long> productsId,
-                                                 @Parameter(description = "Store id (optional)") @RequestParam(name = "stores_id", required = false) ArrayList<Long> storesId,
-                                                 @Parameter(description = "Start date, mandatory with end date parameter (optional)") @RequestParam(name = "start_date", required = false) LocalDate startDate,
-                                                 @Parameter(description = "End date, mandatory with start date parameter (optional)") @RequestParam(name = "end_date", required = false) LocalDate endDate){
+        public ResponseEntity<StreamingResponseBody> findPriceLists(@Parameter(description = "Product id (optional)") @RequestParam(name = "productsId", required = false) ArrayList<Long> productsId,
+                                                                    @Parameter(description = "Store id (optional)") @RequestParam(name = "stores_id", required = false) ArrayList<Long> storesId,
+                                                                    @Parameter(description = "Start date, mandatory with end date parameter (optional)") @RequestParam(name = "start_date", required = false) LocalDate startDate,
+                                                                    @Parameter(description = "End date, mandatory with start date parameter (optional)") @RequestParam(name = "end_date", required = false) LocalDate endDate){
                 log.info("Endpoint findPriceLists begin");
-                List<PriceList> resultPriceLists;
-                if (productsId != null || productsId.isEmpty()) {
+                List<PriceListDTO> resultPriceLists;
+                if (productsId != null && !productsId.isEmpty()) {
                         log.info("Condition where productsId not null or not empty is met");
                         if (storesId == null || storesId.isEmpty()) {
                                 log.info("Condition where storeId = null or empty is met");
@@ -93,11 +153,65 @@ public class PriceListController {
                         }
                 } else {
                         log.info("Condition where productsId null or empty is met");
-                        resultPriceLists = priceListService.findAll();
+                        return jsonArrayStreamer.stream(priceListService::streamAll);
                 }
-                return priceListService.listConverterToDTO(resultPriceLists);
+                return jsonArrayStreamer.stream(resultPriceLists::forEach);
+        }
+
+
+        @Operation(
+                summary = "Get the cheapest store of products",
+                description = "Allows you to get the priceList with the lowest current price of every product, products without priceLists are left out"
+        )
+        @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+        @GetMapping("/best_prices")
+        public List<BestPriceDTO> findBestPrices(@Parameter(description = "Products id") @RequestParam(name = "productsId") ArrayList<Long> productsId) {
+                log.info("Endpoint findBestPrices begin");
+                return productBestPriceService.findBestPricesByProductsId(productsId);
+        }
+
+        @Operation(
+                summary = "Subscribe to price changes",
+                description = "Server-sent events of created, updated and deleted prices and changed current prices of the products and stores. " +
+                        "An overflow event means that changes were dropped for a slow client, the priceLists should be read again"
+        )
+        @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+        @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        public SseEmitter streamPriceChanges(@Parameter(description = "Products id, all products when not set (optional)") @RequestParam(name = "productsId", required = false) ArrayList<Long> productsId,
+                                             @Parameter(description = "Stores id, all stores when not set (optional)") @RequestParam(name = "stores_id", required = false) ArrayList<Long> storesId) {
+                log.info("Endpoint streamPriceChanges begin");
+                SseEmitter emitter = new SseEmitter(priceChangeStreamTimeoutMs);
+                PriceChangeBus.Subscription subscription = priceChangeBus.subscribe(
+                        productsId == null ? List.of() : productsId, storesId == null ? List.of() : storesId,
+                        (events, droppedEvents) -> {
+                                if (droppedEvents > 0) {
+                                        emitter.send(SseEmitter.event().name("overflow").data(droppedEvents));
+                                }
+                                if (events.isEmpty() && droppedEvents == 0) {
+                                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                                }
+                                for (PriceChangeEvent event : events) {
+                                        emitter.send(SseEmitter.event().name(event.getType().name().toLowerCase())
+                                                .data(event, MediaType.APPLICATION_JSON));
+                                }
+                        });
+                emitter.onCompletion(() -> priceChangeBus.unsubscribe(subscription));
+                emitter.onTimeout(() -> priceChangeBus.unsubscribe(subscription));
+                emitter.onError(throwable -> priceChangeBus.unsubscribe(subscription));
+                return emitter;
         }
 
+        @Operation(
+                summary = "Get the cheapest stores for a basket of products",
+                description = "Allows you to get the store, or the split over at most max_stores stores, with the lowest total of current prices for the basket"
+        )
+        @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+        @GetMapping("/basket")
+        public BasketDTO findCheapestStores(@Parameter(description = "Products id of the basket") @RequestParam(name = "productsId") ArrayList<Long> productsId,
+                                            @Parameter(description = "Maximum number of stores, 1 by default (optional)") @RequestParam(name = "max_stores", defaultValue = "1") int maxStores) {
+                log.info("Endpoint findCheapestStores begin");
+                return basketService.findCheapestStores(productsId, maxStores);
+        }
 
         @Operation(
                 summary = "Get priceList by id",
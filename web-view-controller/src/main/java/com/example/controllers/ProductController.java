@@ -1,22 +1,29 @@
 package com.example.controllers;
 
 
+import com.example.entity.dto.PageDTO;
 import com.example.entity.dto.ProductDTO;
+import com.example.enums.ImportJobType;
 import com.example.exceptions.BadRequestException;
 import com.example.service.ProductService;
 import com.example.utils.ExcelUtils;
+import com.example.utils.ExportUtils;
+import com.example.utils.ImportJobManager;
+import com.example.utils.pojo.ImportJob;
+import com.example.utils.pojo.ImportReport;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.Sheet;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -31,6 +38,10 @@ public class ProductController {
         private ProductService productService;
         @Autowired
         private ExcelUtils excelUtils;
+        @Autowired
+        private ExportUtils exportUtils;
+        @Autowired
+        private ImportJobManager importJobManager;
 
         @Operation(
                 summary = "Create a new product (only for admin role)",
@@ -45,26 +56,50 @@ public class ProductController {
 
         @Operation(
                 summary = "Import from excel file (only for admin role)",
-                description = "Allows import products from excel file"
+                description = "Allows import products from every sheet of excel files"
         )
         @PreAuthorize("hasRole('ADMIN')")
         @PostMapping(path = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
         @ResponseStatus(HttpStatus.OK)
-        public List<ProductDTO> create(@Parameter(description = "Excel file named importProducts") @RequestParam("importProducts") MultipartFile multipartFile) {
-               Sheet sheet = excelUtils.readXlsxFile(multipartFile);
-               return excelUtils.createProducts(sheet);
+        public ImportReport create(@Parameter(description = "Excel files named importProducts") @RequestParam("importProducts") List<MultipartFile> multipartFiles,
+                                   @Parameter(description = "Import the sheets concurrently, a sheet is split into row ranges (optional, default false - the sheets one after another). Every sheet of every file is imported in both modes") @RequestParam(defaultValue = "false") boolean parallel) {
+               return excelUtils.createProducts(multipartFiles, parallel);
         }
 
         @Operation(
-                summary = "Get all products with params",
-                description = "Allows you to get all products with params"
+                summary = "Import from excel file in the background (only for admin role)",
+                description = "Allows import products from every sheet of excel files without waiting for the end of the import, returns the import job, its progress is read from /import_jobs/{id}"
+        )
+        @PreAuthorize("hasRole('ADMIN')")
+        @PostMapping(path = "/upload/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+        @ResponseStatus(HttpStatus.ACCEPTED)
+        public ImportJob createAsync(@Parameter(description = "Excel files named importProducts") @RequestParam("importProducts") List<MultipartFile> multipartFiles,
+                                     @Parameter(description = "Import the sheets concurrently, a sheet is split into row ranges (optional, default false - the sheets one after another). Every sheet of every file is imported in both modes") @RequestParam(defaultValue = "false") boolean parallel) {
+                return importJobManager.submit(ImportJobType.PRODUCTS, multipartFiles, parallel);
+        }
+
+        @Operation(
+                summary = "Export products to xlsx or csv file",
+                description = "Allows you to download all products, the file is written while the products are read from the database"
+        )
+        @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+        @GetMapping("/export")
+        public ResponseEntity<StreamingResponseBody> export(@Parameter(description = "xlsx or csv (optional, default xlsx)") @RequestParam(defaultValue = "xlsx") String format) {
+                return exportUtils.exportProducts(format);
+        }
+
+        @Operation(
+                summary = "Get a page of products with params",
+                description = "Allows you to get products with params page by page, pass the next cursor of a page to get the following one"
         )
         @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
         @GetMapping()
-        public List<ProductDTO> findProducts(@Parameter(description = "Category name, do not use at the same time as the subcategory name (optional)") @RequestParam(required = false) String categoryName,
+        public PageDTO<ProductDTO> findProducts(@Parameter(description = "Category name, do not use at the same time as the subcategory name (optional)") @RequestParam(required = false) String categoryName,
                                              @Parameter(description = "Subcategory name, do not use at the same time as the category name (optional)") @RequestParam(required = false) String subcategoryName,
                                              @Parameter(description = "Keyword to search for a product, by name, manufacturer or brand (optional)") @RequestParam(name = "search_keyword",required = false) String searchKeyword,
-                                             @Parameter(description = "Sorting direction - asc or desc (required)") @RequestParam(name = "sorting_direction") String sortingDirection){
+                                             @Parameter(description = "Sorting direction - asc or desc (required)") @RequestParam(name = "sorting_direction") String sortingDirection,
+                                             @Parameter(description = "Cursor from the next field of the previous page, empty for the first page (optional)") @RequestParam(required = false) String cursor,
+                                             @Parameter(description = "Page size, from 1 to 200 (optional, default 50)") @RequestParam(defaultValue = "50") int size){
                 log.info("Endpoint findProducts begin");
                 Sort.Direction direction;
                 try {
@@ -75,25 +110,25 @@ public class ProductController {
                         log.error(exception.getMessage());
                         throw exception;
                 }
-                Sort sort = Sort.by(direction, "name");
 
                 if (categoryName != null & subcategoryName != null) {
                         BadRequestException exception = new BadRequestException("Error! Invalid request: sorting by categoryName and subcategoryName is not allowed at the same time!");
                         log.error(exception.getMessage());
                         throw exception;
-                } else if (categoryName != null && !categoryName.isEmpty()) {
-                        log.info("Condition where categoryName not null and not empty is met");
-                        return productService.listConverterToDTO(
-                                productService.findProductsByCategoryAndByKeyword(categoryName, searchKeyword, sort));
-                } else if (subcategoryName != null && !subcategoryName.isEmpty()) {
-                        log.info("Condition where subcategoryName not null and not empty is met");
-                        return productService.listConverterToDTO(
-                                productService.findProductsBySubcategoryAndByKeyword(subcategoryName, searchKeyword, sort));
-                } else {
-                        log.info("Condition where categoryName and subcategoryName null or empty is met");
-                        return productService.listConverterToDTO(
-                                productService.findProductsByKeyword(searchKeyword, sort));
                 }
+                return productService.findProducts(categoryName, subcategoryName, searchKeyword, direction, cursor, size);
+        }
+
+        @Operation(
+                summary = "Search products by relevance",
+                description = "Allows you to find products whose name, brand or manufacturer contains the keyword, best matches first"
+        )
+        @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+        @GetMapping("/search")
+        public List<ProductDTO> searchProducts(@Parameter(description = "Keyword to search for a product, by name, manufacturer or brand (required)") @RequestParam(name = "search_keyword") String searchKeyword,
+                                               @Parameter(description = "Maximum number of products, from 1 to 100 (optional, default 20)") @RequestParam(defaultValue = "20") int limit){
+                log.info("Endpoint searchProducts begin");
+                return productService.listConverterToDTO(productService.searchProducts(searchKeyword, limit));
         }
 
         @Operation(
@@ -44,7 +44,7 @@ public class SubcategoryController {
         @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
         @GetMapping()
         public List<SubcategoryDTO> read(){
-                return subcategoryService.listConverterToDTO(subcategoryService.findAll());
+                return subcategoryService.findAllDTO();
         }
 
         @Operation(
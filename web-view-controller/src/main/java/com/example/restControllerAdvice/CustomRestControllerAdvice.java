@@ -2,6 +2,7 @@ package com.example.restControllerAdvice;
 
 import com.example.exceptions.BadRequestException;
 import com.example.exceptions.NotFoundException;
+import com.example.exceptions.ServiceUnavailableException;
 import com.example.restControllerAdvice.pojo.ResponseMsg;
 import org.hibernate.PropertyValueException;
 import org.springframework.http.HttpStatus;
@@ -25,6 +26,12 @@ public class CustomRestControllerAdvice {
         return new ResponseMsg(badRequestException.getMessage());
     }
 
+    @ExceptionHandler(value = ServiceUnavailableException.class)
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseMsg serviceUnavailableException(ServiceUnavailableException serviceUnavailableException) {
+        return new ResponseMsg(serviceUnavailableException.getMessage());
+    }
+
     @ExceptionHandler(value = IllegalArgumentException.class)
     @ResponseStatus(value = HttpStatus.BAD_REQUEST)
     public ResponseMsg illegalArgEx(IllegalArgumentException illegalArgumentException) {
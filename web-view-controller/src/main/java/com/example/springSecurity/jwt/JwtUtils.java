@@ -1,6 +1,7 @@
 package com.example.springSecurity.jwt;
 
 import com.example.springSecurity.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -10,6 +11,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -29,14 +31,16 @@ public class JwtUtils {
                 .signWith(SignatureAlgorithm.HS512, jwtSecret).compact();
     }
 
-    public boolean validateJwtToken (String jwt){
+    /**
+     * @return the claims of the token, empty when the token is malformed; an expired or wrongly signed token throws
+     */
+    public Optional<Claims> validateJwtToken (String jwt){
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(jwt);
-            return true;
+            return Optional.of(Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(jwt).getBody());
         } catch (MalformedJwtException | IllegalArgumentException e){
             log.error(e.getMessage());
         }
-        return false;
+        return Optional.empty();
     }
 
     public String getUserNameFromJwtToken(String jwt) {
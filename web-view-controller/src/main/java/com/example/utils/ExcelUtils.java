@@ -6,20 +6,33 @@ import com.example.entity.dto.ProductDTO;
 import com.example.enums.Unit;
 import com.example.exceptions.BadRequestException;
 import com.example.service.*;
+import com.example.utils.pojo.ImportCell;
+import com.example.utils.pojo.ImportReport;
+import com.example.utils.pojo.ImportRow;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 @Slf4j
 @Service
@@ -30,235 +43,331 @@ public class ExcelUtils {
     private final PriceListService priceListService;
     private final PriceService priceService;
     private final StoreService storeService;
+    private final XlsxStreamReader xlsxStreamReader;
+    private final int chunkSize;
+    private final int partitionThreads;
+    private final ExecutorService partitionWorkers;
 
     @Autowired
-    public ExcelUtils(SubcategoryService subcategoryService, ProductService productService, PriceListService priceListService, PriceService priceService, StoreService storeService) {
+    public ExcelUtils(SubcategoryService subcategoryService, ProductService productService, PriceListService priceListService, PriceService priceService, StoreService storeService, XlsxStreamReader xlsxStreamReader,
+                      @Value("${app.importChunkSize:1000}") int chunkSize,
+                      @Value("${app.importPartitionThreads:8}") int partitionThreads) {
         this.subcategoryService = subcategoryService;
         this.productService = productService;
         this.priceListService = priceListService;
         this.priceService = priceService;
         this.storeService = storeService;
+        this.xlsxStreamReader = xlsxStreamReader;
+        this.chunkSize = chunkSize;
+        this.partitionThreads = partitionThreads;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.partitionWorkers = Executors.newFixedThreadPool(partitionThreads, runnable -> {
+            Thread thread = new Thread(runnable, "import-partition-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    public Sheet readXlsxFile(MultipartFile multipartFile){
-        log.info("Method readXlsxFile begin");
-        String fileName = multipartFile.getOriginalFilename();
+    @PreDestroy
+    public void destroy() {
+        partitionWorkers.shutdownNow();
+    }
 
-        if (fileName.startsWith(".xlsx", fileName.length() - 5)) {
-            try (InputStream excelIs = multipartFile.getInputStream()) {
-                Workbook wb = WorkbookFactory.create(excelIs);
-                Sheet sheet = wb.getSheetAt(0);
-                excelIs.close();
-                return sheet;
-            } catch(IOException e) {
-                BadRequestException exception = new BadRequestException("Error! Failed to process: multipartFile could not be read");
-                log.error(exception.getMessage());
-                throw exception;
+    /**
+     * Copies the uploads to temporary files, the caller deletes them with deleteTempFiles().
+     */
+    public List<Path> spoolXlsxFiles(List<MultipartFile> multipartFiles){
+        List<Path> files = new ArrayList<>();
+        try {
+            for (MultipartFile multipartFile : multipartFiles) {
+                String fileName = multipartFile.getOriginalFilename();
+                if (fileName != null && fileName.startsWith(".xlsx", fileName.length() - 5)) {
+                    files.add(spoolToTempFile(multipartFile));
+                } else {
+                    BadRequestException exception = new BadRequestException("Error! The multipartFile should be a .xlsx");
+                    log.error(exception.getMessage());
+                    throw exception;
+                }
             }
+        } catch (RuntimeException ex) {
+            deleteTempFiles(files);
+            throw ex;
+        }
+        return files;
+    }
+
+    private ImportReport importSpooled(List<MultipartFile> multipartFiles, Function<List<Path>, ImportReport> fileImport) {
+        List<Path> files = spoolXlsxFiles(multipartFiles);
+        try {
+            return fileImport.apply(files);
+        } finally {
+            deleteTempFiles(files);
+        }
+    }
 
-        } else {
-            BadRequestException exception = new BadRequestException("Error! The multipartFile should be a .xlsx");
+    /**
+     * Every sheet of the files is imported.
+     * @param parallel imports the sheets on the partition threads, otherwise one after another on the calling thread
+     */
+    private ImportReport importFiles(List<Path> files, boolean parallel, Supplier<ImportChunker<?>> chunkers,
+                                     Consumer<ImportReport> progress) {
+        return importFiles(files, parallel, chunkers, null, progress);
+    }
+
+    /**
+     * @param stripeKey key of a row, the rows of a key are imported by one partition in file order, see PartitionedImport
+     */
+    private ImportReport importFiles(List<Path> files, boolean parallel, Supplier<ImportChunker<?>> chunkers,
+                                     ToLongFunction<ImportRow> stripeKey, Consumer<ImportReport> progress) {
+        PartitionedImport partitionedImport = new PartitionedImport(xlsxStreamReader, chunkers, stripeKey, progress);
+        return parallel
+                ? partitionedImport.runParallel(files, partitionWorkers, partitionThreads)
+                : partitionedImport.runSequential(files);
+    }
+
+    private Path spoolToTempFile(MultipartFile multipartFile) {
+        try (InputStream excelIs = multipartFile.getInputStream()) {
+            Path file = Files.createTempFile("import-", ".xlsx");
+            Files.copy(excelIs, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (IOException e) {
+            BadRequestException exception = new BadRequestException("Error! Failed to process: multipartFile could not be read");
             log.error(exception.getMessage());
             throw exception;
         }
     }
 
-    public List<ProductDTO> createProducts(Sheet sheet){
+    public void deleteTempFiles(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Temporary import file " + file + " could not be deleted");
+            }
+        }
+    }
+
+    public ImportReport createProducts(MultipartFile multipartFile){
+        return createProducts(List.of(multipartFile), false);
+    }
+
+    public ImportReport createProducts(List<MultipartFile> multipartFiles, boolean parallel){
+        return importSpooled(multipartFiles, files -> createProducts(files, parallel, report -> { }));
+    }
+
+    /**
+     * @param progress gets the report after every chunk, on the importing thread
+     */
+    public ImportReport createProducts(List<Path> files, boolean parallel, Consumer<ImportReport> progress){
         log.info("Method createProducts begin");
-        int rows = sheet.getLastRowNum();
-        List<ProductDTO> productDTOList = new ArrayList<>(rows);
-        Iterator<Row> rowIterator = sheet.rowIterator();
-        while (rowIterator.hasNext())
-        {
-            Row currentRow = rowIterator.next();
-            if (currentRow.getRowNum() == 0){
-                currentRow = rowIterator.next();
+        return importFiles(files, parallel, this::productsChunker, progress);
+    }
+
+    private ImportChunker<ProductDTO> productsChunker() {
+        ImportIdValidator subcategoryIds = new ImportIdValidator("Subcategory", subcategoryService::findExistingIds);
+        return new ImportChunker<>(chunkSize, row -> {
+            ProductDTO productDTO = convertRowToProductDTO(row, subcategoryIds);
+            return productDTO.getSubcategoryId() != null ? productDTO : null;
+        }, productService::importAll, subcategoryIds);
+    }
+
+    private ProductDTO convertRowToProductDTO(ImportRow currentRow, ImportIdValidator subcategoryIds){
+        ProductDTO productDTO = new ProductDTO();
+        int columns =  currentRow.getLastCellNum();
+        for(int j = 0; j < columns; j++){
+            ImportCell cell = currentRow.getCell(j);
+            if (cell != null)
+            switch (j) {
+                case 0 -> {
+                    Long subcategoryId =  Double.valueOf(cell.getNumericCellValue()).longValue();
+                    subcategoryIds.register(subcategoryId, cell.getAddress());
+                    productDTO.setSubcategoryId(subcategoryId);
+                }
+                case 1 -> {
+                    String name =  cell.getStringCellValue();
+                    productDTO.setName(name);
+                }
+                case 2 -> {
+                    String brand =  cell.getStringCellValue();
+                    productDTO.setBrand(brand);
+
+                }
+                case 3 -> {
+                    int quantity = ((int) cell.getNumericCellValue());
+                    productDTO.setQuantity(quantity);
+                }
+                case 4 -> {
+                    String enumName =  cell.getStringCellValue();
+                    Unit unit = Arrays.stream(Unit.values())
+                            .filter(enumUnit -> enumUnit.toString().equals(enumName.toUpperCase()))
+                            .findFirst().orElseThrow(() -> {
+                                IllegalArgumentException exception = new IllegalArgumentException("Error! Wrong unit of measure - "+ enumName +
+                                        ", cell " + cell.getAddress() + ". Possible units of measure: MILLILITER, LITRE, GRAM, KILOGRAM, PIECE");
+                                log.error(exception.getMessage());
+                                return exception;
+                            });
+                    productDTO.setUnit(unit);
+                }
+                case 5 -> {
+                    String manufacturer =  cell.getStringCellValue();
+                    productDTO.setManufacturer(manufacturer);
+                }
+                default ->  {
+                    IllegalArgumentException exception = new IllegalArgumentException("Error! Data not owned by Product in cell: " + cell.getAddress());
+                    log.error(exception.getMessage());
+                    throw exception;
+                }
             }
-            ProductDTO productDTO = new ProductDTO();
-            int columns =  currentRow.getLastCellNum();
-            for(int j = 0; j < columns; j++){
-                Cell cell = currentRow.getCell(j, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                if (cell != null)
-                switch (j) {
-                    case 0 -> {
-                        Long subcategoryId =  Double.valueOf(cell.getNumericCellValue()).longValue();
-                        try {
-                            subcategoryService.idValidation(subcategoryId);
-                        } catch (IllegalArgumentException ex){
-                            IllegalArgumentException exception = new IllegalArgumentException(ex.getMessage() + ". Cell address " + cell.getAddress());
-                            log.error(exception.getMessage());
-                            throw exception;
-                        }
-                        productDTO.setSubcategoryId(subcategoryId);
-                    }
-                    case 1 -> {
-                        String name =  cell.getStringCellValue();
-                        productDTO.setName(name);
-                    }
-                    case 2 -> {
-                        String brand =  cell.getStringCellValue();
-                        productDTO.setBrand(brand);
+        }
+        return productDTO;
+    }
 
-                    }
-                    case 3 -> {
-                        int quantity = ((int) cell.getNumericCellValue());
-                        productDTO.setQuantity(quantity);
-                    }
-                    case 4 -> {
-                        String enumName =  cell.getStringCellValue();
-                        Unit unit = Arrays.stream(Unit.values())
-                                .filter(enumUnit -> enumUnit.toString().equals(enumName.toUpperCase()))
-                                .findFirst().orElseThrow(() -> {
-                                    IllegalArgumentException exception = new IllegalArgumentException("Error! Wrong unit of measure - "+ enumName +
-                                            ", cell " + cell.getAddress() + ". Possible units of measure: MILLILITER, LITRE, GRAM, KILOGRAM, PIECE");
-                                    log.error(exception.getMessage());
-                                    return exception;
-                                });
-                        productDTO.setUnit(unit);
-                    }
-                    case 5 -> {
-                        String manufacturer =  cell.getStringCellValue();
-                        productDTO.setManufacturer(manufacturer);
-                    }
-                    default ->  {
-                        IllegalArgumentException exception = new IllegalArgumentException("Error! Data not owned by Product in cell: " + cell.getAddress());
+    public ImportReport createPriceLists(MultipartFile multipartFile){
+        return createPriceLists(List.of(multipartFile), false, false);
+    }
+
+    public ImportReport createPriceLists(List<MultipartFile> multipartFiles, boolean parallel, boolean diff){
+        validatePriceListsImport(parallel, diff);
+        return importSpooled(multipartFiles, files -> createPriceLists(files, parallel, diff, report -> { }));
+    }
+
+    /**
+     * @param diff     the files are a snapshot, only new price lists and changed current prices are written
+     * @param progress gets the report after every chunk, on the importing thread
+     */
+    public ImportReport createPriceLists(List<Path> files, boolean parallel, boolean diff, Consumer<ImportReport> progress){
+        log.info("Method createPriceLists begin");
+        validatePriceListsImport(parallel, diff);
+        return importFiles(files, parallel, () -> priceListsChunker(diff), progress);
+    }
+
+    /**
+     * A snapshot is imported sequentially, two partitions would both create the price list of a new store and product.
+     */
+    public void validatePriceListsImport(boolean parallel, boolean diff) {
+        if (diff && parallel) {
+            BadRequestException exception = new BadRequestException("Error! A snapshot of price lists (diff) cannot be imported in parallel");
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+    }
+
+    private ImportChunker<PriceListDTO> priceListsChunker(boolean diff) {
+        ImportIdValidator storeIds = new ImportIdValidator("Store", storeService::findExistingIds);
+        ImportIdValidator productIds = new ImportIdValidator("Product", productService::findExistingIds);
+        return new ImportChunker<>(chunkSize, row -> {
+            PriceListDTO priceListDTO = convertRowToPriceListDTO(row, storeIds, productIds);
+            return priceListDTO.getStoreId() != null ? priceListDTO : null;
+        }, diff ? priceListService::importSnapshot : priceListService::importAll, storeIds, productIds);
+    }
+
+    private PriceListDTO convertRowToPriceListDTO(ImportRow currentRow, ImportIdValidator storeIds, ImportIdValidator productIds){
+        PriceListDTO priceListDTO = new PriceListDTO();
+        int columns =  currentRow.getLastCellNum();
+        for(int j = 0; j < columns; j++){
+            ImportCell cell = currentRow.getCell(j);
+            if (cell != null)
+            switch (j) {
+                case 0 -> {
+                    Long storeId =  Double.valueOf(cell.getNumericCellValue()).longValue();
+                    storeIds.register(storeId, cell.getAddress());
+                    priceListDTO.setStoreId(storeId);
+                }
+                case 1 -> {
+                    Long productId =  Double.valueOf(cell.getNumericCellValue()).longValue();
+                    productIds.register(productId, cell.getAddress());
+                    priceListDTO.setProductId(productId);
+                }
+                case 2 -> {
+                    try {
+                        BigDecimal currentPrice = BigDecimal.valueOf(cell.getNumericCellValue());
+                        priceListDTO.setCurrentPrice(currentPrice);
+                    } catch (NumberFormatException ex){
+                        IllegalArgumentException exception = new IllegalArgumentException("Error! Invalid number format, cell address " + cell.getAddress());
                         log.error(exception.getMessage());
                         throw exception;
                     }
                 }
-            }
-            if (productDTO.getSubcategoryId() != null){
-                productDTOList.add(productDTO);
+                default -> {
+                    IllegalArgumentException exception = new IllegalArgumentException("Error! Data not owned by PriceList in cell: " + cell.getAddress());
+                    log.error(exception.getMessage());
+                    throw exception;
+                }
             }
         }
-        List<ProductDTO> resultList = new ArrayList<>();
-        for (ProductDTO productDTO : productDTOList){
-            resultList.add(productService.create(productDTO));
+        return priceListDTO;
+    }
+
+    public ImportReport createPrices(MultipartFile multipartFile){
+        return createPrices(List.of(multipartFile), false);
+    }
+
+    public ImportReport createPrices(List<MultipartFile> multipartFiles, boolean parallel){
+        return importSpooled(multipartFiles, files -> createPrices(files, parallel, report -> { }));
+    }
+
+    /**
+     * @param progress gets the report after every chunk, on the importing thread
+     */
+    public ImportReport createPrices(List<Path> files, boolean parallel, Consumer<ImportReport> progress){
+        log.info("Method createPrices begin");
+        // a price list and date imported twice keeps the price of the last row, in both modes
+        return importFiles(files, parallel, this::pricesChunker, ExcelUtils::priceListIdOf, progress);
+    }
+
+    /**
+     * Price list id of a price row, 0 when the cell is not a number, the converter reports the error of such a row.
+     */
+    private static long priceListIdOf(ImportRow row) {
+        ImportCell cell = row.getCell(0);
+        try {
+            return cell != null ? Double.valueOf(cell.getNumericCellValue()).longValue() : 0L;
+        } catch (IllegalArgumentException ex) {
+            return 0L;
         }
-        return resultList;
     }
 
-    public List<PriceListDTO> createPriceLists(Sheet sheet){
-        log.info("Method createPriceLists begin");
-        int rows = sheet.getLastRowNum();
-        List<PriceListDTO> priceListDTOS = new ArrayList<>(rows);
-        Iterator<Row> rowIterator = sheet.rowIterator();
-        while (rowIterator.hasNext())
-        {
-            Row currentRow = rowIterator.next();
-            if (currentRow.getRowNum() == 0) currentRow = rowIterator.next();
-            PriceListDTO priceListDTO = new PriceListDTO();
-            int columns =  currentRow.getLastCellNum();
-            for(int j = 0; j < columns; j++){
-                Cell cell = currentRow.getCell(j, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                if (cell != null)
+    private ImportChunker<PriceDTO> pricesChunker() {
+        ImportIdValidator priceListIds = new ImportIdValidator("PriceList", priceListService::findExistingIds);
+        return new ImportChunker<>(chunkSize, row -> {
+            PriceDTO priceDTO = convertRowToPriceDTO(row, priceListIds);
+            return priceDTO.getPriceListId() != null ? priceDTO : null;
+        }, priceService::importAll, priceListIds);
+    }
+
+    private PriceDTO convertRowToPriceDTO(ImportRow currentRow, ImportIdValidator priceListIds){
+        PriceDTO priceDTO = new PriceDTO();
+        int columns =  currentRow.getLastCellNum();
+        for(int j = 0; j < columns; j++){
+            ImportCell cell = currentRow.getCell(j);
+            if (cell != null)
                 switch (j) {
                     case 0 -> {
-                        Long storeId =  Double.valueOf(cell.getNumericCellValue()).longValue();
-                        try {
-                            storeService.idValidation(storeId);
-                        } catch (IllegalArgumentException ex){
-                            IllegalArgumentException exception = new IllegalArgumentException(ex.getMessage() + ". Cell address " + cell.getAddress());
-                            log.error(exception.getMessage());
-                            throw exception;
-                        }
-                        priceListDTO.setStoreId(storeId);
+                        Long priceListId = Double.valueOf(cell.getNumericCellValue()).longValue();
+                        priceListIds.register(priceListId, cell.getAddress());
+                        priceDTO.setPriceListId(priceListId);
                     }
                     case 1 -> {
-                        Long productId =  Double.valueOf(cell.getNumericCellValue()).longValue();
-                        try {
-                            productService.idValidation(productId);
-                        } catch (IllegalArgumentException ex){
-                            IllegalArgumentException exception = new IllegalArgumentException(ex.getMessage() + ". Cell address " + cell.getAddress());
-                            log.error(exception.getMessage());
-                            throw exception;
-                        }
-                        priceListDTO.setProductId(productId);
-                    }
-                    case 2 -> {
                         try {
-                            BigDecimal currentPrice = BigDecimal.valueOf(cell.getNumericCellValue());
-                            priceListDTO.setCurrentPrice(currentPrice);
+                            BigDecimal price = BigDecimal.valueOf(cell.getNumericCellValue());
+                            priceDTO.setPrice(price);
                         } catch (NumberFormatException ex){
                             IllegalArgumentException exception = new IllegalArgumentException("Error! Invalid number format, cell address " + cell.getAddress());
                             log.error(exception.getMessage());
                             throw exception;
                         }
                     }
+                    case 2 -> {
+                        LocalDate date = cell.getLocalDateTimeCellValue().toLocalDate();
+                        priceDTO.setDate(date);
+                    }
                     default -> {
-                        IllegalArgumentException exception = new IllegalArgumentException("Error! Data not owned by PriceList in cell: " + cell.getAddress());
+                        IllegalArgumentException exception = new IllegalArgumentException("Error! Data not owned by Price in cell: " + cell.getAddress());
                         log.error(exception.getMessage());
                         throw exception;
                     }
                 }
-            }
-            if (priceListDTO.getStoreId() != null){
-                priceListDTOS.add(priceListDTO);
-            }
-        }
-        List<PriceListDTO> resultList = new ArrayList<>();
-        for (PriceListDTO priceListDTO : priceListDTOS){
-            resultList.add(priceListService.create(priceListDTO));
-        }
-        return resultList;
-    }
-
-    public List<PriceDTO> createPrices(Sheet sheet){
-        log.info("Method createPrices begin");
-        int rows = sheet.getLastRowNum();
-        List<PriceDTO> priceDTOS = new ArrayList<>(rows);
-        Iterator<Row> rowIterator = sheet.rowIterator();
-        while (rowIterator.hasNext())
-        {
-            Row currentRow = rowIterator.next();
-            if (currentRow.getRowNum() == 0) currentRow = rowIterator.next();
-
-            PriceDTO priceDTO = new PriceDTO();
-            int columns =  currentRow.getLastCellNum();
-            for(int j = 0; j < columns; j++){
-                Cell cell = currentRow.getCell(j, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                if (cell != null)
-                    switch (j) {
-                        case 0 -> {
-                            Long priceListId = Double.valueOf(cell.getNumericCellValue()).longValue();
-                            try {
-                                priceListService.idValidation(priceListId);
-                            } catch (IllegalArgumentException ex){
-                                IllegalArgumentException exception = new IllegalArgumentException(ex.getMessage() + ". Cell address " + cell.getAddress());
-                                log.error(exception.getMessage());
-                                throw exception;
-                            }
-                            priceDTO.setPriceListId(priceListId);
-                        }
-                        case 1 -> {
-                            try {
-                                BigDecimal price = BigDecimal.valueOf(cell.getNumericCellValue());
-                                priceDTO.setPrice(price);
-                            } catch (NumberFormatException ex){
-                                IllegalArgumentException exception = new IllegalArgumentException("Error! Invalid number format, cell address " + cell.getAddress());
-                                log.error(exception.getMessage());
-                                throw exception;
-                            }
-                        }
-                        case 2 -> {
-                            LocalDate date = cell.getLocalDateTimeCellValue().toLocalDate();
-                            priceDTO.setDate(date);
-                        }
-                        default -> {
-                            IllegalArgumentException exception = new IllegalArgumentException("Error! Data not owned by Price in cell: " + cell.getAddress());
-                            log.error(exception.getMessage());
-                            throw exception;
-                        }
-                    }
-                }
-            if (priceDTO.getPriceListId() != null){
-                priceDTOS.add(priceDTO);
-            }
-        }
-        List<PriceDTO> resultList = new ArrayList<>();
-        for (PriceDTO priceDTO : priceDTOS){
-            resultList.add(priceService.create(priceDTO));
         }
-        return resultList;
+        return priceDTO;
     }
 }
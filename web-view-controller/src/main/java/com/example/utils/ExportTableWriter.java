@@ -0,0 +1,19 @@
+package com.example.utils;
+
+import java.io.IOException;
+
+/**
+ * Rows of one exported table, values are written by type: numbers, dates and everything else as text.
+ */
+interface ExportTableWriter extends AutoCloseable {
+
+    void writeRow(Object... values) throws IOException;
+
+    /**
+     * Completes the file on the output, the writer is closed afterwards in any case.
+     */
+    void finish() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
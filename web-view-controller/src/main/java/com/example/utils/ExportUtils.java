@@ -0,0 +1,115 @@
+package com.example.utils;
+
+import com.example.entity.dto.PriceDTO;
+import com.example.entity.dto.PriceListDTO;
+import com.example.entity.dto.ProductDTO;
+import com.example.enums.ExportFormat;
+import com.example.exceptions.BadRequestException;
+import com.example.service.PriceListService;
+import com.example.service.PriceService;
+import com.example.service.ProductService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Export of the catalogue and the price history as xlsx or csv. The rows are read from a database cursor
+ * and written to the response while they are read, memory does not grow with the number of rows.
+ * The columns are the columns of the import of the same table, so an exported xlsx file can be imported again.
+ */
+@Slf4j
+@Service
+public class ExportUtils {
+
+    private final ProductService productService;
+    private final PriceListService priceListService;
+    private final PriceService priceService;
+
+    @Autowired
+    public ExportUtils(ProductService productService, PriceListService priceListService, PriceService priceService) {
+        this.productService = productService;
+        this.priceListService = priceListService;
+        this.priceService = priceService;
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportProducts(String format) {
+        log.info("Method exportProducts begin");
+        return export(parseFormat(format), "products",
+                new String[]{"subcategory_id", "name", "brand", "quantity", "unit", "manufacturer"},
+                tableWriter -> productService.streamAll(rowWriter(tableWriter, (ProductDTO productDTO) -> new Object[]{
+                        productDTO.getSubcategoryId(), productDTO.getName(), productDTO.getBrand(),
+                        productDTO.getQuantity(), productDTO.getUnit(), productDTO.getManufacturer()})));
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportPriceLists(String format) {
+        log.info("Method exportPriceLists begin");
+        return export(parseFormat(format), "price_lists",
+                new String[]{"store_id", "product_id", "current_price"},
+                tableWriter -> priceListService.streamAllWithoutPrices(rowWriter(tableWriter, (PriceListDTO priceListDTO) -> new Object[]{
+                        priceListDTO.getStoreId(), priceListDTO.getProductId(), priceListDTO.getCurrentPrice()})));
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportPrices(String format) {
+        log.info("Method exportPrices begin");
+        return export(parseFormat(format), "prices",
+                new String[]{"price_list_id", "price", "date"},
+                tableWriter -> priceService.streamAll(rowWriter(tableWriter, (PriceDTO priceDTO) -> new Object[]{
+                        priceDTO.getPriceListId(), priceDTO.getPrice(), priceDTO.getDate()})));
+    }
+
+    private ExportFormat parseFormat(String format) {
+        try {
+            return ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            BadRequestException exception = new BadRequestException("Error! Invalid parameter format " + format + ". Valid parameter: XLSX, CSV.");
+            log.error(exception.getMessage());
+            throw exception;
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(ExportFormat format, String name, String[] header,
+                                                         Consumer<ExportTableWriter> rowsSource) {
+        StreamingResponseBody body = outputStream -> {
+            long start = System.currentTimeMillis();
+            try (ExportTableWriter tableWriter = createWriter(format, outputStream, name, header)) {
+                rowsSource.accept(tableWriter);
+                tableWriter.finish();
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            log.info("Export of " + name + " as " + format.getExtension() + " is written in " + (System.currentTimeMillis() - start) + " ms");
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(name + "." + format.getExtension()).build().toString())
+                .body(body);
+    }
+
+    private static ExportTableWriter createWriter(ExportFormat format, OutputStream outputStream, String name, String[] header) throws IOException {
+        return format == ExportFormat.CSV
+                ? new CsvTableWriter(outputStream, header)
+                : new XlsxTableWriter(outputStream, name, header);
+    }
+
+    private static <T> Consumer<T> rowWriter(ExportTableWriter tableWriter, Function<T, Object[]> columns) {
+        return item -> {
+            try {
+                tableWriter.writeRow(columns.apply(item));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+    }
+}
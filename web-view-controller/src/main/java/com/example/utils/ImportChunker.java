@@ -0,0 +1,159 @@
+package com.example.utils;
+
+import com.example.utils.pojo.ImportChunkReport;
+import com.example.utils.pojo.ImportReport;
+import com.example.utils.pojo.ImportRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Collects converted rows into chunks of chunkSize rows, every chunk is written by chunkWriter in its own transaction.
+ * Foreign key ids registered by rowConverter are checked by idValidators once per chunk, before the write.
+ * A chunk with an invalid row or a failed write is skipped and its error is kept in the report,
+ * the import continues with the next chunk.
+ * A chunker of a stripe takes only every stripes-th block of chunkSize rows of the sheet, a block is one chunk,
+ * so the stripes of a sheet can be imported concurrently by their own chunkers. A chunker striped by a row key
+ * takes the rows whose key falls into its stripe instead, all the rows of a key are imported by the same chunker
+ * in the order of the sheet.
+ */
+@Slf4j
+class ImportChunker<T> implements Consumer<ImportRow> {
+    private final int chunkSize;
+    private final Function<ImportRow, T> rowConverter;
+    private final ToIntFunction<List<T>> chunkWriter;
+    private final List<ImportIdValidator> idValidators;
+    private final ImportReport report = new ImportReport();
+    private final List<T> items;
+
+    private Consumer<ImportReport> progress = report -> { };
+    private int file = 1;
+    private String sheet;
+    private int stripe;
+    private int stripes;
+    private ToLongFunction<ImportRow> stripeKey;
+    private int block = -1;
+    private ImportChunkReport chunkReport;
+    private int rowsInChunk;
+
+    ImportChunker(int chunkSize, Function<ImportRow, T> rowConverter, ToIntFunction<List<T>> chunkWriter,
+                  ImportIdValidator... idValidators) {
+        this.chunkSize = chunkSize;
+        this.rowConverter = rowConverter;
+        this.chunkWriter = chunkWriter;
+        this.idValidators = List.of(idValidators);
+        this.items = new ArrayList<>(chunkSize);
+    }
+
+    /**
+     * Gets the report after every chunk.
+     */
+    void setProgress(Consumer<ImportReport> progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * @param file number of the file in the import, from 1
+     */
+    void setSheet(int file, String sheet) {
+        this.file = file;
+        this.sheet = sheet;
+    }
+
+    /**
+     * @param stripe    number of the stripe, from 0 to stripes - 1
+     * @param stripeKey key of a row that selects its stripe, null to take every stripes-th block of rows
+     */
+    void setStripe(int stripe, int stripes, ToLongFunction<ImportRow> stripeKey) {
+        this.stripe = stripe;
+        this.stripes = stripes;
+        this.stripeKey = stripeKey;
+    }
+
+    @Override
+    public void accept(ImportRow row) {
+        if (stripes > 0 && stripeKey != null) {
+            if (Math.floorMod(stripeKey.applyAsLong(row), stripes) != stripe) {
+                return;
+            }
+        } else if (stripes > 0) {
+            // the header is row 0, the first block is rows 1 to chunkSize
+            int rowBlock = (row.getRowNum() - 1) / chunkSize;
+            if (rowBlock % stripes != stripe) {
+                return;
+            }
+            if (rowBlock != block) {
+                flush();
+                block = rowBlock;
+            }
+        }
+        int excelRowNum = row.getRowNum() + 1;
+        if (chunkReport == null) {
+            chunkReport = new ImportChunkReport(file, sheet, report.getChunks().size() + 1, excelRowNum, excelRowNum, 0, null);
+        }
+        chunkReport.setLastRow(excelRowNum);
+        report.setRowsRead(report.getRowsRead() + 1);
+        rowsInChunk++;
+
+        if (chunkReport.getError() == null) {
+            try {
+                T item = rowConverter.apply(row);
+                if (item != null) {
+                    items.add(item);
+                }
+            } catch (IllegalArgumentException ex) {
+                chunkReport.setError(ex.getMessage());
+            }
+        }
+        if (rowsInChunk >= chunkSize) {
+            flush();
+        }
+    }
+
+    ImportReport finish() {
+        flush();
+        log.info("Import of sheet " + sheet + " finished, rows read " + report.getRowsRead() + ", rows imported " + report.getRowsImported());
+        return report;
+    }
+
+    private void flush() {
+        if (chunkReport == null) {
+            return;
+        }
+        if (chunkReport.getError() == null && !items.isEmpty()) {
+            try {
+                idValidators.forEach(ImportIdValidator::validate);
+            } catch (IllegalArgumentException ex) {
+                chunkReport.setError(ex.getMessage());
+            }
+        }
+        if (chunkReport.getError() == null && !items.isEmpty()) {
+            try {
+                int rowsImported = chunkWriter.applyAsInt(items);
+                chunkReport.setRowsImported(rowsImported);
+                report.setRowsImported(report.getRowsImported() + rowsImported);
+            } catch (RuntimeException ex) {
+                chunkReport.setError(NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+            }
+        }
+        if (chunkReport.getError() != null) {
+            log.error("Chunk " + chunkReport.getChunk() + " of sheet " + sheet + ", rows " + chunkReport.getFirstRow() + "-" + chunkReport.getLastRow()
+                    + " is not imported: " + chunkReport.getError());
+        } else {
+            log.info("Chunk " + chunkReport.getChunk() + " of sheet " + sheet + ", rows " + chunkReport.getFirstRow() + "-" + chunkReport.getLastRow()
+                    + " is imported");
+        }
+        report.getChunks().add(chunkReport);
+        items.clear();
+        idValidators.forEach(ImportIdValidator::reset);
+        chunkReport = null;
+        rowsInChunk = 0;
+        progress.accept(report);
+    }
+}
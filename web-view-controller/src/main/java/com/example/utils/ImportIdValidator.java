@@ -0,0 +1,71 @@
+package com.example.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.util.CellAddress;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Validates the ids of one foreign key column of an import.
+ * Ids are registered while rows are converted and resolved once per chunk with a single IN query,
+ * ids already resolved in earlier chunks of the same import are answered from memory.
+ */
+@Slf4j
+class ImportIdValidator {
+    private final String entityName;
+    private final Function<Collection<Long>, Set<Long>> existingIdsLoader;
+    private final Set<Long> existingIds = new HashSet<>();
+    private final Set<Long> missingIds = new HashSet<>();
+    private final Map<Long, CellAddress> uncheckedIds = new LinkedHashMap<>();
+
+    ImportIdValidator(String entityName, Function<Collection<Long>, Set<Long>> existingIdsLoader) {
+        this.entityName = entityName;
+        this.existingIdsLoader = existingIdsLoader;
+    }
+
+    void register(Long id, CellAddress address) {
+        if (id == null || id == 0L) {
+            throw invalidId("Error! " + entityName + " id cannot be 0 or null", address);
+        } else if (missingIds.contains(id)) {
+            throw invalidId("Error! " + entityName + " does not exist with this id - " + id, address);
+        } else if (!existingIds.contains(id)) {
+            uncheckedIds.putIfAbsent(id, address);
+        }
+    }
+
+    void validate() {
+        if (uncheckedIds.isEmpty()) {
+            return;
+        }
+        Set<Long> foundIds = existingIdsLoader.apply(uncheckedIds.keySet());
+        existingIds.addAll(foundIds);
+        IllegalArgumentException exception = null;
+        for (Map.Entry<Long, CellAddress> entry : uncheckedIds.entrySet()) {
+            if (!foundIds.contains(entry.getKey())) {
+                missingIds.add(entry.getKey());
+                if (exception == null) {
+                    exception = invalidId("Error! " + entityName + " does not exist with this id - " + entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        uncheckedIds.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    void reset() {
+        uncheckedIds.clear();
+    }
+
+    private IllegalArgumentException invalidId(String message, CellAddress address) {
+        IllegalArgumentException exception = new IllegalArgumentException(message + ". Cell address " + address);
+        log.error(exception.getMessage());
+        return exception;
+    }
+}
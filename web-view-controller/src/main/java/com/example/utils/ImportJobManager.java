@@ -0,0 +1,153 @@
+package com.example.utils;
+
+import com.example.enums.ImportJobStatus;
+import com.example.enums.ImportJobType;
+import com.example.exceptions.NotFoundException;
+import com.example.exceptions.ServiceUnavailableException;
+import com.example.utils.pojo.ImportJob;
+import com.example.utils.pojo.ImportReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Runs Excel imports outside of the request thread. The upload is copied to a temporary file before the request
+ * returns, the import is done by app.importWorkers threads and at most app.importQueueCapacity jobs wait for a worker,
+ * a further upload is refused with 503. Jobs are kept in memory for app.importJobRetentionMinutes after they finish,
+ * they are not seen by other instances of the application and are lost on restart.
+ */
+@Slf4j
+@Service
+public class ImportJobManager {
+
+    private final ExcelUtils excelUtils;
+    private final long retentionMinutes;
+    private final ThreadPoolExecutor workers;
+    private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ImportJobManager(ExcelUtils excelUtils,
+                            @Value("${app.importWorkers:2}") int workerCount,
+                            @Value("${app.importQueueCapacity:20}") int queueCapacity,
+                            @Value("${app.importJobRetentionMinutes:60}") long retentionMinutes) {
+        this.excelUtils = excelUtils;
+        this.retentionMinutes = retentionMinutes;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "import-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @param parallel imports the sheets of the files concurrently, every sheet is imported in both modes, see ExcelUtils
+     */
+    public ImportJob submit(ImportJobType type, List<MultipartFile> multipartFiles, boolean parallel) {
+        log.info("Method submit begin");
+        if (type == ImportJobType.PRICE_LISTS_DIFF) {
+            excelUtils.validatePriceListsImport(parallel, true);
+        }
+        List<Path> files = excelUtils.spoolXlsxFiles(multipartFiles);
+        String fileNames = multipartFiles.stream().map(MultipartFile::getOriginalFilename).collect(Collectors.joining(", "));
+        ImportJob job = new ImportJob(type, fileNames);
+        jobs.put(job.getId(), job);
+        try {
+            workers.execute(() -> run(job, files, parallel));
+        } catch (RejectedExecutionException ex) {
+            jobs.remove(job.getId());
+            excelUtils.deleteTempFiles(files);
+            ServiceUnavailableException exception = new ServiceUnavailableException("Error! Import queue is full, try again later");
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+        log.info("Import job " + job.getId() + " of " + type + " is queued");
+        return job;
+    }
+
+    public ImportJob findById(UUID id) {
+        log.info("Method findById begin");
+        ImportJob job = jobs.get(id);
+        if (job == null) {
+            NotFoundException exception = new NotFoundException("Error! Import job with id " + id + " not found");
+            log.error(exception.getMessage());
+            throw  exception;
+        }
+        return job;
+    }
+
+    /**
+     * Jobs ordered from the newest.
+     */
+    public List<ImportJob> findAll() {
+        log.info("Method findAll begin");
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(ImportJob::getCreatedAt).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private void run(ImportJob job, List<Path> files, boolean parallel) {
+        job.start();
+        log.info("Import job " + job.getId() + " is started");
+        try {
+            ImportReport report;
+            switch (job.getType()) {
+                case PRODUCTS:
+                    report = excelUtils.createProducts(files, parallel, job::progress);
+                    break;
+                case PRICE_LISTS:
+                    report = excelUtils.createPriceLists(files, parallel, false, job::progress);
+                    break;
+                case PRICE_LISTS_DIFF:
+                    report = excelUtils.createPriceLists(files, parallel, true, job::progress);
+                    break;
+                default:
+                    report = excelUtils.createPrices(files, parallel, job::progress);
+            }
+            job.complete(report);
+            log.info("Import job " + job.getId() + " is completed");
+        } catch (Throwable ex) {
+            // an error such as OutOfMemoryError fails the job too, otherwise it stays running and is never removed
+            Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+            job.fail(cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            log.error("Import job " + job.getId() + " is failed: " + job.getError());
+            if (ex instanceof Error) {
+                throw (Error) ex;
+            }
+        } finally {
+            excelUtils.deleteTempFiles(files);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.importJobCleanupMs:60000}")
+    public void removeFinishedJobs() {
+        LocalDateTime limit = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> (job.getStatus() == ImportJobStatus.COMPLETED || job.getStatus() == ImportJobStatus.FAILED)
+                && job.getFinishedAt().isBefore(limit));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.utils;
+
+import com.example.utils.pojo.ImportChunkReport;
+import com.example.utils.pojo.ImportReport;
+import com.example.utils.pojo.ImportRow;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Imports every sheet of xlsx files in partitions, every partition has its own chunker and id validators.
+ * In the sequential mode a partition is a sheet and the partitions are imported one after another on the calling thread.
+ * In the parallel mode a sheet is split into stripes of chunk sized row blocks, so that a single sheet also uses
+ * all the processors, the partitions run on the executor. Both modes import the same rows.
+ * An import with a stripe key, e.g. the price list of a price, splits the rows by the key instead and a stripe reads
+ * every sheet of every file in order, so the rows of a key are written in the same order as in the sequential mode
+ * and the last row of a key wins in both modes.
+ * The chunks are merged in file, sheet and row order and numbered again, the merged report does not depend
+ * on the order in which the partitions finished. With a stripe key the rows of a chunk depend on the number of stripes.
+ */
+@Slf4j
+class PartitionedImport {
+    private final XlsxStreamReader xlsxStreamReader;
+    private final Supplier<ImportChunker<?>> chunkers;
+    private final ToLongFunction<ImportRow> stripeKey;
+    private final Consumer<ImportReport> progress;
+    private final ImportReport report = new ImportReport();
+    private final List<Partition> partitions = new ArrayList<>();
+
+    /**
+     * @param stripeKey key of a row that selects its stripe in the parallel mode, null to split a sheet into row blocks
+     */
+    PartitionedImport(XlsxStreamReader xlsxStreamReader, Supplier<ImportChunker<?>> chunkers,
+                      ToLongFunction<ImportRow> stripeKey, Consumer<ImportReport> progress) {
+        this.xlsxStreamReader = xlsxStreamReader;
+        this.chunkers = chunkers;
+        this.stripeKey = stripeKey;
+        this.progress = progress;
+    }
+
+    ImportReport runSequential(List<Path> files) {
+        int sheetOrder = 0;
+        for (int i = 0; i < files.size(); i++) {
+            List<String> sheetNames = xlsxStreamReader.readSheetNames(files.get(i));
+            for (int j = 0; j < sheetNames.size(); j++) {
+                partitions.add(new Partition(files.get(i), i + 1, j, sheetNames.get(j), sheetOrder++, 0, 0));
+            }
+        }
+        partitions.forEach(this::importPartition);
+        return merge();
+    }
+
+    ImportReport runParallel(List<Path> files, ExecutorService executor, int threads) {
+        List<List<String>> sheetNames = new ArrayList<>();
+        files.forEach(file -> sheetNames.add(xlsxStreamReader.readSheetNames(file)));
+        int sheets = sheetNames.stream().mapToInt(List::size).sum();
+        // every stripe parses the whole sheet and keeps only its rows, more stripes than processors only add parsing
+        int stripeThreads = Math.min(threads, Runtime.getRuntime().availableProcessors());
+        // a stripe of a key reads all the sheets, the sheets of a row block stripe share the threads
+        int stripes = stripeKey != null ? stripeThreads : Math.max(1, stripeThreads / Math.max(sheets, 1));
+        int sheetOrder = 0;
+        for (int i = 0; i < files.size(); i++) {
+            for (int j = 0; j < sheetNames.get(i).size(); j++) {
+                for (int stripe = 0; stripe < stripes; stripe++) {
+                    partitions.add(new Partition(files.get(i), i + 1, j, sheetNames.get(i).get(j), sheetOrder, stripe, stripes));
+                }
+                sheetOrder++;
+            }
+        }
+        log.info("Import of " + sheets + " sheets in " + partitions.size() + " partitions");
+
+        // the partitions of a task are imported one after another in file and sheet order
+        Collection<List<Partition>> tasks = stripeKey != null
+                ? partitions.stream()
+                        .collect(Collectors.groupingBy(partition -> partition.stripe, TreeMap::new, Collectors.toList()))
+                        .values()
+                : partitions.stream().map(List::of).collect(Collectors.toList());
+        List<Future<?>> futures = new ArrayList<>();
+        tasks.forEach(task -> futures.add(executor.submit(() -> task.forEach(this::importPartition))));
+        RuntimeException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : new IllegalStateException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                futures.forEach(running -> running.cancel(true));
+                Thread.currentThread().interrupt();
+                IllegalStateException exception = new IllegalStateException("Error! Import is interrupted");
+                log.error(exception.getMessage());
+                throw  exception;
+            }
+        }
+        if (failure != null) {
+            log.error(failure.getMessage());
+            throw  failure;
+        }
+        return merge();
+    }
+
+    private void importPartition(Partition partition) {
+        ImportChunker<?> chunker = chunkers.get();
+        chunker.setSheet(partition.file, partition.sheetName);
+        chunker.setStripe(partition.stripe, partition.stripes, stripeKey);
+        chunker.setProgress(partitionReport -> mergeProgress(partition, partitionReport));
+        xlsxStreamReader.readSheet(partition.path, partition.sheetIndex, row -> {
+            if (row.getRowNum() != 0) {
+                chunker.accept(row);
+            }
+        });
+        partition.chunks = chunker.finish().getChunks();
+    }
+
+    /**
+     * Adds the new chunks and rows of a partition to the report, the partition report is read on its own thread.
+     */
+    private synchronized void mergeProgress(Partition partition, ImportReport partitionReport) {
+        List<ImportChunkReport> chunks = partitionReport.getChunks();
+        report.getChunks().addAll(chunks.subList(partition.chunksMerged, chunks.size()));
+        report.setRowsRead(report.getRowsRead() + partitionReport.getRowsRead() - partition.rowsRead);
+        report.setRowsImported(report.getRowsImported() + partitionReport.getRowsImported() - partition.rowsImported);
+        partition.chunksMerged = chunks.size();
+        partition.rowsRead = partitionReport.getRowsRead();
+        partition.rowsImported = partitionReport.getRowsImported();
+        progress.accept(report);
+    }
+
+    private synchronized ImportReport merge() {
+        Map<Integer, List<ImportChunkReport>> sheetChunks = new TreeMap<>();
+        partitions.forEach(partition -> sheetChunks.computeIfAbsent(partition.sheetOrder, order -> new ArrayList<>())
+                .addAll(partition.chunks));
+        List<ImportChunkReport> chunks = new ArrayList<>();
+        sheetChunks.values().forEach(sheet -> {
+            sheet.sort(Comparator.comparingInt(ImportChunkReport::getFirstRow));
+            chunks.addAll(sheet);
+        });
+        for (int i = 0; i < chunks.size(); i++) {
+            chunks.get(i).setChunk(i + 1);
+        }
+        report.setChunks(chunks);
+        log.info("Import finished, rows read " + report.getRowsRead() + ", rows imported " + report.getRowsImported());
+        return report;
+    }
+
+    private static class Partition {
+        private final Path path;
+        private final int file;
+        private final int sheetIndex;
+        private final String sheetName;
+        private final int sheetOrder;
+        private final int stripe;
+        private final int stripes;
+
+        private List<ImportChunkReport> chunks = List.of();
+        private int chunksMerged;
+        private long rowsRead;
+        private long rowsImported;
+
+        Partition(Path path, int file, int sheetIndex, String sheetName, int sheetOrder, int stripe, int stripes) {
+            this.path = path;
+            this.file = file;
+            this.sheetIndex = sheetIndex;
+            this.sheetName = sheetName;
+            this.sheetOrder = sheetOrder;
+            this.stripe = stripe;
+            this.stripes = stripes;
+        }
+    }
+}
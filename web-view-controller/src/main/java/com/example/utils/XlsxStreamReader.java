@@ -0,0 +1,189 @@
+package com.example.utils;
+
+import com.example.exceptions.BadRequestException;
+import com.example.utils.pojo.ImportCell;
+import com.example.utils.pojo.ImportRow;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.UnsupportedFileFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.springframework.stereotype.Component;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads xlsx sheets with the POI event (SAX) api, rows are passed to the consumer one at a time
+ * so the memory used does not depend on the number of rows in the file.
+ */
+@Slf4j
+@Component
+public class XlsxStreamReader {
+
+    /**
+     * @param sheetIndex position of the sheet in the workbook, from 0
+     */
+    public void readSheet(Path file, int sheetIndex, Consumer<ImportRow> rowConsumer) {
+        log.info("Method readSheet begin");
+        read(file, (opcPackage, xssfReader) -> {
+            SharedStrings sharedStrings = new ReadOnlySharedStringsTable(opcPackage, false);
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            for (int i = 0; i < sheetIndex && sheets.hasNext(); i++) {
+                sheets.next().close();
+            }
+            if (!sheets.hasNext()) {
+                BadRequestException exception = new BadRequestException(sheetIndex == 0
+                        ? "Error! The multipartFile does not contain sheets"
+                        : "Error! The multipartFile does not contain sheet " + (sheetIndex + 1));
+                log.error(exception.getMessage());
+                throw exception;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader xmlReader = XMLHelper.newXMLReader();
+                xmlReader.setContentHandler(new SheetHandler(sharedStrings, rowConsumer));
+                xmlReader.parse(new InputSource(sheet));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Names of the sheets in workbook order, the sheets themselves are not parsed.
+     */
+    public List<String> readSheetNames(Path file) {
+        log.info("Method readSheetNames begin");
+        return read(file, (opcPackage, xssfReader) -> {
+            List<String> names = new ArrayList<>();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                names.add(sheets.getSheetName());
+            }
+            return names;
+        });
+    }
+
+    @FunctionalInterface
+    private interface PackageReader<R> {
+        R read(OPCPackage opcPackage, XSSFReader xssfReader)
+                throws IOException, OpenXML4JException, SAXException, ParserConfigurationException;
+    }
+
+    private <R> R read(Path file, PackageReader<R> packageReader) {
+        try {
+            OPCPackage opcPackage = OPCPackage.open(file.toFile(), PackageAccess.READ);
+            try {
+                return packageReader.read(opcPackage, new XSSFReader(opcPackage));
+            } finally {
+                // the package is opened read only, revert releases the file without trying to save it
+                opcPackage.revert();
+            }
+        } catch (IOException | OpenXML4JException | SAXException | ParserConfigurationException | UnsupportedFileFormatException e) {
+            BadRequestException exception = new BadRequestException("Error! Failed to process: multipartFile could not be read", e);
+            log.error(exception.getMessage());
+            throw exception;
+        }
+    }
+
+    private static class SheetHandler extends DefaultHandler {
+        private final SharedStrings sharedStrings;
+        private final Consumer<ImportRow> rowConsumer;
+        private final StringBuilder value = new StringBuilder();
+
+        private int rowNum;
+        private List<ImportCell> cells;
+        private String cellReference;
+        private String cellType;
+        private int nextColumn;
+        private boolean valueOpen;
+
+        SheetHandler(SharedStrings sharedStrings, Consumer<ImportRow> rowConsumer) {
+            this.sharedStrings = sharedStrings;
+            this.rowConsumer = rowConsumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    String reference = attributes.getValue("r");
+                    rowNum = reference != null ? Integer.parseInt(reference) - 1 : rowNum + 1;
+                    cells = new ArrayList<>();
+                    nextColumn = 0;
+                }
+                case "c" -> {
+                    cellReference = attributes.getValue("r");
+                    cellType = attributes.getValue("t");
+                    value.setLength(0);
+                }
+                case "v", "t" -> valueOpen = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (valueOpen) {
+                value.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v", "t" -> valueOpen = false;
+                case "c" -> addCell();
+                case "row" -> rowConsumer.accept(new ImportRow(rowNum, cells));
+                default -> {
+                }
+            }
+        }
+
+        private void addCell() {
+            CellAddress address = cellReference != null
+                    ? new CellAddress(cellReference)
+                    : new CellAddress(rowNum, nextColumn);
+            nextColumn = address.getColumn() + 1;
+            if (value.length() == 0) {
+                return;
+            }
+            while (cells.size() <= address.getColumn()) {
+                cells.add(null);
+            }
+            String rawValue = value.toString();
+            ImportCell cell;
+            if (cellType == null || cellType.equals("n")) {
+                cell = new ImportCell(address, CellType.NUMERIC, rawValue);
+            } else if (cellType.equals("s")) {
+                String sharedString = sharedStrings.getItemAt(Integer.parseInt(rawValue)).getString();
+                cell = new ImportCell(address, CellType.STRING, sharedString);
+            } else if (cellType.equals("inlineStr") || cellType.equals("str")) {
+                cell = new ImportCell(address, CellType.STRING, rawValue);
+            } else if (cellType.equals("b")) {
+                cell = new ImportCell(address, CellType.BOOLEAN, rawValue);
+            } else {
+                cell = new ImportCell(address, CellType.ERROR, rawValue);
+            }
+            cells.set(address.getColumn(), cell);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.utils;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * Streaming xlsx, only the last ROW_ACCESS_WINDOW rows are kept in memory, older rows are flushed to a compressed
+ * temporary file and copied to the output by finish(). A table longer than a sheet continues on the next sheet
+ * with the same header, e.g. "prices", "prices 2". Dates are date cells, so the file can be imported again.
+ */
+class XlsxTableWriter implements ExportTableWriter {
+    private static final int ROW_ACCESS_WINDOW = 100;
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final OutputStream outputStream;
+    private final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+    private final CellStyle dateStyle;
+    private final String sheetName;
+    private final String[] header;
+    private SXSSFSheet sheet;
+    private int rowNum;
+
+    XlsxTableWriter(OutputStream outputStream, String sheetName, String... header) {
+        this.outputStream = outputStream;
+        this.sheetName = sheetName;
+        this.header = header;
+        workbook.setCompressTempFiles(true);
+        dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+        nextSheet();
+    }
+
+    private void nextSheet() {
+        int sheetNumber = workbook.getNumberOfSheets() + 1;
+        sheet = workbook.createSheet(sheetNumber == 1 ? sheetName : sheetName + " " + sheetNumber);
+        rowNum = 0;
+        Row headerRow = sheet.createRow(rowNum++);
+        for (int i = 0; i < header.length; i++) {
+            headerRow.createCell(i).setCellValue(header[i]);
+        }
+    }
+
+    @Override
+    public void writeRow(Object... values) {
+        if (rowNum == MAX_ROWS) {
+            nextSheet();
+        }
+        Row row = sheet.createRow(rowNum++);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            Cell cell = row.createCell(i);
+            if (value instanceof Number) {
+                cell.setCellValue(((Number) value).doubleValue());
+            } else if (value instanceof LocalDate) {
+                cell.setCellValue((LocalDate) value);
+                cell.setCellStyle(dateStyle);
+            } else {
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        workbook.write(outputStream);
+        outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        workbook.dispose();
+        workbook.close();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.utils.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellAddress;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single cell value read from a streamed xlsx sheet.
+ * Keeps the raw value as stored in the file, getters mirror POI Cell methods used by the import.
+ */
+@Getter
+@AllArgsConstructor
+public class ImportCell {
+    private final CellAddress address;
+    private final CellType cellType;
+    private final String value;
+
+    public double getNumericCellValue() {
+        if (cellType != CellType.NUMERIC) {
+            throw new IllegalArgumentException("Error! Cannot get a numeric value from a " + cellType + " cell, cell address " + address);
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Error! Invalid number format, cell address " + address);
+        }
+    }
+
+    public String getStringCellValue() {
+        if (cellType != CellType.STRING) {
+            throw new IllegalArgumentException("Error! Cannot get a string value from a " + cellType + " cell, cell address " + address);
+        }
+        return value;
+    }
+
+    public LocalDateTime getLocalDateTimeCellValue() {
+        return DateUtil.getLocalDateTime(getNumericCellValue());
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.utils.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportChunkReport {
+    private int file;
+    private String sheet;
+    private int chunk;
+    private int firstRow;
+    private int lastRow;
+    private int rowsImported;
+    private String error;
+}
@@ -0,0 +1,81 @@
+package com.example.utils.pojo;
+
+import com.example.enums.ImportJobStatus;
+import com.example.enums.ImportJobType;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * State of an import running on the import worker pool, it is changed by the worker and read by status requests.
+ */
+@Getter
+public class ImportJob {
+    private final UUID id = UUID.randomUUID();
+    private final ImportJobType type;
+    private final String fileNames;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final List<ImportChunkReport> failedChunks = new CopyOnWriteArrayList<>();
+
+    private volatile ImportJobStatus status = ImportJobStatus.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile long rowsRead;
+    private volatile long rowsImported;
+    private volatile int chunksProcessed;
+    private volatile String error;
+
+    public ImportJob(ImportJobType type, String fileNames) {
+        this.type = type;
+        this.fileNames = fileNames;
+    }
+
+    /**
+     * Rows read per second since the start, up to the end of a finished job.
+     */
+    public double getRowsPerSecond() {
+        LocalDateTime start = startedAt;
+        if (start == null) {
+            return 0;
+        }
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        long millis = Math.max(Duration.between(start, end).toMillis(), 1);
+        return rowsRead * 1000.0 / millis;
+    }
+
+    public void start() {
+        startedAt = LocalDateTime.now();
+        status = ImportJobStatus.RUNNING;
+    }
+
+    /**
+     * Copies the counters of the report, the chunks after chunksProcessed are the new ones.
+     */
+    public void progress(ImportReport report) {
+        List<ImportChunkReport> chunks = report.getChunks();
+        for (int i = chunksProcessed; i < chunks.size(); i++) {
+            if (chunks.get(i).getError() != null) {
+                failedChunks.add(chunks.get(i));
+            }
+        }
+        rowsRead = report.getRowsRead();
+        rowsImported = report.getRowsImported();
+        chunksProcessed = chunks.size();
+    }
+
+    public void complete(ImportReport report) {
+        progress(report);
+        finishedAt = LocalDateTime.now();
+        status = ImportJobStatus.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        status = ImportJobStatus.FAILED;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.utils.pojo;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class ImportReport {
+    private long rowsRead;
+    private long rowsImported;
+    private List<ImportChunkReport> chunks = new ArrayList<>();
+}
@@ -0,0 +1,27 @@
+package com.example.utils.pojo;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Row of a streamed xlsx sheet, cells are indexed by column number, missing cells are null.
+ */
+public class ImportRow {
+    @Getter
+    private final int rowNum;
+    private final List<ImportCell> cells;
+
+    public ImportRow(int rowNum, List<ImportCell> cells) {
+        this.rowNum = rowNum;
+        this.cells = cells;
+    }
+
+    public ImportCell getCell(int column) {
+        return column < cells.size() ? cells.get(column) : null;
+    }
+
+    public int getLastCellNum() {
+        return cells.size();
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.utils;
+
+import com.example.entity.dto.PriceDTO;
+import com.example.entity.dto.ProductDTO;
+import com.example.enums.Unit;
+import com.example.exceptions.BadRequestException;
+import com.example.service.PriceListService;
+import com.example.service.PriceService;
+import com.example.service.ProductService;
+import com.example.service.StoreService;
+import com.example.service.SubcategoryService;
+import com.example.utils.pojo.ImportChunkReport;
+import com.example.utils.pojo.ImportReport;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExcelUtilsTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private SubcategoryService subcategoryService;
+    @Mock
+    private ProductService productService;
+    @Mock
+    private PriceListService priceListService;
+    @Mock
+    private PriceService priceService;
+    @Mock
+    private StoreService storeService;
+
+    private ExcelUtils excelUtils;
+
+    @BeforeEach
+    void init(){
+        excelUtils = new ExcelUtils(subcategoryService, productService, priceListService, priceService, storeService,
+                new XlsxStreamReader(), 1000, 2);
+    }
+
+    @AfterEach
+    void destroy(){
+        excelUtils.destroy();
+    }
+
+    /**
+     * Workbook with a header row and the rows, a null value leaves its cell empty.
+     */
+    private Path write(Object[]... rows) throws IOException {
+        Path file = Files.createTempFile(tempDir, "import-", ".xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Sheet1");
+            sheet.createRow(0).createCell(0).setCellValue("header");
+            for (int i = 0; i < rows.length; i++) {
+                Row row = sheet.createRow(i + 1);
+                for (int j = 0; j < rows[i].length; j++) {
+                    Object value = rows[i][j];
+                    if (value instanceof Number) {
+                        row.createCell(j).setCellValue(((Number) value).doubleValue());
+                    } else if (value instanceof LocalDate) {
+                        row.createCell(j).setCellValue((LocalDate) value);
+                    } else if (value != null) {
+                        row.createCell(j).setCellValue(value.toString());
+                    }
+                }
+            }
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    private ImportChunkReport onlyChunk(ImportReport report) {
+        assertThat(report.getChunks().size(), equalTo(1));
+        return report.getChunks().get(0);
+    }
+
+    @Test
+    public void createProductsShouldImportConvertedRows() throws IOException {
+        Path file = write(new Object[]{1, "Молоко", "Простоквашино", 930, "milliliter", "Danone"});
+        when(subcategoryService.findExistingIds(Set.of(1L))).thenReturn(Set.of(1L));
+        // the chunk list is reused for the next chunk, so the rows are copied when they are written
+        List<ProductDTO> imported = new ArrayList<>();
+        when(productService.importAll(anyList())).thenAnswer(invocation -> {
+            imported.addAll(invocation.getArgument(0));
+            return imported.size();
+        });
+
+        ImportReport report = excelUtils.createProducts(List.of(file), false, progress -> { });
+
+        assertThat(imported.size(), equalTo(1));
+        ProductDTO productDTO = imported.get(0);
+        assertThat(productDTO.getSubcategoryId(), equalTo(1L));
+        assertThat(productDTO.getName(), equalTo("Молоко"));
+        assertThat(productDTO.getQuantity(), equalTo(930));
+        assertThat(productDTO.getUnit(), equalTo(Unit.MILLILITER));
+        assertThat(report.getRowsImported(), equalTo(1L));
+        assertThat(onlyChunk(report).getError(), nullValue());
+        verify(subcategoryService, never()).idsValidation(any());
+    }
+
+    @Test
+    public void createProductsShouldReportCellAddressOfWrongCellType() throws IOException {
+        Path file = write(new Object[]{"one", "Молоко"});
+
+        ImportReport report = excelUtils.createProducts(List.of(file), false, progress -> { });
+
+        assertThat(onlyChunk(report).getError(), equalTo("Error! Cannot get a numeric value from a STRING cell, cell address A2"));
+        verify(productService, never()).importAll(anyList());
+    }
+
+    @Test
+    public void createProductsShouldReportCellAddressOfWrongUnit() throws IOException {
+        Path file = write(new Object[]{1, "Молоко", "Простоквашино", 930, "box"});
+
+        ImportReport report = excelUtils.createProducts(List.of(file), false, progress -> { });
+
+        assertThat(onlyChunk(report).getError(), equalTo("Error! Wrong unit of measure - box, cell E2. " +
+                "Possible units of measure: MILLILITER, LITRE, GRAM, KILOGRAM, PIECE"));
+    }
+
+    @Test
+    public void createProductsShouldReportCellAddressOfMissingSubcategory() throws IOException {
+        Path file = write(new Object[]{1, "Молоко"}, new Object[]{7, "Кефир"});
+        when(subcategoryService.findExistingIds(Set.of(1L, 7L))).thenReturn(Set.of(1L));
+
+        ImportReport report = excelUtils.createProducts(List.of(file), false, progress -> { });
+
+        assertThat(onlyChunk(report).getError(), equalTo("Error! Subcategory does not exist with this id - 7. Cell address A3"));
+        verify(productService, never()).importAll(anyList());
+    }
+
+    @Test
+    public void createProductsShouldReportCellAddressOfDataOutsideProductColumns() throws IOException {
+        Path file = write(new Object[]{1, "Молоко", null, null, null, null, "extra"});
+
+        ImportReport report = excelUtils.createProducts(List.of(file), false, progress -> { });
+
+        assertThat(onlyChunk(report).getError(), equalTo("Error! Data not owned by Product in cell: G2"));
+    }
+
+    @Test
+    public void createPricesShouldReportCellAddressOfWrongDateCell() throws IOException {
+        Path file = write(new Object[]{3, 10.5, LocalDate.of(2021, 3, 15)}, new Object[]{3, 11, "yesterday"});
+
+        ImportReport report = excelUtils.createPrices(List.of(file), false, progress -> { });
+
+        assertThat(onlyChunk(report).getError(), equalTo("Error! Cannot get a numeric value from a STRING cell, cell address C3"));
+        verify(priceService, never()).importAll(anyList());
+    }
+
+    @Test
+    public void createPricesShouldImportConvertedRows() throws IOException {
+        Path file = write(new Object[]{3, 10.5, LocalDate.of(2021, 3, 15)});
+        when(priceListService.findExistingIds(Set.of(3L))).thenReturn(Set.of(3L));
+        List<PriceDTO> imported = new ArrayList<>();
+        when(priceService.importAll(anyList())).thenAnswer(invocation -> {
+            imported.addAll(invocation.getArgument(0));
+            return imported.size();
+        });
+
+        ImportReport report = excelUtils.createPrices(List.of(file), false, progress -> { });
+
+        assertThat(imported.size(), equalTo(1));
+        PriceDTO priceDTO = imported.get(0);
+        assertThat(priceDTO.getPriceListId(), equalTo(3L));
+        assertThat(priceDTO.getPrice(), equalTo(new BigDecimal("10.5")));
+        assertThat(priceDTO.getDate(), equalTo(LocalDate.of(2021, 3, 15)));
+        assertThat(report.getRowsImported(), equalTo(1L));
+    }
+
+    @Test
+    public void createProductsShouldThrowBadRequestExceptionIfFileIsNotXlsx(){
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "products.xls", null, new byte[]{1, 2, 3});
+
+        assertThatThrownBy(() -> excelUtils.createProducts(multipartFile))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Error! The multipartFile should be a .xlsx");
+    }
+
+    @Test
+    public void createPriceListsShouldThrowBadRequestExceptionIfSnapshotIsImportedInParallel(){
+        assertThatThrownBy(() -> excelUtils.createPriceLists(List.<Path>of(), true, true, progress -> { }))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Error! A snapshot of price lists (diff) cannot be imported in parallel");
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.utils;
+
+import com.example.entity.dto.ProductDTO;
+import com.example.service.ProductService;
+import com.example.service.SubcategoryService;
+import com.example.utils.pojo.ImportCell;
+import com.example.utils.pojo.ImportChunkReport;
+import com.example.utils.pojo.ImportReport;
+import com.example.utils.pojo.ImportRow;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellAddress;
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ImportChunkerTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private ProductService productService;
+    @Mock
+    private SubcategoryService subcategoryService;
+
+    private final List<List<Long>> writtenChunks = new ArrayList<>();
+    private ImportIdValidator subcategoryIds;
+
+    @BeforeEach
+    void init(){
+        subcategoryIds = new ImportIdValidator("Subcategory", subcategoryService::findExistingIds);
+        // the chunk list is reused for the next chunk, so the written subcategory ids are copied
+        lenient().when(productService.importAll(anyList())).thenAnswer(invocation -> {
+            List<ProductDTO> productDTOS = invocation.getArgument(0);
+            writtenChunks.add(productDTOS.stream().map(ProductDTO::getSubcategoryId).collect(Collectors.toList()));
+            return productDTOS.size();
+        });
+        lenient().when(subcategoryService.findExistingIds(anyCollection())).thenAnswer(invocation -> Set.copyOf(invocation.getArgument(0)));
+    }
+
+    private ImportChunker<ProductDTO> chunker(int chunkSize) {
+        ImportChunker<ProductDTO> chunker = new ImportChunker<>(chunkSize, row -> {
+            ImportCell cell = row.getCell(0);
+            ProductDTO productDTO = new ProductDTO();
+            productDTO.setSubcategoryId((long) cell.getNumericCellValue());
+            subcategoryIds.register(productDTO.getSubcategoryId(), cell.getAddress());
+            return productDTO;
+        }, productService::importAll, subcategoryIds);
+        chunker.setSheet(2, "Products");
+        return chunker;
+    }
+
+    /**
+     * Row with the subcategory id in column A, rowNum is counted from 0 as in the sheet.
+     */
+    private static ImportRow row(int rowNum, long subcategoryId) {
+        return new ImportRow(rowNum, List.of(new ImportCell(new CellAddress(rowNum, 0), CellType.NUMERIC, String.valueOf(subcategoryId))));
+    }
+
+    private static ImportRow stringRow(int rowNum) {
+        return new ImportRow(rowNum, List.of(new ImportCell(new CellAddress(rowNum, 0), CellType.STRING, "one")));
+    }
+
+    private static List<String> rowRanges(ImportReport report) {
+        return report.getChunks().stream()
+                .map(chunk -> chunk.getChunk() + ":" + chunk.getFirstRow() + "-" + chunk.getLastRow())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void acceptShouldWriteChunksOfChunkSizeRowsAndTheRestOnFinish(){
+        ImportChunker<ProductDTO> chunker = chunker(2);
+        List<Long> progressRowsImported = new ArrayList<>();
+        chunker.setProgress(report -> progressRowsImported.add(report.getRowsImported()));
+
+        for (int rowNum = 1; rowNum <= 5; rowNum++) {
+            chunker.accept(row(rowNum, rowNum));
+        }
+        ImportReport report = chunker.finish();
+
+        assertThat(writtenChunks, equalTo(List.of(List.of(1L, 2L), List.of(3L, 4L), List.of(5L))));
+        assertThat(rowRanges(report), equalTo(List.of("1:2-3", "2:4-5", "3:6-6")));
+        assertThat(report.getRowsRead(), equalTo(5L));
+        assertThat(report.getRowsImported(), equalTo(5L));
+        assertThat(report.getChunks().get(0).getFile(), equalTo(2));
+        assertThat(report.getChunks().get(0).getSheet(), equalTo("Products"));
+        assertThat(progressRowsImported, equalTo(List.of(2L, 4L, 5L)));
+    }
+
+    @Test
+    public void acceptShouldSkipChunkWithInvalidRowAndKeepItsFirstError(){
+        ImportChunker<ProductDTO> chunker = chunker(2);
+
+        chunker.accept(row(1, 1));
+        chunker.accept(row(2, 2));
+        chunker.accept(stringRow(3));
+        chunker.accept(stringRow(4));
+        chunker.accept(row(5, 5));
+        ImportReport report = chunker.finish();
+
+        assertThat(writtenChunks, equalTo(List.of(List.of(1L, 2L), List.of(5L))));
+        ImportChunkReport failedChunk = report.getChunks().get(1);
+        assertThat(failedChunk.getError(), equalTo("Error! Cannot get a numeric value from a STRING cell, cell address A4"));
+        assertThat(failedChunk.getRowsImported(), equalTo(0));
+        assertThat(report.getChunks().get(2).getError(), nullValue());
+        assertThat(report.getRowsRead(), equalTo(5L));
+        assertThat(report.getRowsImported(), equalTo(3L));
+    }
+
+    @Test
+    public void flushShouldNotWriteChunkWithMissingIdAndAnswerKnownIdsFromMemory(){
+        when(subcategoryService.findExistingIds(anyCollection())).thenReturn(Set.of(1L));
+        ImportChunker<ProductDTO> chunker = chunker(2);
+
+        chunker.accept(row(1, 1));
+        chunker.accept(row(2, 7));
+        chunker.accept(row(3, 1));
+        ImportReport report = chunker.finish();
+
+        assertThat(report.getChunks().get(0).getError(), equalTo("Error! Subcategory does not exist with this id - 7. Cell address A3"));
+        assertThat(writtenChunks, equalTo(List.of(List.of(1L))));
+        verify(subcategoryService, times(1)).findExistingIds(anyCollection());
+    }
+
+    @Test
+    public void flushShouldReportFailedWriteAndContinueWithNextChunk(){
+        // the service rolls back the transaction of the chunk and throws, the cause is the database error
+        when(productService.importAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("could not execute batch",
+                        new SQLException("ERROR: duplicate key value violates unique constraint")))
+                .thenReturn(1);
+        ImportChunker<ProductDTO> chunker = chunker(2);
+
+        chunker.accept(row(1, 1));
+        chunker.accept(row(2, 2));
+        chunker.accept(row(3, 3));
+        ImportReport report = chunker.finish();
+
+        assertThat(report.getChunks().get(0).getError(), equalTo("ERROR: duplicate key value violates unique constraint"));
+        assertThat(report.getChunks().get(0).getRowsImported(), equalTo(0));
+        assertThat(report.getChunks().get(1).getError(), nullValue());
+        assertThat(report.getChunks().get(1).getRowsImported(), equalTo(1));
+        assertThat(report.getRowsImported(), equalTo(1L));
+        verify(productService, times(2)).importAll(anyList());
+    }
+
+    @Test
+    public void acceptShouldTakeEveryStripesThRowBlockOfTheStripe(){
+        ImportChunker<ProductDTO> chunker = chunker(2);
+        chunker.setStripe(1, 3, null);
+
+        // blocks of rows (rowNum - 1) / 2: rows 3-4 are block 1, rows 9-10 block 4, rows 15-16 block 7
+        for (int rowNum = 1; rowNum <= 16; rowNum++) {
+            chunker.accept(row(rowNum, rowNum));
+        }
+        ImportReport report = chunker.finish();
+
+        assertThat(writtenChunks, equalTo(List.of(List.of(3L, 4L), List.of(9L, 10L), List.of(15L, 16L))));
+        assertThat(rowRanges(report), equalTo(List.of("1:4-5", "2:10-11", "3:16-17")));
+        assertThat(report.getRowsRead(), equalTo(6L));
+    }
+
+    @Test
+    public void acceptShouldStartNewChunkOnNextBlockOfTheStripeWhenRowsAreMissing(){
+        ImportChunker<ProductDTO> chunker = chunker(2);
+        chunker.setStripe(0, 2, null);
+
+        chunker.accept(row(1, 1));
+        chunker.accept(row(5, 5));
+        chunker.accept(row(6, 6));
+        ImportReport report = chunker.finish();
+
+        assertThat(writtenChunks, equalTo(List.of(List.of(1L), List.of(5L, 6L))));
+        assertThat(rowRanges(report), equalTo(List.of("1:2-2", "2:6-7")));
+    }
+
+    @Test
+    public void acceptShouldTakeRowsWhoseKeyFallsIntoTheStripeInSheetOrder(){
+        ImportChunker<ProductDTO> chunker = chunker(2);
+        chunker.setStripe(1, 2, row -> (long) row.getCell(0).getNumericCellValue());
+
+        chunker.accept(row(1, 3));
+        chunker.accept(row(2, 2));
+        chunker.accept(row(3, -1));
+        chunker.accept(row(4, 3));
+        chunker.accept(row(5, 4));
+        ImportReport report = chunker.finish();
+
+        assertThat(writtenChunks, equalTo(List.of(List.of(3L, -1L), List.of(3L))));
+        assertThat(report.getRowsRead(), equalTo(3L));
+    }
+}
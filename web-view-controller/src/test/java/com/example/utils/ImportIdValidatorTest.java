@@ -0,0 +1,87 @@
+package com.example.utils;
+
+import com.example.service.StoreService;
+import org.apache.poi.ss.util.CellAddress;
+import org.junit.Rule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ImportIdValidatorTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    @Mock
+    private StoreService storeService;
+
+    private ImportIdValidator storeIds;
+
+    @BeforeEach
+    void init(){
+        storeIds = new ImportIdValidator("Store", storeService::findExistingIds);
+    }
+
+    @Test
+    public void registerShouldThrowIllegalArgumentExceptionIfIdIsZeroOrNull(){
+        assertThatThrownBy(() -> storeIds.register(0L, new CellAddress("A2")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Error! Store id cannot be 0 or null. Cell address A2");
+        assertThatThrownBy(() -> storeIds.register(null, new CellAddress("A3")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Error! Store id cannot be 0 or null. Cell address A3");
+        verifyNoInteractions(storeService);
+    }
+
+    @Test
+    public void validateShouldLoadUncheckedIdsOnceAndAnswerExistingIdsFromMemory(){
+        when(storeService.findExistingIds(Set.of(1L, 2L))).thenReturn(Set.of(1L, 2L));
+
+        storeIds.register(1L, new CellAddress("A2"));
+        storeIds.register(2L, new CellAddress("A3"));
+        storeIds.register(1L, new CellAddress("A4"));
+        storeIds.validate();
+        storeIds.register(2L, new CellAddress("A5"));
+        storeIds.validate();
+
+        verify(storeService, times(1)).findExistingIds(anyCollection());
+    }
+
+    @Test
+    public void validateShouldThrowWithAddressOfFirstRowOfMissingId(){
+        when(storeService.findExistingIds(Set.of(1L, 7L, 8L))).thenReturn(Set.of(1L));
+
+        storeIds.register(1L, new CellAddress("A2"));
+        storeIds.register(7L, new CellAddress("A3"));
+        storeIds.register(8L, new CellAddress("A4"));
+        storeIds.register(7L, new CellAddress("A5"));
+
+        assertThatThrownBy(() -> storeIds.validate())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Error! Store does not exist with this id - 7. Cell address A3");
+        // a missing id is known for the rest of the import, its next row fails without a query
+        assertThatThrownBy(() -> storeIds.register(8L, new CellAddress("A9")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Error! Store does not exist with this id - 8. Cell address A9");
+        verify(storeService, times(1)).findExistingIds(anyCollection());
+    }
+
+    @Test
+    public void resetShouldForgetIdsOfSkippedChunk(){
+        storeIds.register(5L, new CellAddress("A2"));
+        storeIds.reset();
+
+        storeIds.validate();
+
+        verifyNoInteractions(storeService);
+    }
+}
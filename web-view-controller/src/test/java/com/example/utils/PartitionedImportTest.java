@@ -0,0 +1,192 @@
+package com.example.utils;
+
+import com.example.entity.dto.ProductDTO;
+import com.example.exceptions.BadRequestException;
+import com.example.service.ProductService;
+import com.example.utils.pojo.ImportCell;
+import com.example.utils.pojo.ImportChunkReport;
+import com.example.utils.pojo.ImportReport;
+import com.example.utils.pojo.ImportRow;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellAddress;
+import org.junit.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PartitionedImportTest {
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private static final Path FIRST_FILE = Path.of("first.xlsx");
+    private static final Path SECOND_FILE = Path.of("second.xlsx");
+
+    @Mock
+    private XlsxStreamReader xlsxStreamReader;
+    @Mock
+    private ProductService productService;
+
+    private final List<Long> writtenIds = Collections.synchronizedList(new ArrayList<>());
+    private ExecutorService executor;
+
+    @BeforeEach
+    void init(){
+        executor = Executors.newFixedThreadPool(4);
+        // the chunk list is reused for the next chunk, so the written ids are copied
+        lenient().when(productService.importAll(anyList())).thenAnswer(invocation -> {
+            List<ProductDTO> productDTOS = invocation.getArgument(0);
+            productDTOS.forEach(productDTO -> writtenIds.add(productDTO.getSubcategoryId()));
+            return productDTOS.size();
+        });
+    }
+
+    @AfterEach
+    void destroy(){
+        executor.shutdownNow();
+    }
+
+    private ImportChunker<?> chunker() {
+        return new ImportChunker<>(2, row -> {
+            ProductDTO productDTO = new ProductDTO();
+            productDTO.setSubcategoryId((long) row.getCell(0).getNumericCellValue());
+            return productDTO;
+        }, productService::importAll);
+    }
+
+    /**
+     * Sheet with a header and rows whose column A is firstId, firstId + 1 and so on.
+     */
+    private void sheet(Path file, int sheetIndex, long firstId, int rows) {
+        sheet(file, sheetIndex, firstId, rows, () -> { }, () -> { });
+    }
+
+    private void sheet(Path file, int sheetIndex, long firstId, int rows, Runnable beforeRows, Runnable afterRows) {
+        lenient().doAnswer(invocation -> {
+            Consumer<ImportRow> rowConsumer = invocation.getArgument(2);
+            beforeRows.run();
+            rowConsumer.accept(new ImportRow(0, List.of(new ImportCell(new CellAddress(0, 0), CellType.STRING, "header"))));
+            for (int rowNum = 1; rowNum <= rows; rowNum++) {
+                rowConsumer.accept(new ImportRow(rowNum, List.of(new ImportCell(new CellAddress(rowNum, 0), CellType.NUMERIC,
+                        String.valueOf(firstId + rowNum - 1)))));
+            }
+            afterRows.run();
+            return null;
+        }).when(xlsxStreamReader).readSheet(eq(file), eq(sheetIndex), any());
+    }
+
+    private static List<String> chunks(ImportReport report) {
+        return report.getChunks().stream()
+                .map(chunk -> chunk.getChunk() + ":" + chunk.getFile() + "/" + chunk.getSheet() + "/" + chunk.getFirstRow() + "-" + chunk.getLastRow())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void runSequentialShouldImportEverySheetOfEveryFileInOrder(){
+        when(xlsxStreamReader.readSheetNames(FIRST_FILE)).thenReturn(List.of("A", "B"));
+        when(xlsxStreamReader.readSheetNames(SECOND_FILE)).thenReturn(List.of("C"));
+        sheet(FIRST_FILE, 0, 100, 3);
+        sheet(FIRST_FILE, 1, 200, 1);
+        sheet(SECOND_FILE, 0, 300, 2);
+        List<Long> progressRowsRead = new ArrayList<>();
+
+        ImportReport report = new PartitionedImport(xlsxStreamReader, this::chunker, null,
+                progress -> progressRowsRead.add(progress.getRowsRead())).runSequential(List.of(FIRST_FILE, SECOND_FILE));
+
+        assertThat(chunks(report), equalTo(List.of("1:1/A/2-3", "2:1/A/4-4", "3:1/B/2-2", "4:2/C/2-3")));
+        assertThat(writtenIds, equalTo(List.of(100L, 101L, 102L, 200L, 300L, 301L)));
+        assertThat(report.getRowsRead(), equalTo(6L));
+        assertThat(report.getRowsImported(), equalTo(6L));
+        assertThat(progressRowsRead, equalTo(List.of(2L, 3L, 4L, 6L)));
+    }
+
+    @Test
+    public void runParallelShouldMergeChunksInSheetAndRowOrderWhicheverPartitionFinishesFirst(){
+        when(xlsxStreamReader.readSheetNames(FIRST_FILE)).thenReturn(List.of("A", "B"));
+        CountDownLatch secondSheetRead = new CountDownLatch(1);
+        sheet(FIRST_FILE, 0, 100, 3, () -> {
+            try {
+                secondSheetRead.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> { });
+        sheet(FIRST_FILE, 1, 200, 3, () -> { }, secondSheetRead::countDown);
+        List<String> progressSheets = Collections.synchronizedList(new ArrayList<>());
+
+        ImportReport report = new PartitionedImport(xlsxStreamReader, this::chunker, null, progress -> {
+            List<ImportChunkReport> chunks = progress.getChunks();
+            progressSheets.add(chunks.get(chunks.size() - 1).getSheet());
+        }).runParallel(List.of(FIRST_FILE), executor, 2);
+
+        assertThat(progressSheets.get(0), equalTo("B"));
+        assertThat(chunks(report), equalTo(List.of("1:1/A/2-3", "2:1/A/4-4", "3:1/B/2-3", "4:1/B/4-4")));
+        assertThat(report.getRowsRead(), equalTo(6L));
+        assertThat(report.getRowsImported(), equalTo(6L));
+    }
+
+    @Test
+    public void runParallelWithStripeKeyShouldWriteRowsOfAKeyInSheetOrder(){
+        when(xlsxStreamReader.readSheetNames(FIRST_FILE)).thenReturn(List.of("A"));
+        when(xlsxStreamReader.readSheetNames(SECOND_FILE)).thenReturn(List.of("B"));
+        // the key is the id / 10, every sheet has the ids 100 to 149, ten of each key from 10 to 14
+        sheet(FIRST_FILE, 0, 100, 50);
+        sheet(SECOND_FILE, 0, 100, 50);
+
+        ImportReport report = new PartitionedImport(xlsxStreamReader, this::chunker,
+                row -> (long) row.getCell(0).getNumericCellValue() / 10, progress -> { })
+                .runParallel(List.of(FIRST_FILE, SECOND_FILE), executor, 4);
+
+        Map<Long, List<Long>> writtenIdsByKey = new TreeMap<>();
+        writtenIds.forEach(id -> writtenIdsByKey.computeIfAbsent(id / 10, key -> new ArrayList<>()).add(id));
+        for (long key = 10; key <= 14; key++) {
+            List<Long> expectedIds = new ArrayList<>();
+            for (long id = key * 10; id < key * 10 + 10; id++) {
+                expectedIds.add(id);
+            }
+            List<Long> idsOfBothFiles = new ArrayList<>(expectedIds);
+            idsOfBothFiles.addAll(expectedIds);
+            assertThat(writtenIdsByKey.get(key), equalTo(idsOfBothFiles));
+        }
+        assertThat(report.getRowsRead(), equalTo(100L));
+        assertThat(report.getRowsImported(), equalTo(100L));
+        assertThat(report.getChunks().get(0).getSheet(), equalTo("A"));
+        assertThat(report.getChunks().get(report.getChunks().size() - 1).getSheet(), equalTo("B"));
+    }
+
+    @Test
+    public void runParallelShouldThrowFailureOfAPartition(){
+        when(xlsxStreamReader.readSheetNames(FIRST_FILE)).thenReturn(List.of("A", "B"));
+        sheet(FIRST_FILE, 0, 100, 3);
+        doThrow(new BadRequestException("Error! Failed to process: multipartFile could not be read"))
+                .when(xlsxStreamReader).readSheet(eq(FIRST_FILE), eq(1), any());
+
+        assertThatThrownBy(() -> new PartitionedImport(xlsxStreamReader, this::chunker, null, progress -> { })
+                .runParallel(List.of(FIRST_FILE), executor, 2))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Error! Failed to process: multipartFile could not be read");
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.utils;
+
+import com.example.exceptions.BadRequestException;
+import com.example.utils.pojo.ImportCell;
+import com.example.utils.pojo.ImportRow;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class XlsxStreamReaderTest {
+    @TempDir
+    Path tempDir;
+
+    private XlsxStreamReader xlsxStreamReader;
+
+    @BeforeEach
+    void init(){
+        xlsxStreamReader = new XlsxStreamReader();
+    }
+
+    private Path write(Workbook workbook) throws IOException {
+        Path file = Files.createTempFile(tempDir, "test-", ".xlsx");
+        try (workbook; OutputStream out = Files.newOutputStream(file)) {
+            workbook.write(out);
+        }
+        return file;
+    }
+
+    private List<ImportRow> readSheet(Path file, int sheetIndex) {
+        List<ImportRow> rows = new ArrayList<>();
+        xlsxStreamReader.readSheet(file, sheetIndex, rows::add);
+        return rows;
+    }
+
+    @Test
+    public void readSheetShouldResolveSharedStringsAndKeepNumbersAsStored() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Row row = workbook.createSheet("Products").createRow(0);
+        row.createCell(0).setCellValue(12.5);
+        row.createCell(1).setCellValue("Молоко");
+        row.createCell(2).setCellValue(true);
+
+        List<ImportRow> rows = readSheet(write(workbook), 0);
+
+        assertThat(rows.size(), equalTo(1));
+        ImportCell number = rows.get(0).getCell(0);
+        assertThat(number.getCellType(), equalTo(CellType.NUMERIC));
+        assertThat(number.getNumericCellValue(), equalTo(12.5));
+        ImportCell string = rows.get(0).getCell(1);
+        assertThat(string.getCellType(), equalTo(CellType.STRING));
+        assertThat(string.getStringCellValue(), equalTo("Молоко"));
+        assertThat(string.getAddress().formatAsString(), equalTo("B1"));
+        assertThat(rows.get(0).getCell(2).getCellType(), equalTo(CellType.BOOLEAN));
+    }
+
+    @Test
+    public void readSheetShouldReadInlineStrings() throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook();
+        workbook.createSheet("Products").createRow(0).createCell(0).setCellValue("Хлеб");
+
+        List<ImportRow> rows = readSheet(write(workbook), 0);
+
+        assertThat(rows.get(0).getCell(0).getCellType(), equalTo(CellType.STRING));
+        assertThat(rows.get(0).getCell(0).getStringCellValue(), equalTo("Хлеб"));
+        workbook.dispose();
+    }
+
+    @Test
+    public void readSheetShouldSkipEmptyCellsAndMissingRows() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("Prices");
+        sheet.createRow(0).createCell(0).setCellValue("header");
+        Row row = sheet.createRow(2);
+        row.createCell(0).setCellValue(1);
+        row.createCell(1);
+        row.createCell(3).setCellValue(4);
+
+        List<ImportRow> rows = readSheet(write(workbook), 0);
+
+        assertThat(rows.size(), equalTo(2));
+        assertThat(rows.get(1).getRowNum(), equalTo(2));
+        assertThat(rows.get(1).getLastCellNum(), equalTo(4));
+        assertThat(rows.get(1).getCell(1), nullValue());
+        assertThat(rows.get(1).getCell(2), nullValue());
+        assertThat(rows.get(1).getCell(3).getAddress().formatAsString(), equalTo("D3"));
+        assertThat(rows.get(1).getCell(7), nullValue());
+    }
+
+    @Test
+    public void readSheetShouldReadUnknownCellTypesAsErrorCells() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("Prices").createRow(0).createCell(1).setCellErrorValue(FormulaError.DIV0);
+
+        ImportCell cell = readSheet(write(workbook), 0).get(0).getCell(1);
+
+        assertThat(cell.getCellType(), equalTo(CellType.ERROR));
+        assertThat(cell.getValue(), equalTo("#DIV/0!"));
+        assertThatThrownBy(cell::getNumericCellValue)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Error! Cannot get a numeric value from a ERROR cell, cell address B1");
+    }
+
+    @Test
+    public void readSheetShouldReadDatesAsNumericCells() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("Prices").createRow(0).createCell(0).setCellValue(LocalDate.of(2021, 3, 15));
+
+        ImportCell cell = readSheet(write(workbook), 0).get(0).getCell(0);
+
+        assertThat(cell.getLocalDateTimeCellValue(), equalTo(LocalDateTime.of(2021, 3, 15, 0, 0)));
+        assertThatThrownBy(cell::getStringCellValue)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Error! Cannot get a string value from a NUMERIC cell, cell address A1");
+    }
+
+    @Test
+    public void readSheetShouldReadTheSheetOfTheIndex() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("First").createRow(0).createCell(0).setCellValue("first");
+        workbook.createSheet("Second").createRow(0).createCell(0).setCellValue("second");
+
+        List<ImportRow> rows = readSheet(write(workbook), 1);
+
+        assertThat(rows.get(0).getCell(0).getStringCellValue(), equalTo("second"));
+    }
+
+    @Test
+    public void readSheetShouldThrowBadRequestExceptionIfSheetDoesNotExist() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("First");
+        Path file = write(workbook);
+
+        assertThatThrownBy(() -> readSheet(file, 2))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Error! The multipartFile does not contain sheet 3");
+    }
+
+    @Test
+    public void readSheetShouldThrowBadRequestExceptionIfFileIsNotXlsx() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("text.xlsx"), "not a workbook");
+
+        assertThatThrownBy(() -> readSheet(file, 0))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessage("Error! Failed to process: multipartFile could not be read");
+    }
+
+    @Test
+    public void readSheetNamesShouldReturnNamesInWorkbookOrder() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        workbook.createSheet("Products");
+        workbook.createSheet("Prices");
+        workbook.createSheet("Stores");
+
+        List<String> names = xlsxStreamReader.readSheetNames(write(workbook));
+
+        assertThat(names, equalTo(List.of("Products", "Prices", "Stores")));
+    }
+}